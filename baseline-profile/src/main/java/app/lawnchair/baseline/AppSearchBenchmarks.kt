@@ -0,0 +1,85 @@
+package app.lawnchair.baseline
+
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.TraceSectionMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import app.lawnchair.baseline.LauncherJourneys.goHome
+import app.lawnchair.baseline.LauncherJourneys.openAllApps
+import app.lawnchair.baseline.LauncherJourneys.searchAllApps
+import app.lawnchair.baseline.LauncherJourneys.setFuzzySearch
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Benchmarks matching the installed apps against drawer search queries, with and without fuzzy
+ * search.
+ *
+ * Each iteration starts the launcher cold, so the first keystroke builds the app search index,
+ * and types queries one character at a time. `AppSearchIndex.buildSumMs` is the cost of building
+ * the index, and `AppSearchProvider.matchSumMs` divided by `AppSearchProvider.matchCount` the cost
+ * of matching every app against one keystroke. The cost grows with the number of installed apps,
+ * so compare runs on the same device, with the same apps, on two builds. AppMatcherBenchmark in
+ * the app's microbenchmarks measures matching over a fixed set of 1,000 apps instead:
+ * ```
+ * ./gradlew :baseline-profile:connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=app.lawnchair.baseline.AppSearchBenchmarks
+ * ```
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+@OptIn(ExperimentalMetricApi::class)
+class AppSearchBenchmarks {
+
+    @get:Rule
+    val rule = MacrobenchmarkRule()
+
+    @Test
+    fun appSearch() = benchmark(fuzzySearch = false, QUERIES)
+
+    @Test
+    fun appSearchFuzzy() = benchmark(fuzzySearch = true, QUERIES)
+
+    private fun benchmark(fuzzySearch: Boolean, queries: List<String>) {
+        rule.measureRepeated(
+            packageName = Constants.PACKAGE_NAME,
+            metrics = listOf(
+                TraceSectionMetric(TRACE_BUILD, TraceSectionMetric.Mode.Sum),
+                TraceSectionMetric(TRACE_MATCH, TraceSectionMetric.Mode.Sum),
+                TraceSectionMetric(TRACE_MATCH, TraceSectionMetric.Mode.Count),
+            ),
+            compilationMode = CompilationMode.DEFAULT,
+            startupMode = StartupMode.COLD,
+            iterations = ITERATIONS,
+            setupBlock = {
+                pressHome()
+                startActivityAndWait()
+                setFuzzySearch(fuzzySearch)
+            },
+            measureBlock = { searchApps(queries) },
+        )
+    }
+
+    private fun MacrobenchmarkScope.searchApps(queries: List<String>) {
+        queries.forEach { query ->
+            openAllApps()
+            searchAllApps(query)
+            goHome()
+        }
+    }
+
+    private companion object {
+        const val ITERATIONS = 10
+
+        const val TRACE_BUILD = "AppSearchIndex.build"
+        const val TRACE_MATCH = "AppSearchProvider.match"
+
+        // A common word, a query made of initials and a misspelling, which exercise the prefix,
+        // initials and fuzzy rules
+        val QUERIES = listOf("camera", "gm", "setings")
+    }
+}
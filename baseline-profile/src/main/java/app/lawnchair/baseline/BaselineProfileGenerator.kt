@@ -5,14 +5,23 @@ import androidx.annotation.RequiresApi
 import androidx.benchmark.macro.junit4.BaselineProfileRule
 import androidx.test.ext.junit.runners.AndroidJUnit4
 import androidx.test.filters.LargeTest
+import app.lawnchair.baseline.LauncherJourneys.createFolder
+import app.lawnchair.baseline.LauncherJourneys.flingAllApps
+import app.lawnchair.baseline.LauncherJourneys.goHome
+import app.lawnchair.baseline.LauncherJourneys.openAllApps
+import app.lawnchair.baseline.LauncherJourneys.openAndCloseFolder
+import app.lawnchair.baseline.LauncherJourneys.openAndCloseWidgetPicker
+import app.lawnchair.baseline.LauncherJourneys.openRecents
+import app.lawnchair.baseline.LauncherJourneys.searchAllApps
+import app.lawnchair.baseline.LauncherJourneys.swipeHomePages
 import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
 
 /**
- * This test class generates a basic startup baseline profile for the target package.
+ * This test class generates a baseline profile for the target package, covering startup and the
+ * launcher journeys of [LauncherJourneys].
  *
- * We recommend you start with this but add important user flows to the profile to improve their performance.
  * Refer to the [baseline profile documentation](https://d.android.com/topic/performance/baselineprofiles)
  * for more information.
  *
@@ -26,7 +35,8 @@ import org.junit.runner.RunWith
  * Check [documentation](https://d.android.com/topic/performance/benchmarking/macrobenchmark-instrumentation-args)
  * for more information about available instrumentation arguments.
  *
- * After you run the generator, you can verify the improvements running the [StartupBenchmarks] benchmark.
+ * After you run the generator, you can verify the improvements running the [StartupBenchmarks] and
+ * [InteractionBenchmarks] benchmarks.
  *
  * When using this class to generate a baseline profile, only API 33+ or rooted API 26+ are supported.
  **/
@@ -42,22 +52,21 @@ class BaselineProfileGenerator {
     @RequiresApi(Build.VERSION_CODES.P)
     fun generate() {
         rule.collect(Constants.PACKAGE_NAME) {
-            // This block defines the app's critical user journey. Here we are interested in
-            // optimizing for app startup. But you can also navigate and scroll
-            // through your most important UI.
-
             // Start default activity for your app
             pressHome()
             startActivityAndWait()
 
-            // TODO Write more interactions to optimize advanced journeys of your app.
-            // For example:
-            // 1. Wait until the content is asynchronously loaded
-            // 2. Scroll the feed content
-            // 3. Navigate to detail screen
-
-            // Check UiAutomator documentation for more information how to interact with the app.
-            // https://d.android.com/training/testing/other-components/ui-automator
+            // The journeys measured by InteractionBenchmarks
+            goHome()
+            swipeHomePages()
+            createFolder()
+            openAndCloseFolder()
+            openAndCloseWidgetPicker()
+            openAllApps()
+            flingAllApps()
+            searchAllApps()
+            goHome()
+            openRecents()
         }
     }
 }
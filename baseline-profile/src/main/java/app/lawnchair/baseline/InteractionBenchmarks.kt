@@ -0,0 +1,136 @@
+package app.lawnchair.baseline
+
+import androidx.benchmark.macro.BaselineProfileMode
+import androidx.benchmark.macro.CompilationMode
+import androidx.benchmark.macro.ExperimentalMetricApi
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.benchmark.macro.Metric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.TraceSectionMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import app.lawnchair.baseline.LauncherJourneys.createFolder
+import app.lawnchair.baseline.LauncherJourneys.flingAllApps
+import app.lawnchair.baseline.LauncherJourneys.goHome
+import app.lawnchair.baseline.LauncherJourneys.openAllApps
+import app.lawnchair.baseline.LauncherJourneys.openAndCloseFolder
+import app.lawnchair.baseline.LauncherJourneys.openAndCloseWidgetPicker
+import app.lawnchair.baseline.LauncherJourneys.openRecents
+import app.lawnchair.baseline.LauncherJourneys.searchAllApps
+import app.lawnchair.baseline.LauncherJourneys.swipeHomePages
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Benchmarks the jank of the main launcher interactions with [FrameTimingMetric], along with the
+ * time spent in the launcher's own trace sections for each of them.
+ *
+ * The journeys are the ones the [BaselineProfileGenerator] records, and they run with the
+ * baseline profile applied, as on a release build. They are meant to run on the managed emulator
+ * for every release, so compare runs of the same device against each other rather than against
+ * real devices:
+ * ```
+ * ./gradlew :baseline-profile:pixel7Api36LawnWithQuickstepGithubBenchmarkReleaseAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=app.lawnchair.baseline.InteractionBenchmarks
+ * ```
+ * The folder benchmark creates a folder from the first two hotseat apps if the home screen has
+ * none.
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+@OptIn(ExperimentalMetricApi::class)
+class InteractionBenchmarks {
+
+    @get:Rule
+    val rule = MacrobenchmarkRule()
+
+    @Test
+    fun allAppsOpen() = benchmark(
+        sections = listOf(RV_BIND_VIEW, RV_CREATE_VIEW),
+        setupBlock = { goHome() },
+        measureBlock = { openAllApps() },
+    )
+
+    @Test
+    fun allAppsFling() = benchmark(
+        sections = listOf(RV_BIND_VIEW, RV_CREATE_VIEW),
+        setupBlock = {
+            goHome()
+            openAllApps()
+        },
+        measureBlock = { flingAllApps() },
+    )
+
+    @Test
+    fun allAppsSearch() = benchmark(
+        sections = listOf("AppSearchProvider.match", RV_BIND_VIEW),
+        setupBlock = {
+            goHome()
+            openAllApps()
+        },
+        measureBlock = { searchAllApps() },
+    )
+
+    @Test
+    fun folderOpenAndClose() = benchmark(
+        sections = listOf("Folder#animateOpen"),
+        setupBlock = {
+            goHome()
+            createFolder()
+        },
+        measureBlock = { openAndCloseFolder() },
+    )
+
+    @Test
+    fun widgetPickerOpen() = benchmark(
+        sections = listOf("WidgetsFullSheet#show", RV_BIND_VIEW),
+        setupBlock = { goHome() },
+        measureBlock = { openAndCloseWidgetPicker() },
+    )
+
+    @Test
+    fun homePageSwipe() = benchmark(
+        sections = emptyList(),
+        setupBlock = { goHome() },
+        measureBlock = { swipeHomePages() },
+    )
+
+    @Test
+    fun recentsOpen() = benchmark(
+        sections = emptyList(),
+        setupBlock = { goHome() },
+        measureBlock = { openRecents() },
+    )
+
+    private fun benchmark(
+        sections: List<String>,
+        setupBlock: MacrobenchmarkScope.() -> Unit,
+        measureBlock: MacrobenchmarkScope.() -> Unit,
+    ) {
+        val metrics = mutableListOf<Metric>(FrameTimingMetric())
+        sections.forEach { metrics += TraceSectionMetric(it, TraceSectionMetric.Mode.Sum) }
+        rule.measureRepeated(
+            packageName = Constants.PACKAGE_NAME,
+            metrics = metrics,
+            compilationMode = CompilationMode.Partial(BaselineProfileMode.UseIfAvailable),
+            startupMode = StartupMode.WARM,
+            iterations = ITERATIONS,
+            setupBlock = {
+                // Warm starts go through the launcher's home intent
+                startActivityAndWait()
+                setupBlock()
+            },
+            measureBlock = measureBlock,
+        )
+    }
+
+    private companion object {
+        const val ITERATIONS = 10
+
+        // Sections added by RecyclerView, used by the drawer, search and widget lists
+        const val RV_BIND_VIEW = "RV OnBindView"
+        const val RV_CREATE_VIEW = "RV CreateView"
+    }
+}
@@ -0,0 +1,168 @@
+package app.lawnchair.baseline
+
+import android.widget.TextView
+import androidx.benchmark.macro.MacrobenchmarkScope
+import androidx.test.uiautomator.By
+import androidx.test.uiautomator.BySelector
+import androidx.test.uiautomator.Direction
+import androidx.test.uiautomator.UiObject2
+import androidx.test.uiautomator.Until
+
+/**
+ * The launcher interactions driven by [InteractionBenchmarks] and [BaselineProfileGenerator].
+ *
+ * The app drawer journeys expect the drawer to be open, the others start on the home screen.
+ * A journey fails when the launcher doesn't show what it interacts with, rather than measuring
+ * nothing.
+ */
+object LauncherJourneys {
+
+    const val SEARCH_QUERY = "camera"
+
+    private const val TIMEOUT_MS = 5_000L
+    private const val SWIPE_STEPS = 10
+    private const val DRAG_SPEED = 1_000
+
+    /** Presses home and waits for the workspace to be shown. */
+    fun MacrobenchmarkScope.goHome() {
+        pressHome()
+        device.wait(Until.hasObject(launcherRes("workspace")), TIMEOUT_MS)
+        device.waitForIdle()
+    }
+
+    /** Swipes up from the workspace and waits for the app drawer to be shown. */
+    fun MacrobenchmarkScope.openAllApps() {
+        val width = device.displayWidth
+        val height = device.displayHeight
+        device.swipe(width / 2, height * 4 / 5, width / 2, height / 5, SWIPE_STEPS)
+        device.wait(Until.hasObject(launcherRes("apps_list_view")), TIMEOUT_MS)
+        device.waitForIdle()
+    }
+
+    /** Flings the app drawer to the end and back to the top. */
+    fun MacrobenchmarkScope.flingAllApps() {
+        val list = checkNotNull(device.findObject(launcherRes("apps_list_view"))) { "The app drawer isn't open" }
+        // Keep the gesture away from the edges, which would swipe back or close the drawer
+        list.setGestureMargin(device.displayWidth / 5)
+        list.fling(Direction.DOWN)
+        device.waitForIdle()
+        list.fling(Direction.UP)
+        device.waitForIdle()
+    }
+
+    /** Types [query] in the drawer search field one character at a time. */
+    fun MacrobenchmarkScope.searchAllApps(query: String = SEARCH_QUERY) {
+        val input = checkNotNull(device.wait(Until.findObject(launcherRes("input")), TIMEOUT_MS)) {
+            "The app drawer search field isn't shown"
+        }
+        input.click()
+        query.indices.forEach { end ->
+            input.text = query.substring(0, end + 1)
+            device.waitForIdle()
+        }
+        // Hide the keyboard, then clear the query
+        device.pressBack()
+        device.pressBack()
+        device.waitForIdle()
+    }
+
+    /** Creates a folder from the first two hotseat apps, unless the home screen has one. */
+    fun MacrobenchmarkScope.createFolder() {
+        if (findFolderIcon() != null) return
+        val hotseat = checkNotNull(device.findObject(launcherRes("hotseat"))) { "The hotseat isn't shown" }
+        val icons = hotseat.findObjects(By.clazz(TextView::class.java).pkg(packageName))
+        check(icons.size >= 2) { "The hotseat needs two apps to create a folder" }
+        // Dragging starts with a long press, and dropping an app onto another one makes a folder
+        icons[0].drag(icons[1].visibleCenter, DRAG_SPEED)
+        checkNotNull(device.wait(Until.findObject(folderIcon()), TIMEOUT_MS)) { "No folder was created" }
+        device.waitForIdle()
+    }
+
+    /** Opens the first folder of the current home screen page and closes it again. */
+    fun MacrobenchmarkScope.openAndCloseFolder() {
+        val folder = checkNotNull(findFolderIcon()) { "The home screen has no folder, see createFolder" }
+        folder.click()
+        check(device.wait(Until.hasObject(launcherRes("folder_content")), TIMEOUT_MS)) { "The folder didn't open" }
+        device.waitForIdle()
+        device.pressBack()
+        device.wait(Until.gone(launcherRes("folder_content")), TIMEOUT_MS)
+        device.waitForIdle()
+    }
+
+    /** Opens the widget picker from the workspace options and closes it again. */
+    fun MacrobenchmarkScope.openAndCloseWidgetPicker() {
+        val workspace = checkNotNull(device.findObject(launcherRes("workspace"))) { "The workspace isn't shown" }
+        // Long press the empty space above the hotseat to show the workspace options
+        val bounds = workspace.visibleBounds
+        device.swipe(bounds.centerX(), bounds.top + bounds.height() / 8,
+            bounds.centerX(), bounds.top + bounds.height() / 8, 200)
+        val widgets = checkNotNull(device.wait(Until.findObject(By.text(WIDGETS_OPTION)), TIMEOUT_MS)) {
+            "The workspace options have no $WIDGETS_OPTION option"
+        }
+        widgets.click()
+        check(device.wait(Until.hasObject(launcherRes("primary_widgets_list_view")), TIMEOUT_MS)) {
+            "The widget picker didn't open"
+        }
+        device.waitForIdle()
+        device.pressBack()
+        device.wait(Until.gone(launcherRes("primary_widgets_list_view")), TIMEOUT_MS)
+        device.waitForIdle()
+    }
+
+    /**
+     * Turns fuzzy app search on or off in the app search settings, and goes back to the launcher.
+     */
+    fun MacrobenchmarkScope.setFuzzySearch(enabled: Boolean) {
+        device.executeShellCommand(
+            "am start -W -n $packageName/$PREFERENCE_ACTIVITY --es $EXTRA_DESTINATION_ROUTE $APPS_SEARCH_ROUTE",
+        )
+        val preference = checkNotNull(device.wait(Until.findObject(By.text(FUZZY_SEARCH_OPTION)), TIMEOUT_MS)) {
+            "The app search settings have no $FUZZY_SEARCH_OPTION option"
+        }
+        val switch = checkNotNull(preference.parent?.findObject(By.checkable(true))) {
+            "The $FUZZY_SEARCH_OPTION option has no switch"
+        }
+        if (switch.isChecked != enabled) {
+            switch.click()
+            check(switch.wait(Until.checked(enabled), TIMEOUT_MS)) {
+                "The $FUZZY_SEARCH_OPTION option didn't change"
+            }
+        }
+        goHome()
+    }
+
+    /** Swipes to the next home screen page and back. */
+    fun MacrobenchmarkScope.swipeHomePages() {
+        val width = device.displayWidth
+        val y = device.displayHeight / 2
+        device.swipe(width * 4 / 5, y, width / 5, y, SWIPE_STEPS)
+        device.waitForIdle()
+        device.swipe(width / 5, y, width * 4 / 5, y, SWIPE_STEPS)
+        device.waitForIdle()
+    }
+
+    /** Opens recents and goes back home. */
+    fun MacrobenchmarkScope.openRecents() {
+        device.pressRecentApps()
+        device.waitForIdle()
+        goHome()
+    }
+
+    private fun MacrobenchmarkScope.findFolderIcon(): UiObject2? = device.findObject(folderIcon())
+
+    private fun MacrobenchmarkScope.folderIcon(): BySelector =
+        By.descStartsWith(FOLDER_DESCRIPTION_PREFIX).pkg(packageName)
+
+    private fun MacrobenchmarkScope.launcherRes(id: String): BySelector = By.res(packageName, id)
+
+    // From the launcher's English strings, which the emulator images use by default
+    private const val WIDGETS_OPTION = "Widgets"
+    private const val FUZZY_SEARCH_OPTION = "Fuzzy search"
+
+    // Opens the settings of the app search provider, see PreferenceActivity.createIntent
+    private const val PREFERENCE_ACTIVITY = "app.lawnchair.ui.preferences.PreferenceActivity"
+    private const val EXTRA_DESTINATION_ROUTE = "app.lawnchair.ui.preferences.DESTINATION_ROUTE"
+    private const val APPS_SEARCH_ROUTE =
+        "'{\"type\":\"app.lawnchair.ui.preferences.navigation.SearchProviderPreference\",\"id\":\"APPS\"}'"
+    private const val FOLDER_DESCRIPTION_PREFIX = "Folder:"
+}
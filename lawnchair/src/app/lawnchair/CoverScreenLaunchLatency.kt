@@ -0,0 +1,48 @@
+package app.lawnchair
+
+import java.io.PrintWriter
+
+/**
+ * Records how long the cover-screen launcher takes from the triggering event to
+ * `startActivity`, in a fixed-size ring buffer so recording never allocates.
+ *
+ * Not thread-safe; it's only used on the main thread.
+ */
+internal class CoverScreenLaunchLatency(capacity: Int = DEFAULT_CAPACITY) {
+
+    private val samples = LongArray(capacity)
+    private var count = 0
+    private var next = 0
+    private var total = 0L
+
+    fun record(latencyMs: Long) {
+        samples[next] = latencyMs
+        next = (next + 1) % samples.size
+        if (count < samples.size) count++
+        total++
+    }
+
+    fun dump(prefix: String, writer: PrintWriter) {
+        writer.println("${prefix}Cover screen launch latency (event to startActivity):")
+        if (count == 0) {
+            writer.println("$prefix  no launches recorded")
+            return
+        }
+        val sorted = samples.copyOf(count).also { it.sort() }
+        writer.println("$prefix  launches=$total, window=$count")
+        writer.println(
+            "$prefix  p50=${percentile(sorted, 50)}ms p90=${percentile(sorted, 90)}ms " +
+                "p99=${percentile(sorted, 99)}ms max=${sorted.last()}ms",
+        )
+    }
+
+    private fun percentile(sorted: LongArray, percent: Int): Long {
+        // Nearest-rank percentile
+        val rank = (percent * sorted.size + 99) / 100
+        return sorted[(rank - 1).coerceIn(0, sorted.size - 1)]
+    }
+
+    companion object {
+        private const val DEFAULT_CAPACITY = 256
+    }
+}
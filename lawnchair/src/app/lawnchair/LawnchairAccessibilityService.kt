@@ -24,25 +24,69 @@ import android.content.Context
 import android.content.Intent
 import android.content.IntentFilter
 import android.hardware.display.DisplayManager
+import android.os.Handler
+import android.os.Looper
+import android.os.SystemClock
+import android.text.TextUtils
 import android.util.Log
 import android.view.Display
 import android.view.KeyEvent
 import android.view.accessibility.AccessibilityEvent
 import app.lawnchair.preferences2.PreferenceManager2
-import com.patrykmichalik.opto.core.firstBlocking
+import app.lawnchair.preferences2.subscribeBlocking
+import java.io.FileDescriptor
+import java.io.PrintWriter
+import kotlinx.coroutines.MainScope
+import kotlinx.coroutines.cancel
 
+/**
+ * Brings the launcher to the front of the cover screen when the system's cover home shows up.
+ *
+ * Events are handled on the main thread. Everything the launch decision depends on (whether
+ * the main display is off, the cover screen preferences and the current foreground package) is
+ * kept up to date from listeners, so handling an event doesn't allocate, block or query system
+ * services.
+ */
 class LawnchairAccessibilityService : AccessibilityService() {
 
     private var lastLaunchTime = 0L
     private var lastForegroundPackage: String? = null
 
+    // Whether the launcher is being moved to the cover screen in the background, in which case
+    // its window isn't in the foreground as far as the auto-launch is concerned.
+    private var isEnteringStandby = false
+
     // Recent packages on the cover screen, most recent first (excluding this launcher).
     private val recentPackages = ArrayDeque<String>()
 
+    private val handler = Handler(Looper.getMainLooper())
+    private val scope = MainScope()
+    private val launchLatency = CoverScreenLaunchLatency()
+
+    private var displayManager: DisplayManager? = null
+    private var isCoverScreen = false
+    private var isFolded = false
+    private var autoLaunch = false
+    private var stayOnSamsungHome = true
+
+    private val displayListener = object : DisplayManager.DisplayListener {
+        override fun onDisplayAdded(displayId: Int) {}
+
+        override fun onDisplayRemoved(displayId: Int) {}
+
+        override fun onDisplayChanged(displayId: Int) {
+            if (displayId == Display.DEFAULT_DISPLAY || displayId == COVER_DISPLAY_ID) {
+                updateCoverScreen()
+            }
+        }
+    }
+
     private val screenReceiver = object : BroadcastReceiver() {
         override fun onReceive(context: Context, intent: Intent) {
             if (intent.action == Intent.ACTION_USER_PRESENT) {
-                Log.d(TAG, "ACTION_USER_PRESENT received")
+                if (DEBUG) Log.d(TAG, "ACTION_USER_PRESENT received")
+                // The broadcast doesn't say when the device was unlocked, so this launch is
+                // left out of the latency
                 launchIfCoverScreen()
             }
         }
@@ -61,6 +105,15 @@ class LawnchairAccessibilityService : AccessibilityService() {
         }
         lawnchairApp.accessibilityService = this
 
+        val prefs = PreferenceManager2.getInstance(this)
+        prefs.coverScreenAutoLaunch.subscribeBlocking(scope) { autoLaunch = it }
+        prefs.coverScreenSamsungHomeToggle.subscribeBlocking(scope) { stayOnSamsungHome = it }
+
+        displayManager = (getSystemService(DISPLAY_SERVICE) as DisplayManager).also {
+            it.registerDisplayListener(displayListener, handler)
+        }
+        updateCoverScreen()
+
         registerReceiver(
             screenReceiver,
             IntentFilter(Intent.ACTION_USER_PRESENT),
@@ -69,6 +122,8 @@ class LawnchairAccessibilityService : AccessibilityService() {
 
     override fun onDestroy() {
         lawnchairApp.accessibilityService = null
+        scope.cancel()
+        displayManager?.unregisterDisplayListener(displayListener)
         try {
             unregisterReceiver(screenReceiver)
         } catch (_: Exception) {}
@@ -85,60 +140,62 @@ class LawnchairAccessibilityService : AccessibilityService() {
     override fun onKeyEvent(event: KeyEvent): Boolean {
         if (event.keyCode != KeyEvent.KEYCODE_HOME) return false
         if (event.action != KeyEvent.ACTION_UP) return false
-        if (!isCoverScreen()) return false
-
-        val prefs = PreferenceManager2.getInstance(this) ?: return false
-        if (!prefs.coverScreenAutoLaunch.firstBlocking()) return false
+        if (!isCoverScreen || !autoLaunch) return false
 
         val fg = lastForegroundPackage
         if (fg == null || fg == packageName) return false
 
-        Log.d(TAG, "  -> Home key intercepted from $fg, launching Lawnchair directly")
-        launchLawnchair()
+        if (DEBUG) Log.d(TAG, "  -> Home key intercepted from $fg, launching Lawnchair directly")
+        launchLawnchair(event.eventTime)
         return true
     }
 
     override fun onAccessibilityEvent(event: AccessibilityEvent?) {
         if (event == null) return
         if (event.eventType != AccessibilityEvent.TYPE_WINDOW_STATE_CHANGED) return
-        if (!isCoverScreen()) return
-
-        val source = event.packageName?.toString()
-        val className = event.className?.toString()
-        Log.d(TAG, "[STATE_CHANGED] pkg=$source class=$className lastFg=$lastForegroundPackage")
+        if (!isCoverScreen) return
 
-        // RecentsActivity is not Samsung's home — don't kill it when it appears.
-        val isSamsungRecents = source == SAMSUNG_LAUNCHER_PKG && className == SAMSUNG_RECENTS_CLASS
-        val isCoverHome = !isSamsungRecents && (
-            source == SAMSUNG_LAUNCHER_PKG ||
-                className == SAMSUNG_COVER_HOME_CLASS ||
-                source == "com.samsung.android.app.aodservice"
-            )
+        val source = event.packageName
+        val className = event.className
+        if (DEBUG) Log.d(TAG, "[STATE_CHANGED] pkg=$source class=$className lastFg=$lastForegroundPackage")
 
-        if (isCoverHome) {
+        if (isCoverHome(source, className)) {
             // Only auto-launch when the preference is enabled.
-            val prefs = PreferenceManager2.getInstance(this) ?: return
-            if (!prefs.coverScreenAutoLaunch.firstBlocking()) return
+            if (!autoLaunch) return
 
-            if (lastForegroundPackage == packageName &&
-                prefs.coverScreenSamsungHomeToggle.firstBlocking()) {
-                Log.d(TAG, "  -> User left Lawnchair, staying on Samsung home")
+            if (lastForegroundPackage == packageName && stayOnSamsungHome) {
+                if (DEBUG) Log.d(TAG, "  -> User left Lawnchair, staying on Samsung home")
             } else {
-                Log.d(TAG, "  -> User left app ($lastForegroundPackage), launching Lawnchair")
-                launchLawnchair()
+                if (DEBUG) Log.d(TAG, "  -> User left app ($lastForegroundPackage), launching Lawnchair")
+                launchLawnchair(event.eventTime)
             }
-        } else {
+        } else if (isEnteringStandby && TextUtils.equals(source, packageName)) {
+            if (DEBUG) Log.d(TAG, "  -> Standby launch, not tracking foreground")
+        } else if (source != null && !TextUtils.equals(source, SYSTEMUI_PKG)) {
+            isEnteringStandby = false
             // Track foreground package for recents panel — regardless of autoLaunch pref.
-            if (source != null && source != "com.android.systemui") {
-                lastForegroundPackage = source
-                if (source != packageName) {
-                    addRecentPackage(source)
+            // Window state changes within the same app are frequent, so only a new package
+            // is converted and recorded.
+            if (!TextUtils.equals(source, lastForegroundPackage)) {
+                val pkg = source.toString()
+                lastForegroundPackage = pkg
+                if (pkg != packageName) {
+                    addRecentPackage(pkg)
                 }
+                if (DEBUG) Log.d(TAG, "  -> Tracking foreground: $pkg")
             }
-            Log.d(TAG, "  -> Tracking foreground: $source")
         }
     }
 
+    private fun isCoverHome(source: CharSequence?, className: CharSequence?): Boolean {
+        // RecentsActivity is not Samsung's home — don't kill it when it appears.
+        val isSamsungLauncher = TextUtils.equals(source, SAMSUNG_LAUNCHER_PKG)
+        if (isSamsungLauncher && TextUtils.equals(className, SAMSUNG_RECENTS_CLASS)) return false
+        return isSamsungLauncher ||
+            TextUtils.equals(className, SAMSUNG_COVER_HOME_CLASS) ||
+            TextUtils.equals(source, SAMSUNG_AOD_PKG)
+    }
+
     private fun addRecentPackage(pkg: String) {
         recentPackages.remove(pkg)
         recentPackages.addFirst(pkg)
@@ -148,30 +205,57 @@ class LawnchairAccessibilityService : AccessibilityService() {
     }
 
     private fun launchIfCoverScreen() {
-        if (!isCoverScreen()) return
-
-        val prefs = PreferenceManager2.getInstance(this) ?: return
-        if (!prefs.coverScreenAutoLaunch.firstBlocking()) return
+        if (!isCoverScreen || !autoLaunch) return
 
-        launchLawnchair()
+        launchLawnchair(eventTime = null)
     }
 
-    private fun launchLawnchair() {
-        val now = System.currentTimeMillis()
+    /**
+     * @param eventTime when the triggering event happened, in [SystemClock.uptimeMillis] time,
+     * or null if unknown, in which case the launch latency isn't recorded
+     */
+    private fun launchLawnchair(eventTime: Long?) {
+        val now = SystemClock.uptimeMillis()
         val elapsed = now - lastLaunchTime
         if (elapsed < LAUNCH_COOLDOWN_MS) {
-            Log.d(TAG, "  -> COOLDOWN: ${elapsed}ms < ${LAUNCH_COOLDOWN_MS}ms, skipping")
+            if (DEBUG) Log.d(TAG, "  -> COOLDOWN: ${elapsed}ms < ${LAUNCH_COOLDOWN_MS}ms, skipping")
             return
         }
         lastLaunchTime = now
+        isEnteringStandby = false
+
+        if (DEBUG) Log.d(TAG, ">>> LAUNCHING Lawnchair on cover screen!")
+        if (eventTime == null) {
+            startOnCoverScreen {}
+            return
+        }
+        startOnCoverScreen { putExtra(LawnchairLauncher.EXTRA_COVER_SCREEN_EVENT_TIME, eventTime) }
+        launchLatency.record(SystemClock.uptimeMillis() - eventTime)
+    }
+
+    /**
+     * Moves the launcher task to the cover screen in the background when the device is folded,
+     * so that bringing it to the front once the cover home shows up only reorders the task,
+     * without a configuration change, re-inflation or rebind.
+     */
+    private fun enterStandby() {
+        // Without auto-launch, the launcher is never brought to the front of the cover screen
+        if (!autoLaunch) return
+        if (LawnchairLauncher.instance?.dragLayer?.display?.displayId == COVER_DISPLAY_ID) return
+
+        if (DEBUG) Log.d(TAG, ">>> Device folded, preparing Lawnchair on cover screen")
+        isEnteringStandby = true
+        startOnCoverScreen { putExtra(LawnchairLauncher.EXTRA_COVER_SCREEN_STANDBY, true) }
+    }
 
-        Log.d(TAG, ">>> LAUNCHING Lawnchair on cover screen!")
+    private inline fun startOnCoverScreen(extras: Intent.() -> Unit) {
         val intent = Intent(this, LawnchairLauncher::class.java).apply {
             addFlags(
                 Intent.FLAG_ACTIVITY_NEW_TASK or
                     Intent.FLAG_ACTIVITY_REORDER_TO_FRONT or
                     Intent.FLAG_ACTIVITY_NO_ANIMATION,
             )
+            extras()
         }
         // Explicitly target display 1 (cover screen) so the singleTask lookup
         // runs against that display and reuses the existing task rather than
@@ -182,18 +266,35 @@ class LawnchairAccessibilityService : AccessibilityService() {
         startActivity(intent, options.toBundle())
     }
 
-    private fun isCoverScreen(): Boolean {
-        val displayManager = getSystemService(DISPLAY_SERVICE) as DisplayManager
-        val mainDisplay = displayManager.getDisplay(Display.DEFAULT_DISPLAY) ?: return false
-        return mainDisplay.state == Display.STATE_OFF
+    private fun updateCoverScreen() {
+        val mainDisplay = displayManager?.getDisplay(Display.DEFAULT_DISPLAY)
+        val coverDisplay = displayManager?.getDisplay(COVER_DISPLAY_ID)
+        isCoverScreen = mainDisplay != null && mainDisplay.state == Display.STATE_OFF
+        // Locking the unfolded device also turns the main display off, but leaves the cover
+        // display off too
+        val wasFolded = isFolded
+        isFolded = isCoverScreen && coverDisplay != null && coverDisplay.state == Display.STATE_ON
+        if (isFolded && !wasFolded) {
+            enterStandby()
+        }
+    }
+
+    override fun dump(fd: FileDescriptor?, writer: PrintWriter, args: Array<out String>?) {
+        writer.println("LawnchairAccessibilityService:")
+        writer.println("  isCoverScreen=$isCoverScreen isFolded=$isFolded autoLaunch=$autoLaunch stayOnSamsungHome=$stayOnSamsungHome")
+        writer.println("  lastForegroundPackage=$lastForegroundPackage")
+        launchLatency.dump("  ", writer)
     }
 
     companion object {
         private const val TAG = "LawnchairCoverScreen"
+        private const val DEBUG = false
         private const val LAUNCH_COOLDOWN_MS = 1000L
         private const val MAX_RECENT_APPS = 10
         private const val COVER_DISPLAY_ID = 1
+        private const val SYSTEMUI_PKG = "com.android.systemui"
         private const val SAMSUNG_LAUNCHER_PKG = "com.sec.android.app.launcher"
+        private const val SAMSUNG_AOD_PKG = "com.samsung.android.app.aodservice"
         private const val SAMSUNG_COVER_HOME_CLASS = "com.android.systemui.subscreen.SubHomeActivity"
         private const val SAMSUNG_RECENTS_CLASS = "com.android.quickstep.RecentsActivity"
     }
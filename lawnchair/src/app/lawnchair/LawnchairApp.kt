@@ -40,8 +40,11 @@ import androidx.compose.ui.res.stringResource
 import androidx.compose.ui.unit.dp
 import androidx.core.content.FileProvider
 import app.lawnchair.backup.LawnchairBackup
+import app.lawnchair.flowerpot.AppCategoryIndex
 import app.lawnchair.flowerpot.Flowerpot
+import app.lawnchair.font.FontManager
 import app.lawnchair.preferences.PreferenceManager
+import app.lawnchair.search.index.SearchIndexManager
 import app.lawnchair.ui.ModalBottomSheetContent
 import app.lawnchair.ui.preferences.destinations.openAppInfo
 import app.lawnchair.util.restartLauncher
@@ -98,6 +101,9 @@ class LawnchairApp : Application() {
 
     fun onLauncherAppStateCreated() {
         registerActivityLifecycleCallbacks(activityHandler)
+        SearchIndexManager.getInstance(this).start()
+        AppCategoryIndex.getInstance(this).start()
+        FontManager.INSTANCE.get(this).preloadFonts()
     }
 
     fun restart(recreateLauncher: Boolean = true) {
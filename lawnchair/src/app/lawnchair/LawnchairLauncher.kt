@@ -57,6 +57,7 @@ import com.android.launcher3.LauncherAppState
 import com.android.launcher3.LauncherState
 import com.android.launcher3.R
 import com.android.launcher3.Utilities
+import com.android.launcher3.logging.StartupLatencyLogger
 import com.android.launcher3.model.data.ItemInfo
 import com.android.launcher3.popup.SystemShortcut
 import com.android.launcher3.shortcuts.DeepShortcutView
@@ -152,6 +153,9 @@ class LawnchairLauncher : QuickstepLauncher() {
 
     val gestureController by unsafeLazy { GestureController(this) }
 
+    private var coverScreenRelaunchLogger: StartupLatencyLogger = StartupLatencyLogger.NoOpLogger
+    private var coverScreenStandby = false
+
     override fun onCreate(savedInstanceState: Bundle?) {
         layoutInflater.factory2 = LawnchairLayoutFactory(this)
         super.onCreate(savedInstanceState)
@@ -245,6 +249,46 @@ class LawnchairLauncher : QuickstepLauncher() {
         reloadIconsIfNeeded()
 
         AppDatabase.INSTANCE.get(this).checkpointSync()
+
+        handleCoverScreenIntent(intent, isNewIntent = false)
+    }
+
+    override fun onNewIntent(intent: Intent) {
+        super.onNewIntent(intent)
+        handleCoverScreenIntent(intent, isNewIntent = true)
+    }
+
+    /**
+     * Handles the launches of [LawnchairAccessibilityService] on the cover screen.
+     *
+     * A standby launch moves the task to the cover screen while the device folds, so that the
+     * cover device profile is applied, the workspace pages are inflated and the model is bound
+     * for the cover screen, and then hides it again. Later launches on the cover screen only
+     * reorder the task, and the time from the event that triggered them until the next frame is
+     * logged. A launch that creates the activity is a cold start, which isn't logged here.
+     */
+    private fun handleCoverScreenIntent(intent: Intent, isNewIntent: Boolean) {
+        if (intent.getBooleanExtra(EXTRA_COVER_SCREEN_STANDBY, false)) {
+            // Only handled once, not again when the activity is recreated
+            setIntent(Intent(intent).apply { removeExtra(EXTRA_COVER_SCREEN_STANDBY) })
+            // Already in front, so there is nothing to prepare or hide
+            if (hasBeenResumed()) return
+            coverScreenStandby = true
+            // Nothing is shown while preparing, the task moves back once it has been laid out
+            dragLayer.alpha = 0f
+            return
+        }
+        // A standby that never resumed must not hide the launcher on this launch
+        if (coverScreenStandby) {
+            coverScreenStandby = false
+            dragLayer.alpha = 1f
+        }
+        val eventTime = intent.getLongExtra(EXTRA_COVER_SCREEN_EVENT_TIME, 0L)
+        if (isNewIntent && eventTime != 0L) {
+            // Only one relaunch trace section can be open at a time
+            (coverScreenRelaunchLogger as? StartupLatencyLogger.CoverScreenRelaunchLogger)?.cancel()
+            coverScreenRelaunchLogger = StartupLatencyLogger.getCoverScreenRelaunchLogger(this, eventTime)
+        }
     }
 
     override fun collectStateHandlers(out: MutableList<StateHandler<LauncherState>>) {
@@ -439,6 +483,14 @@ class LawnchairLauncher : QuickstepLauncher() {
         super.onResume()
         restartIfPending()
 
+        if (coverScreenStandby) {
+            coverScreenStandby = false
+            // Posted so that the layout for the cover screen happens first
+            dragLayer.post { moveTaskToBack(true) }
+            return
+        }
+        dragLayer.alpha = 1f
+
         dragLayer.viewTreeObserver.addOnDrawListener(
             object : ViewTreeObserver.OnDrawListener {
                 private var handled = false
@@ -452,12 +504,21 @@ class LawnchairLauncher : QuickstepLauncher() {
                     dragLayer.post {
                         dragLayer.viewTreeObserver.removeOnDrawListener(this)
                     }
+                    coverScreenRelaunchLogger =
+                        coverScreenRelaunchLogger.finishLogs(workspace.childCount, true)
                     depthController
                 }
             },
         )
     }
 
+    override fun onStop() {
+        super.onStop()
+        // A standby launch can stop without resuming, e.g. under the keyguard
+        coverScreenStandby = false
+        dragLayer.alpha = 1f
+    }
+
     override fun onDestroy() {
         super.onDestroy()
         // Only actually closes if required, safe to call if not enabled
@@ -498,6 +559,12 @@ class LawnchairLauncher : QuickstepLauncher() {
         private const val FLAG_RECREATE = 1 shl 0
         private const val FLAG_RESTART = 1 shl 1
 
+        /** Uptime of the event that made [LawnchairAccessibilityService] launch the launcher. */
+        const val EXTRA_COVER_SCREEN_EVENT_TIME = "app.lawnchair.extra.COVER_SCREEN_EVENT_TIME"
+
+        /** Set when [LawnchairAccessibilityService] prepares the launcher on the cover screen. */
+        const val EXTRA_COVER_SCREEN_STANDBY = "app.lawnchair.extra.COVER_SCREEN_STANDBY"
+
         var sRestartFlags = 0
 
         val instance get() = LawnchairApp.launcher
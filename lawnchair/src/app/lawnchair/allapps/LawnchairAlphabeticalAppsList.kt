@@ -7,6 +7,7 @@ import androidx.lifecycle.LifecycleOwner
 import androidx.lifecycle.lifecycleScope
 import app.lawnchair.data.folder.model.FolderOrderUtils
 import app.lawnchair.data.folder.model.FolderViewModel
+import app.lawnchair.flowerpot.AppCategoryIndex
 import app.lawnchair.launcher
 import app.lawnchair.preferences.PreferenceManager
 import app.lawnchair.preferences2.PreferenceManager2
@@ -23,6 +24,9 @@ import com.android.launcher3.model.data.ItemInfo
 import com.android.launcher3.views.ActivityContext
 import com.patrykmichalik.opto.core.onEach
 import java.util.function.Predicate
+import kotlinx.coroutines.flow.drop
+import kotlinx.coroutines.flow.launchIn
+import kotlinx.coroutines.flow.onEach
 
 @Suppress("SYNTHETIC_PROPERTY_WITHOUT_JAVA_ORIGIN")
 class LawnchairAlphabeticalAppsList<T>(
@@ -57,6 +61,14 @@ class LawnchairAlphabeticalAppsList<T>(
             Log.w(TAG, "Failed to initialize hidden apps", t)
         }
         observeFolders()
+        observeCategories()
+    }
+
+    private fun observeCategories() {
+        // Packages looked up before they were categorized are uncategorized until then
+        AppCategoryIndex.getInstance(context).updates.drop(1).onEach {
+            if (!prefs.drawerList.get()) onAppsUpdated()
+        }.launchIn(context.launcher.lifecycleScope)
     }
 
     private fun observeFolders() {
@@ -125,6 +137,8 @@ class LawnchairAlphabeticalAppsList<T>(
     }
 
     override fun onIdpChanged(modelPropertiesChanged: Boolean) {
+        // The grid and icon size apply to every item, not only the ones that changed
+        invalidateBoundItems()
         onAppsUpdated()
     }
 }
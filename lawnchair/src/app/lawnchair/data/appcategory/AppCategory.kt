@@ -0,0 +1,25 @@
+package app.lawnchair.data.appcategory
+
+import androidx.room.Entity
+
+/**
+ * The drawer category of a package installed for the user with the serial number [userSerial].
+ *
+ * [category] is one of [CATEGORY_SYSTEM], [CATEGORY_GOOGLE], [CATEGORY_OTHER] or the name of a
+ * Flowerpot. The row is stale once the package's [lastUpdateTime] or the launcher's own
+ * [rulesVersion] changes.
+ */
+@Entity(tableName = "AppCategories", primaryKeys = ["packageName", "userSerial"])
+data class AppCategory(
+    val packageName: String,
+    val userSerial: Long,
+    val lastUpdateTime: Long,
+    val rulesVersion: Long,
+    val category: String,
+) {
+    companion object {
+        const val CATEGORY_SYSTEM = "@system"
+        const val CATEGORY_GOOGLE = "@google"
+        const val CATEGORY_OTHER = ""
+    }
+}
@@ -0,0 +1,22 @@
+package app.lawnchair.data.appcategory
+
+import androidx.room.Dao
+import androidx.room.Query
+import androidx.room.RawQuery
+import androidx.room.Upsert
+import androidx.sqlite.db.SupportSQLiteQuery
+
+@Dao
+interface AppCategoryDao {
+    @Query("SELECT * FROM AppCategories")
+    suspend fun getAll(): List<AppCategory>
+
+    @Upsert
+    suspend fun upsert(items: List<AppCategory>)
+
+    @Query("DELETE FROM AppCategories WHERE userSerial = :userSerial AND packageName IN (:packageNames)")
+    suspend fun delete(packageNames: List<String>, userSerial: Long)
+
+    @RawQuery
+    suspend fun checkpoint(supportSQLiteQuery: SupportSQLiteQuery): Int
+}
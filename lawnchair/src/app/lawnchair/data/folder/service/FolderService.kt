@@ -1,6 +1,7 @@
 ﻿package app.lawnchair.data.folder.service
 
 import android.content.Context
+import android.content.pm.LauncherActivityInfo
 import android.content.pm.LauncherApps
 import android.util.Log
 import app.lawnchair.data.AppDatabase
@@ -14,12 +15,12 @@ import com.android.launcher3.dagger.LauncherAppSingleton
 import com.android.launcher3.model.data.AppInfo
 import com.android.launcher3.model.data.FolderInfo
 import com.android.launcher3.pm.UserCache
+import com.android.launcher3.util.ComponentKey
 import com.android.launcher3.util.DaggerSingletonObject
 import com.android.launcher3.util.SafeCloseable
 import javax.inject.Inject
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
-import kotlinx.coroutines.flow.firstOrNull
 import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.withContext
 
@@ -35,10 +36,8 @@ class FolderService @Inject constructor(
     private val converters = Converters()
 
     fun getFoldersFlow(): Flow<List<FolderInfo>> {
-        return folderDao.getAllFolders().map { folderEntities ->
-            folderEntities.mapNotNull { folderEntity ->
-                getFolderInfo(folderEntity.id, true)
-            }
+        return folderDao.getAllFolders().map {
+            loadAllFolders()
         }
     }
 
@@ -65,11 +64,43 @@ class FolderService @Inject constructor(
 
     suspend fun getFolderInfo(folderId: Int, hasId: Boolean = false): FolderInfo? = withContext(Dispatchers.Default) {
         folderDao.getFolderWithItems(folderId)?.let {
-            mapToFolderInfo(it, hasId)
+            mapToFolderInfo(it, hasId, loadAppIndex())
+        }
+    }
+
+    /**
+     * Loads all folders with their items in one query, and resolves all items against a single
+     * index of the launcher activities.
+     */
+    private suspend fun loadAllFolders(): List<FolderInfo> = withContext(Dispatchers.Default) {
+        val folders = folderDao.getAllFoldersWithItems()
+        if (folders.isEmpty()) return@withContext emptyList()
+        val appIndex = loadAppIndex()
+        folders.mapNotNull { mapToFolderInfo(it, true, appIndex) }
+    }
+
+    /**
+     * Returns the activities that can be shown in folders, by component key. This takes one
+     * activity list query per profile.
+     */
+    private fun loadAppIndex(): Map<ComponentKey, LauncherActivityInfo> {
+        if (launcherApps == null) return emptyMap()
+        val index = HashMap<ComponentKey, LauncherActivityInfo>()
+        userCache.userProfiles.forEach { user ->
+            launcherApps.getActivityList(null, user).forEach {
+                if (appFilter.shouldShowApp(it.componentName)) {
+                    index.putIfAbsent(ComponentKey(it.componentName, it.user), it)
+                }
+            }
         }
+        return index
     }
 
-    private fun mapToFolderInfo(folderWithItems: FolderWithItems, hasId: Boolean): FolderInfo? {
+    private fun mapToFolderInfo(
+        folderWithItems: FolderWithItems,
+        hasId: Boolean,
+        appIndex: Map<ComponentKey, LauncherActivityInfo>,
+    ): FolderInfo? {
         return try {
             val domainFolderInfo = FolderInfo().apply {
                 // if no id, launcher automatically creates an id for this
@@ -78,9 +109,7 @@ class FolderService @Inject constructor(
             }
 
             folderWithItems.items.sortedBy { it.rank }.forEach { itemEntity ->
-                // Consider caching toItemInfo results if componentKey lookups are slow
-                // and items don't change frequently without folder data changing
-                toItemInfo(itemEntity.componentKey)?.let { appInfo ->
+                toItemInfo(itemEntity.componentKey, appIndex)?.let { appInfo ->
                     domainFolderInfo.add(appInfo)
                 }
             }
@@ -91,24 +120,15 @@ class FolderService @Inject constructor(
         }
     }
 
-    private fun toItemInfo(componentKey: String?): AppInfo? {
-        if (launcherApps != null) {
-            return userCache.userProfiles.asSequence()
-                .flatMap { launcherApps.getActivityList(null, it) }
-                .filter { appFilter.shouldShowApp(it.componentName) }
-                .map { AppInfo(context, it, it.user) }
-                .filter { converters.fromComponentKey(it.componentKey) == componentKey }
-                .firstOrNull()
-        }
-        return null
+    private fun toItemInfo(componentKey: String?, appIndex: Map<ComponentKey, LauncherActivityInfo>): AppInfo? {
+        val key = converters.toComponentKey(componentKey) ?: return null
+        val activityInfo = appIndex[key] ?: return null
+        return AppInfo(context, activityInfo, activityInfo.user)
     }
 
     suspend fun getAllFolders(): List<FolderInfo> = withContext(Dispatchers.Main) {
         try {
-            val folderEntities = folderDao.getAllFolders().firstOrNull() ?: emptyList()
-            folderEntities.mapNotNull { folderEntity ->
-                getFolderInfo(folderEntity.id, true)
-            }
+            loadAllFolders()
         } catch (e: Exception) {
             Log.e("FolderService", "Failed to get all folders", e)
             emptyList()
@@ -0,0 +1,86 @@
+package app.lawnchair.data.searchindex
+
+import androidx.room.Dao
+import androidx.room.Query
+import androidx.room.RawQuery
+import androidx.room.Transaction
+import androidx.room.Upsert
+import androidx.sqlite.db.SupportSQLiteQuery
+
+// Stays well below SQLite's limit of 999 bound arguments per statement
+private const val MAX_QUERY_ARGS = 500
+
+data class SearchIndexKey(val id: Long, val itemId: String)
+
+@Dao
+interface SearchIndexDao {
+    // Rows must carry their existing id so that upserts update them in place, which keeps the
+    // FTS content triggers firing. Use commitBatch to fill in the ids.
+    @Upsert
+    suspend fun upsert(items: List<SearchIndexItem>)
+
+    @Query("SELECT id, itemId FROM SearchIndex WHERE kind = :kind AND itemId IN (:itemIds)")
+    suspend fun getKeys(kind: String, itemIds: List<String>): List<SearchIndexKey>
+
+    @Query("SELECT itemId FROM SearchIndex WHERE kind IN (:kinds)")
+    suspend fun getItemIds(kinds: List<String>): List<String>
+
+    @Query("DELETE FROM SearchIndex WHERE kind IN (:kinds) AND itemId IN (:itemIds)")
+    suspend fun delete(kinds: List<String>, itemIds: List<String>)
+
+    @Query("DELETE FROM SearchIndex WHERE kind IN (:kinds)")
+    suspend fun deleteAll(kinds: List<String>)
+
+    @Query(
+        """
+        SELECT SearchIndex.* FROM SearchIndex
+        JOIN SearchIndexFts ON SearchIndex.rowid = SearchIndexFts.rowid
+        WHERE SearchIndexFts MATCH :match AND SearchIndex.kind IN (:kinds)
+        ORDER BY SearchIndex.dateModified DESC
+        LIMIT :limit
+        """,
+    )
+    suspend fun search(match: String, kinds: List<String>, limit: Int): List<SearchIndexItem>
+
+    @Query("SELECT * FROM SearchIndexState")
+    suspend fun getStates(): List<SearchIndexState>
+
+    @Query("SELECT * FROM SearchIndexState WHERE source = :source")
+    suspend fun getState(source: String): SearchIndexState?
+
+    @Upsert
+    suspend fun setState(state: SearchIndexState)
+
+    /**
+     * Writes [items], removes the [removedItemIds] of [removedKinds] and saves [state] in a
+     * single transaction, so that an interrupted build resumes from a consistent cursor.
+     */
+    @Transaction
+    suspend fun commitBatch(
+        items: List<SearchIndexItem>,
+        state: SearchIndexState,
+        removedKinds: List<String> = emptyList(),
+        removedItemIds: List<String> = emptyList(),
+    ) {
+        removedItemIds.chunked(MAX_QUERY_ARGS).forEach { delete(removedKinds, it) }
+        items.groupBy { it.kind }.forEach { (kind, group) ->
+            group.chunked(MAX_QUERY_ARGS).forEach { chunk ->
+                val ids = getKeys(kind, chunk.map { it.itemId }).associate { it.itemId to it.id }
+                upsert(chunk.map { it.copy(id = ids[it.itemId] ?: 0) })
+            }
+        }
+        setState(state)
+    }
+
+    @Transaction
+    suspend fun clear() {
+        deleteAll(listOf(SearchIndexItem.KIND_CONTACT) + SearchIndexItem.FILE_KINDS)
+        resetStates()
+    }
+
+    @Query("DELETE FROM SearchIndexState")
+    suspend fun resetStates()
+
+    @RawQuery
+    suspend fun checkpoint(supportSQLiteQuery: SupportSQLiteQuery): Int
+}
@@ -0,0 +1,36 @@
+package app.lawnchair.data.searchindex
+
+import androidx.room.Database
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import app.lawnchair.util.MainThreadInitializedObject
+
+/**
+ * Holds the search index, apart from [app.lawnchair.data.AppDatabase] so that backups, which
+ * include that database, don't carry contacts and file paths. The index is rebuilt from its
+ * sources, so it isn't backed up at all.
+ */
+@Database(
+    entities = [
+        SearchIndexItem::class,
+        SearchIndexFts::class,
+        SearchIndexState::class,
+    ],
+    version = 1,
+)
+abstract class SearchIndexDatabase : RoomDatabase() {
+
+    abstract fun searchIndexDao(): SearchIndexDao
+
+    companion object {
+        private const val DB_FILE_NAME = "search_index"
+
+        val INSTANCE = MainThreadInitializedObject { context ->
+            Room.databaseBuilder(
+                context,
+                SearchIndexDatabase::class.java,
+                DB_FILE_NAME,
+            ).fallbackToDestructiveMigration(dropAllTables = true).build()
+        }
+    }
+}
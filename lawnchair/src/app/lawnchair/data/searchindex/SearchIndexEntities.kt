@@ -0,0 +1,60 @@
+package app.lawnchair.data.searchindex
+
+import androidx.room.Entity
+import androidx.room.Fts4
+import androidx.room.FtsOptions
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+/**
+ * A contact or file mirrored from its content provider so that local search can answer
+ * token-prefix queries from [SearchIndexFts] instead of a LIKE scan.
+ */
+@Entity(
+    tableName = "SearchIndex",
+    indices = [Index(value = ["kind", "itemId"], unique = true)],
+)
+data class SearchIndexItem(
+    @PrimaryKey(autoGenerate = true) val id: Long = 0,
+    val kind: String,
+    val itemId: String,
+    val title: String,
+    val detail: String,
+    val label: String = "",
+    val uri: String = "",
+    val mimeType: String? = null,
+    val size: Long = 0,
+    val dateModified: Long = 0,
+    val extra: String = "",
+) {
+    companion object {
+        val FILE_KINDS = listOf(KIND_FILE, KIND_FOLDER)
+
+        const val KIND_CONTACT = "contact"
+        const val KIND_FILE = "file"
+        const val KIND_FOLDER = "folder"
+    }
+}
+
+@Fts4(contentEntity = SearchIndexItem::class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "SearchIndexFts")
+data class SearchIndexFts(
+    val title: String,
+    val detail: String,
+)
+
+/**
+ * Progress of the index for one source, so that building can resume where it stopped.
+ *
+ * @param generation The source generation (or timestamp) the index is up to date with.
+ * @param cursor The last source id indexed by an unfinished full build.
+ * @param reconciledAt When the index was last checked for items the source no longer has.
+ */
+@Entity(tableName = "SearchIndexState")
+data class SearchIndexState(
+    @PrimaryKey val source: String,
+    val generation: Long = 0,
+    val cursor: Long = 0,
+    val complete: Boolean = false,
+    val reconciledAt: Long = 0,
+)
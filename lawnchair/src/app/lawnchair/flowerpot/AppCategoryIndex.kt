@@ -0,0 +1,249 @@
+package app.lawnchair.flowerpot
+
+import android.content.Context
+import android.content.pm.ApplicationInfo
+import android.content.pm.LauncherApps
+import android.os.UserHandle
+import android.util.Log
+import app.lawnchair.data.AppDatabase
+import app.lawnchair.data.appcategory.AppCategory
+import app.lawnchair.data.appcategory.AppCategory.Companion.CATEGORY_GOOGLE
+import app.lawnchair.data.appcategory.AppCategory.Companion.CATEGORY_OTHER
+import app.lawnchair.data.appcategory.AppCategory.Companion.CATEGORY_SYSTEM
+import app.lawnchair.preferences.PreferenceManager
+import app.lawnchair.util.MainThreadInitializedObject
+import app.lawnchair.util.requireSystemService
+import com.android.launcher3.model.data.AppInfo
+import com.android.launcher3.pm.UserCache
+import com.android.launcher3.util.ApplicationInfoWrapper
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
+import com.android.launcher3.util.PackageUserKey
+import java.io.File
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.asStateFlow
+import kotlinx.coroutines.flow.update
+import kotlinx.coroutines.launch
+
+/**
+ * Keeps the drawer category of every launchable package of every profile, so that categorizing
+ * the drawer only takes map lookups.
+ *
+ * Categories are computed on a background thread, persisted in [AppDatabase] with the package's
+ * last update time and kept up to date from package change events. A package that hasn't been
+ * categorized yet is uncategorized when it's looked up on the main thread, and [updates] changes
+ * once it has been categorized in the background.
+ */
+class AppCategoryIndex private constructor(private val context: Context) {
+
+    private val dao = AppDatabase.INSTANCE.get(context).appCategoryDao()
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val prefs = PreferenceManager.getInstance(context)
+    private val userCache = UserCache.INSTANCE.get(context)
+
+    private val started = AtomicBoolean()
+    private val categories = ConcurrentHashMap<PackageUserKey, String>()
+    private val pending = ConcurrentHashMap.newKeySet<PackageUserKey>()
+
+    private val _updates = MutableStateFlow(0)
+
+    /** Changes whenever packages that were looked up uncategorized have been categorized. */
+    val updates: StateFlow<Int> = _updates.asStateFlow()
+
+    // The rules ship with the launcher, so categories are recomputed when the launcher updates
+    private val rulesVersion: Long by lazy {
+        context.packageManager.getPackageInfo(context.packageName, 0).lastUpdateTime
+    }
+
+    /**
+     * Loads the persisted categories and categorizes the packages that are new or were updated
+     * while the launcher wasn't running, if drawer categories are on.
+     */
+    fun start() {
+        if (!prefs.drawerList.get()) startLoading()
+    }
+
+    private fun startLoading() {
+        if (!started.compareAndSet(false, true)) return
+        scope.launch {
+            try {
+                refresh()
+            } catch (e: Exception) {
+                Log.w(TAG, "Failed to refresh app categories", e)
+            }
+        }
+    }
+
+    /**
+     * Updates the categories of [packageNames] of [user] after they were installed, updated or
+     * removed.
+     */
+    fun onPackagesChanged(packageNames: Array<String>, user: UserHandle, removed: Boolean) {
+        if (!started.get()) return
+        val keys = packageNames.map { PackageUserKey(it, user) }
+        scope.launch {
+            if (removed) {
+                keys.forEach { categories.remove(it) }
+                dao.delete(packageNames.toList(), userCache.getSerialNumberForUser(user))
+                return@launch
+            }
+            val updated = keys.mapNotNull { key -> compute(key)?.also { categories[key] = it.category } }
+            dao.upsert(updated)
+        }
+    }
+
+    /**
+     * Groups [apps] by category: system apps, Google apps, one group per Flowerpot and the
+     * remaining apps, in that order.
+     */
+    fun categorize(apps: List<AppInfo>): Map<String, List<AppInfo>> {
+        startLoading()
+        val systemApps = mutableListOf<AppInfo>()
+        val googleApps = mutableListOf<AppInfo>()
+        val potApps = mutableMapOf<String, MutableList<AppInfo>>()
+        val otherApps = mutableListOf<AppInfo>()
+
+        val potsManager = Flowerpot.Manager.getInstance(context)
+        val missing = mutableListOf<PackageUserKey>()
+        apps.forEach { app ->
+            val packageName = app.targetPackage ?: return@forEach
+            when (val category = getCategory(PackageUserKey(packageName, app.user), missing)) {
+                CATEGORY_GOOGLE -> googleApps.add(app)
+                CATEGORY_SYSTEM -> systemApps.add(app)
+                CATEGORY_OTHER -> otherApps.add(app)
+                else -> {
+                    val title = potsManager.getPot(category, forceLoad = false)?.displayName ?: category
+                    potApps.getOrPut(title) { mutableListOf() }.add(app)
+                }
+            }
+        }
+        if (missing.isNotEmpty()) categorizeLater(missing)
+        if (otherApps.isNotEmpty()) {
+            potApps["Other"] = otherApps
+        }
+
+        val result = mutableMapOf<String, List<AppInfo>>()
+        if (systemApps.isNotEmpty()) result["System Apps"] = systemApps
+        if (googleApps.isNotEmpty()) result["Google Apps"] = googleApps
+        result.putAll(potApps.toSortedMap())
+        return result
+    }
+
+    /**
+     * Returns the category of [key]. On the main thread, a package that isn't categorized yet is
+     * added to [missing] and left uncategorized, other threads categorize it right away.
+     */
+    private fun getCategory(key: PackageUserKey, missing: MutableList<PackageUserKey>): String {
+        categories[key]?.let { return it }
+        if (MAIN_EXECUTOR.looper.isCurrentThread) {
+            missing.add(key)
+            return CATEGORY_OTHER
+        }
+        val entry = compute(key) ?: return CATEGORY_OTHER
+        categories[key] = entry.category
+        scope.launch { dao.upsert(listOf(entry)) }
+        return entry.category
+    }
+
+    private fun categorizeLater(keys: List<PackageUserKey>) {
+        val added = keys.filter { pending.add(it) }
+        if (added.isEmpty()) return
+        scope.launch {
+            try {
+                val computed = added.mapNotNull { key ->
+                    compute(key)?.also { categories[key] = it.category }
+                }
+                if (computed.isNotEmpty()) {
+                    dao.upsert(computed)
+                    _updates.update { it + 1 }
+                }
+            } finally {
+                pending.removeAll(added.toSet())
+            }
+        }
+    }
+
+    private suspend fun refresh() {
+        val launcherApps: LauncherApps = context.requireSystemService()
+        // The launchable packages of every profile, with their application info
+        val installed = HashMap<Long, Map<String, ApplicationInfo>>()
+        userCache.userProfiles.forEach { user ->
+            installed[userCache.getSerialNumberForUser(user)] = launcherApps.getActivityList(null, user)
+                .associate { it.componentName.packageName to it.applicationInfo }
+        }
+
+        val stale = mutableListOf<AppCategory>()
+        dao.getAll().forEach { row ->
+            val user = userCache.getUserForSerialNumber(row.userSerial)
+            val info = installed[row.userSerial]?.get(row.packageName)
+            when {
+                user == null || info == null -> stale.add(row)
+                row.lastUpdateTime != lastUpdateTime(info) || row.rulesVersion != rulesVersion -> Unit
+                else -> categories.putIfAbsent(PackageUserKey(row.packageName, user), row.category)
+            }
+        }
+        stale.groupBy { it.userSerial }.forEach { (userSerial, rows) ->
+            dao.delete(rows.map { it.packageName }, userSerial)
+        }
+
+        val computed = mutableListOf<AppCategory>()
+        installed.forEach { (userSerial, packages) ->
+            val user = userCache.getUserForSerialNumber(userSerial) ?: return@forEach
+            packages.forEach { (packageName, info) ->
+                val key = PackageUserKey(packageName, user)
+                if (key !in categories) {
+                    val entry = compute(key, info)
+                    categories[key] = entry.category
+                    computed.add(entry)
+                }
+            }
+        }
+        if (computed.isNotEmpty()) {
+            dao.upsert(computed)
+            _updates.update { it + 1 }
+        }
+    }
+
+    /**
+     * Categorizes [key], or returns null if the package isn't installed for the user.
+     */
+    private fun compute(key: PackageUserKey): AppCategory? {
+        val info = ApplicationInfoWrapper(context, key.mPackageName, key.mUser).getInfo() ?: return null
+        return compute(key, info)
+    }
+
+    private fun compute(key: PackageUserKey, info: ApplicationInfo): AppCategory {
+        val packageName = key.mPackageName
+        val category = when {
+            // Google apps can also be system apps
+            packageName.startsWith("com.google.") -> CATEGORY_GOOGLE
+            info.flags and ApplicationInfo.FLAG_SYSTEM != 0 -> CATEGORY_SYSTEM
+            else -> Flowerpot.Manager.getInstance(context).findPot(packageName)?.name ?: CATEGORY_OTHER
+        }
+        return AppCategory(
+            packageName = packageName,
+            userSerial = userCache.getSerialNumberForUser(key.mUser),
+            lastUpdateTime = lastUpdateTime(info),
+            rulesVersion = rulesVersion,
+            category = category,
+        )
+    }
+
+    // The package info of other profiles can't be queried, but updates replace the APK
+    private fun lastUpdateTime(info: ApplicationInfo) = File(info.sourceDir).lastModified()
+
+    companion object {
+        private const val TAG = "AppCategoryIndex"
+
+        @JvmField
+        val INSTANCE = MainThreadInitializedObject(::AppCategoryIndex)
+
+        @JvmStatic
+        fun getInstance(context: Context): AppCategoryIndex = INSTANCE.get(context)
+    }
+}
@@ -46,6 +46,7 @@ class Flowerpot(private val context: Context, val name: String, private val load
     val size get() = rules.size
     lateinit var apps: FlowerpotApps
 
+    @Synchronized
     fun ensureLoaded() {
         if (!loaded) {
             load()
@@ -58,6 +59,11 @@ class Flowerpot(private val context: Context, val name: String, private val load
         apps = FlowerpotApps(context, this)
     }
 
+    fun matches(packageName: String): Boolean {
+        ensureLoaded()
+        return apps.matches(packageName)
+    }
+
     fun categorizeApps(appList: List<AppInfo?>?): Map<String, List<AppInfo>> {
         ensureLoaded()
         apps.updateAppList(appList)
@@ -150,6 +156,11 @@ class Flowerpot(private val context: Context, val name: String, private val load
 
         fun getAllPots() = pots.values
 
+        /**
+         * Returns the first pot [packageName] belongs to, or null.
+         */
+        fun findPot(packageName: String): Flowerpot? = pots.values.firstOrNull { it.matches(packageName) }
+
         fun categorizeApps(appList: List<AppInfo?>?): Map<String, List<AppInfo>> {
             val categorizedApps = mutableMapOf<String, MutableList<AppInfo>>()
             val categorizedAppKeys = mutableSetOf<String>()
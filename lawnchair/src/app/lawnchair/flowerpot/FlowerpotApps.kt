@@ -45,7 +45,7 @@ class FlowerpotApps(private val context: Context, private val pot: Flowerpot) {
             .toMap()
 
         val validPackages = appInfoMap.keys.filter { packageName ->
-            matchesRules(packageName, appInfoMap[packageName]!!)
+            matches(packageName)
         }
 
         validPackages.forEach { packageName ->
@@ -54,7 +54,10 @@ class FlowerpotApps(private val context: Context, private val pot: Flowerpot) {
         }
     }
 
-    private fun matchesRules(packageName: String, appInfo: AppInfo): Boolean = packageName in intentMatches || pot.rules.contains(Rules.Package(packageName)) ||
+    /**
+     * Returns whether [packageName] belongs to this pot. Safe to call from any thread.
+     */
+    fun matches(packageName: String): Boolean = packageName in intentMatches || pot.rules.contains(Rules.Package(packageName)) ||
         codeRules.isNotEmpty() && runCatching {
             codeRules.any { it.matches(context.packageManager.getApplicationInfo(packageName, 0)) }
         }.getOrDefault(false)
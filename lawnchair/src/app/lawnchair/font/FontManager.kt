@@ -3,22 +3,27 @@ package app.lawnchair.font
 import android.content.Context
 import android.graphics.Typeface
 import android.util.AttributeSet
+import android.util.SparseArray
+import android.view.Choreographer
 import android.widget.TextView
 import androidx.annotation.IdRes
 import androidx.core.content.res.use
-import androidx.lifecycle.lifecycleScope
 import app.lawnchair.preferences.BasePreferenceManager
 import app.lawnchair.preferences.PreferenceManager
-import app.lawnchair.util.lookupLifecycleOwner
-import app.lawnchair.util.runOnMainThread
 import com.android.launcher3.R
 import com.android.launcher3.dagger.ApplicationContext
 import com.android.launcher3.dagger.LauncherAppComponent
 import com.android.launcher3.dagger.LauncherAppSingleton
 import com.android.launcher3.util.DaggerSingletonObject
+import com.android.launcher3.util.Executors.MAIN_EXECUTOR
 import com.android.launcher3.util.SafeCloseable
+import java.util.WeakHashMap
 import javax.inject.Inject
+import kotlinx.coroutines.CoroutineName
+import kotlinx.coroutines.MainScope
+import kotlinx.coroutines.cancel
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.plus
 
 @LauncherAppSingleton
 class FontManager @Inject constructor(
@@ -26,9 +31,17 @@ class FontManager @Inject constructor(
 ) : SafeCloseable {
 
     private val fontCache = FontCache.INSTANCE.get(context)
+    private val scope = MainScope() + CoroutineName("FontManager")
 
     private val specMap = createFontMap()
 
+    // Views waiting for a typeface that is still loading, guarded by itself
+    private val pendingViews = WeakHashMap<TextView, PendingFont>()
+    // Only used on the main thread
+    private val loadingFonts = mutableSetOf<FontCache.Font>()
+    private var applyScheduled = false
+    private val applyFrameCallback = Choreographer.FrameCallback { applyPendingFonts() }
+
     private fun createFontMap(): Map<Int, FontSpec> {
         val sansSerif = Typeface.SANS_SERIF
         val sansSerifMedium = Typeface.create("sans-serif-medium", Typeface.NORMAL)
@@ -77,26 +90,99 @@ class FontManager @Inject constructor(
         }
     }
 
+    /**
+     * Sets the typeface of [type] on [textView]. Typefaces that were already loaded are set
+     * right away, others are set on the first frame after they're loaded.
+     */
     @JvmOverloads
     fun setCustomFont(textView: TextView, @IdRes type: Int, style: Int = -1) {
         val spec = specMap[type] ?: return
-        val lifecycleOwner = textView.context.lookupLifecycleOwner()
-        lifecycleOwner?.lifecycleScope?.launch {
-            val typeface = fontCache.getTypeface(spec.font.createWithWeight(style)) ?: spec.fallback
-            runOnMainThread {
-                textView.typeface = typeface
+        val source = spec.font
+        val typeface = spec.getResolved(source, style)
+        if (typeface != null) {
+            synchronized(pendingViews) { pendingViews.remove(textView) }
+            textView.typeface = typeface
+            return
+        }
+        // The latest request of a view replaces the previous one
+        synchronized(pendingViews) { pendingViews[textView] = PendingFont(spec, source, style) }
+        MAIN_EXECUTOR.execute { load(spec, source, style) }
+    }
+
+    /**
+     * Starts loading the configured fonts, so that they can be set without waiting when the
+     * launcher is inflated.
+     */
+    fun preloadFonts() {
+        MAIN_EXECUTOR.execute {
+            specMap.values.forEach { spec -> load(spec, spec.font, -1) }
+        }
+    }
+
+    private fun load(spec: FontSpec, source: FontCache.Font, style: Int) {
+        if (spec.getResolved(source, style) != null) {
+            scheduleApply()
+            return
+        }
+        val font = source.createWithWeight(style)
+        if (!loadingFonts.add(font)) return
+        scope.launch {
+            val typeface = fontCache.getTypeface(font)
+            loadingFonts.remove(font)
+            // Other specs can use the same font and wait for this load
+            specMap.values.forEach { it.putResolved(source, style, typeface) }
+            scheduleApply()
+        }
+    }
+
+    private fun scheduleApply() {
+        if (applyScheduled) return
+        applyScheduled = true
+        Choreographer.getInstance().postFrameCallback(applyFrameCallback)
+    }
+
+    private fun applyPendingFonts() {
+        applyScheduled = false
+        val ready = mutableListOf<Pair<TextView, Typeface>>()
+        synchronized(pendingViews) {
+            val iterator = pendingViews.entries.iterator()
+            while (iterator.hasNext()) {
+                val (view, pending) = iterator.next()
+                val typeface = pending.spec.getResolved(pending.source, pending.style) ?: continue
+                ready += view to typeface
+                iterator.remove()
             }
         }
+        ready.forEach { (view, typeface) -> view.typeface = typeface }
     }
 
     override fun close() {
-        TODO("Not yet implemented")
+        scope.cancel()
     }
 
+    private class PendingFont(val spec: FontSpec, val source: FontCache.Font, val style: Int)
+
     class FontSpec(val loader: () -> FontCache.Font, val fallback: Typeface) {
         constructor(pref: BasePreferenceManager.FontPref, fallback: Typeface) : this(pref::get, fallback)
 
         val font get() = loader()
+
+        // The typefaces loaded for each weight, for the font they were loaded from
+        private val resolved = SparseArray<Resolved>()
+
+        fun getResolved(source: FontCache.Font, style: Int): Typeface? = synchronized(resolved) {
+            resolved[style]?.takeIf { it.source == source }?.typeface
+        }
+
+        /**
+         * Keeps [typeface], loaded from [source] with [style], if this spec uses [source].
+         */
+        fun putResolved(source: FontCache.Font, style: Int, typeface: Typeface?) {
+            if (font != source) return
+            synchronized(resolved) { resolved.put(style, Resolved(source, typeface ?: fallback)) }
+        }
+
+        private class Resolved(val source: FontCache.Font, val typeface: Typeface)
     }
 
     companion object {
@@ -32,6 +32,8 @@ import app.lawnchair.icons.picker.IconType
 import app.lawnchair.preferences.PreferenceManager
 import app.lawnchair.util.MultiSafeCloseable
 import app.lawnchair.util.isPackageInstalled
+import com.android.launcher3.LauncherAppState
+import com.android.launcher3.LauncherModel
 import com.android.launcher3.R
 import com.android.launcher3.dagger.ApplicationContext
 import com.android.launcher3.dagger.LauncherAppSingleton
@@ -39,9 +41,13 @@ import com.android.launcher3.graphics.ThemeManager
 import com.android.launcher3.icons.ClockDrawableWrapper
 import com.android.launcher3.icons.LauncherIconProvider
 import com.android.launcher3.icons.mono.ThemedIconDrawable
+import com.android.launcher3.model.AllAppsList
+import com.android.launcher3.model.BgDataModel
+import com.android.launcher3.model.ModelTaskController
 import com.android.launcher3.util.ComponentKey
 import com.android.launcher3.util.SafeCloseable
 import javax.inject.Inject
+import kotlinx.coroutines.Job
 import org.xmlpull.v1.XmlPullParser
 
 @LauncherAppSingleton
@@ -265,7 +271,17 @@ class LawnchairIconProvider @Inject constructor(
         private val iconPackPref = PreferenceManager.getInstance(context).iconPackPackage
         private val themedIconPackPref = PreferenceManager.getInstance(context).themedIconPackPackage
 
+        private var prefetchJob: Job? = null
+            set(value) {
+                field?.cancel()
+                field = value
+            }
+
         private val subscription = iconPackPref.subscribeChanges {
+            handler.post(::onIconPackChanged)
+            prefetchIcons(iconPackPref.get())
+        }
+        private val themedIconSubscription = themedIconPackPref.subscribeChanges {
             val newState = themeManager.iconState
             if (iconState != newState) {
                 iconState = newState
@@ -273,7 +289,12 @@ class LawnchairIconProvider @Inject constructor(
                 recreateCalendarAndClockChangeReceiver()
             }
         }
-        private val themedIconSubscription = themedIconPackPref.subscribeChanges {
+
+        init {
+            recreateCalendarAndClockChangeReceiver()
+        }
+
+        private fun onIconPackChanged() {
             val newState = themeManager.iconState
             if (iconState != newState) {
                 iconState = newState
@@ -282,8 +303,19 @@ class LawnchairIconProvider @Inject constructor(
             }
         }
 
-        init {
-            recreateCalendarAndClockChangeReceiver()
+        /**
+         * Decodes the icons of the loaded apps from [packageName] in the background, so that
+         * the re-theme mostly hits the drawable cache.
+         */
+        private fun prefetchIcons(packageName: String) {
+            val appState = LauncherAppState.INSTANCE.get(context)
+            val iconDpi = appState.invariantDeviceProfile.fillResIconDpi
+            appState.model.enqueueModelUpdateTask(object : LauncherModel.ModelUpdateTask {
+                override fun execute(app: ModelTaskController, dataModel: BgDataModel, apps: AllAppsList) {
+                    val components = apps.data.mapNotNullTo(mutableSetOf()) { it.componentName }
+                    prefetchJob = iconPackProvider.prefetch(packageName, iconDpi, components)
+                }
+            })
         }
 
         private fun recreateCalendarAndClockChangeReceiver() {
@@ -297,6 +329,7 @@ class LawnchairIconProvider @Inject constructor(
 
         override fun close() {
             calendarAndClockChangeReceiver = null
+            prefetchJob = null
             subscription.close()
             themedIconSubscription.close()
         }
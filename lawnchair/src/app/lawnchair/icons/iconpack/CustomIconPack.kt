@@ -9,7 +9,6 @@ import android.content.res.Resources
 import android.content.res.XmlResourceParser
 import android.graphics.drawable.Drawable
 import android.util.Xml
-import app.lawnchair.icons.ClockMetadata
 import app.lawnchair.icons.ExtendedBitmapDrawable
 import app.lawnchair.icons.picker.IconEntry
 import app.lawnchair.icons.picker.IconPickerCategory
@@ -17,6 +16,7 @@ import app.lawnchair.icons.picker.IconPickerItem
 import app.lawnchair.icons.picker.IconType
 import com.android.launcher3.R
 import java.io.IOException
+import java.util.concurrent.ConcurrentHashMap
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
@@ -25,40 +25,54 @@ import org.xmlpull.v1.XmlPullParser
 import org.xmlpull.v1.XmlPullParserException
 import org.xmlpull.v1.XmlPullParserFactory
 
-class CustomIconPack(context: Context, packPackageName: String) : IconPack(context, packPackageName) {
+class CustomIconPack(
+    context: Context,
+    packPackageName: String,
+    private val drawableCache: IconPackDrawableCache,
+) : IconPack(context, packPackageName) {
 
     private val packResources = context.packageManager.getResourcesForApplication(packPackageName)
-    private val componentMap = mutableMapOf<ComponentName, IconEntry>()
-    private val calendarMap = mutableMapOf<ComponentName, IconEntry>()
-    private val clockMap = mutableMapOf<ComponentName, IconEntry>()
-    private val clockMetas = mutableMapOf<IconEntry, ClockMetadata>()
+    private val packVersion = IconPackIndex.getPackVersion(context, packPackageName)
 
-    private val idCache = mutableMapOf<String, Int>()
+    @Volatile
+    private var index: IconPackIndex? = packVersion?.let {
+        IconPackIndex.open(context, packPackageName, it)
+    }
+
+    // Resource ids of drawables that aren't in the index, like the days of calendars
+    private val idCache = ConcurrentHashMap<String, Int>()
 
     override val label = context.packageManager.let { pm ->
         pm.getApplicationInfo(packPackageName, 0).loadLabel(pm).toString()
     }
 
     init {
-        startLoad()
+        if (index != null) {
+            setLoaded()
+        } else {
+            startLoad()
+        }
     }
 
-    override fun getIcon(componentName: ComponentName) = componentMap[componentName]
-    override fun getCalendar(componentName: ComponentName) = calendarMap[componentName]
-    override fun getClock(entry: IconEntry) = clockMetas[entry]
+    override fun getIcon(componentName: ComponentName) = index?.getDrawableName(componentName, IconType.Normal)
+        ?.let { IconEntry(packPackageName, it, IconType.Normal) }
+
+    override fun getCalendar(componentName: ComponentName) = index?.getDrawableName(componentName, IconType.Calendar)
+        ?.let { IconEntry(packPackageName, it, IconType.Calendar) }
+
+    override fun getClock(entry: IconEntry) = if (entry.type == IconType.Normal) index?.getClock(entry.name) else null
 
-    override fun getCalendars(): MutableSet<ComponentName> = calendarMap.keys
-    override fun getClocks(): MutableSet<ComponentName> = clockMap.keys
+    override fun getCalendars(): MutableSet<ComponentName> = index?.calendars.orEmpty().toMutableSet()
+    override fun getClocks(): MutableSet<ComponentName> = index?.clocks.orEmpty().toMutableSet()
 
     override fun getIcon(iconEntry: IconEntry, iconDpi: Int): Drawable? {
         val id = getDrawableId(iconEntry.name)
         if (id == 0) return null
         return try {
-            ExtendedBitmapDrawable.wrap(
-                packResources,
-                packResources.getDrawableForDensity(id, iconDpi, null),
-                true,
-            )
+            val drawable = drawableCache.getOrDecode(packPackageName, iconEntry.name, iconDpi, packResources) {
+                packResources.getDrawableForDensity(id, iconDpi, null)
+            } ?: return null
+            ExtendedBitmapDrawable.wrap(packResources, drawable, true)
         } catch (_: Resources.NotFoundException) {
             null
         }
@@ -74,6 +88,8 @@ class CustomIconPack(context: Context, packPackageName: String) : IconPack(conte
 
     override fun loadInternal() {
         val parseXml = getXml("appfilter") ?: return
+        val builder = IconPackIndex.Builder(packPackageName)
+        var complete = false
         val compStart = "ComponentInfo{"
         val compStartLength = compStart.length
         val compEnd = "}"
@@ -93,11 +109,11 @@ class CustomIconPack(context: Context, packPackageName: String) : IconPack(conte
                             }
                             val parsed = ComponentName.unflattenFromString(componentName)
                             if (parsed != null) {
-                                if (isCalendar) {
-                                    calendarMap[parsed] = IconEntry(packPackageName, drawableName, IconType.Calendar)
-                                } else {
-                                    componentMap[parsed] = IconEntry(packPackageName, drawableName, IconType.Normal)
-                                }
+                                builder.addComponent(
+                                    parsed,
+                                    if (isCalendar) IconType.Calendar else IconType.Normal,
+                                    drawableName,
+                                )
                             }
                         }
                     }
@@ -106,24 +122,23 @@ class CustomIconPack(context: Context, packPackageName: String) : IconPack(conte
                         val drawableName = parseXml["drawable"]
                         if (drawableName != null) {
                             if (parseXml is XmlResourceParser) {
-                                clockMetas[IconEntry(packPackageName, drawableName, IconType.Normal)] = ClockMetadata(
-                                    parseXml.getAttributeIntValue(null, "hourLayerIndex", -1),
-                                    parseXml.getAttributeIntValue(null, "minuteLayerIndex", -1),
-                                    parseXml.getAttributeIntValue(null, "secondLayerIndex", -1),
-                                    parseXml.getAttributeIntValue(null, "defaultHour", 0),
-                                    parseXml.getAttributeIntValue(null, "defaultMinute", 0),
-                                    parseXml.getAttributeIntValue(null, "defaultSecond", 0),
+                                builder.addClock(
+                                    drawableName,
+                                    intArrayOf(
+                                        parseXml.getAttributeIntValue(null, "hourLayerIndex", -1),
+                                        parseXml.getAttributeIntValue(null, "minuteLayerIndex", -1),
+                                        parseXml.getAttributeIntValue(null, "secondLayerIndex", -1),
+                                        parseXml.getAttributeIntValue(null, "defaultHour", 0),
+                                        parseXml.getAttributeIntValue(null, "defaultMinute", 0),
+                                        parseXml.getAttributeIntValue(null, "defaultSecond", 0),
+                                    ),
                                 )
                             }
                         }
                     }
                 }
             }
-            componentMap.forEach { (componentName, iconEntry) ->
-                if (clockMetas.containsKey(iconEntry)) {
-                    clockMap[componentName] = iconEntry
-                }
-            }
+            complete = true
         } catch (e: PackageManager.NameNotFoundException) {
             e.printStackTrace()
         } catch (e: XmlPullParserException) {
@@ -133,6 +148,14 @@ class CustomIconPack(context: Context, packPackageName: String) : IconPack(conte
         } catch (e: IllegalStateException) {
             e.printStackTrace()
         }
+
+        // Use what could be parsed, but only cache the index of a complete appfilter
+        val data = builder.build(packResources, packVersion?.first ?: 0, packVersion?.second ?: 0)
+        index = if (complete && packVersion != null) {
+            IconPackIndex.write(context, packPackageName, data)
+        } else {
+            IconPackIndex.wrap(data)
+        }
     }
 
     override fun getAllIcons(): Flow<List<IconPickerCategory>> = flow {
@@ -176,7 +199,7 @@ class CustomIconPack(context: Context, packPackageName: String) : IconPack(conte
     }.flowOn(Dispatchers.IO)
 
     @SuppressLint("DiscouragedApi")
-    private fun getDrawableId(name: String) = idCache.getOrPut(name) {
+    private fun getDrawableId(name: String) = index?.getResourceId(name) ?: idCache.getOrPut(name) {
         packResources.getIdentifier(name, "drawable", packPackageName)
     }
 
@@ -9,6 +9,7 @@ import app.lawnchair.icons.picker.IconPickerCategory
 import app.lawnchair.icons.picker.IconPickerItem
 import com.android.launcher3.compat.AlphabeticIndexCompat
 import java.util.concurrent.Semaphore
+import kotlinx.coroutines.CompletableDeferred
 import kotlinx.coroutines.CoroutineName
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Deferred
@@ -36,6 +37,15 @@ sealed class IconPack(
         }
     }
 
+    /**
+     * Marks the pack as loaded without calling [loadInternal], for packs that could be set up
+     * synchronously.
+     */
+    protected fun setLoaded() {
+        deferredLoad = CompletableDeferred(Unit)
+        waiter = null
+    }
+
     suspend fun load() {
         return deferredLoad.await()
     }
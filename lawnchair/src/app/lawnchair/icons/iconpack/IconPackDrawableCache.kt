@@ -0,0 +1,71 @@
+package app.lawnchair.icons.iconpack
+
+import android.content.res.Resources
+import android.graphics.drawable.BitmapDrawable
+import android.graphics.drawable.Drawable
+import android.util.LruCache
+
+/**
+ * A size-bounded LRU of drawables decoded from icon packs, keyed by pack, drawable name and
+ * density.
+ *
+ * Only the [Drawable.ConstantState]s are kept, so every caller gets its own drawable and can
+ * mutate it freely. The cache is synchronized and can be used from any thread.
+ */
+class IconPackDrawableCache(maxBytes: Int = DEFAULT_MAX_BYTES) {
+
+    private data class Key(val packPackageName: String, val name: String, val iconDpi: Int)
+
+    private class Entry(val state: Drawable.ConstantState, val bytes: Int)
+
+    private val cache = object : LruCache<Key, Entry>(maxBytes) {
+        override fun sizeOf(key: Key, value: Entry) = value.bytes
+    }
+
+    /**
+     * Returns a new instance of the drawable [name] of [packPackageName] at [iconDpi], calling
+     * [decode] to load it on a miss.
+     */
+    fun getOrDecode(
+        packPackageName: String,
+        name: String,
+        iconDpi: Int,
+        resources: Resources,
+        decode: () -> Drawable?,
+    ): Drawable? {
+        val key = Key(packPackageName, name, iconDpi)
+        cache.get(key)?.let { return it.state.newDrawable(resources) }
+
+        val drawable = decode() ?: return null
+        val state = drawable.constantState ?: return drawable
+        cache.put(key, Entry(state, estimateBytes(drawable)))
+        return drawable
+    }
+
+    /**
+     * Drops the drawables of [packPackageName], e.g. once the pack was updated or uninstalled.
+     */
+    fun evict(packPackageName: String) {
+        cache.snapshot().keys
+            .filter { it.packPackageName == packPackageName }
+            .forEach { cache.remove(it) }
+    }
+
+    fun clear() {
+        cache.evictAll()
+    }
+
+    private fun estimateBytes(drawable: Drawable): Int {
+        if (drawable is BitmapDrawable) {
+            drawable.bitmap?.let { return it.allocationByteCount }
+        }
+        // Vectors and adaptive icons are rasterized at their intrinsic size when drawn
+        val width = drawable.intrinsicWidth.coerceAtLeast(1)
+        val height = drawable.intrinsicHeight.coerceAtLeast(1)
+        return width * height * 4
+    }
+
+    companion object {
+        private const val DEFAULT_MAX_BYTES = 16 * 1024 * 1024
+    }
+}
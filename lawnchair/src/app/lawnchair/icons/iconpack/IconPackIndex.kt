@@ -0,0 +1,316 @@
+package app.lawnchair.icons.iconpack
+
+import android.annotation.SuppressLint
+import android.content.ComponentName
+import android.content.Context
+import android.content.pm.PackageManager
+import android.content.res.Resources
+import android.util.Log
+import androidx.core.content.pm.PackageInfoCompat
+import app.lawnchair.icons.ClockMetadata
+import app.lawnchair.icons.picker.IconType
+import java.io.ByteArrayOutputStream
+import java.io.File
+import java.io.IOException
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.nio.channels.FileChannel
+
+/**
+ * A compiled, immutable index of an icon pack's `appfilter`.
+ *
+ * The index maps components to drawable names, drawable names to resolved resource ids and
+ * clock drawables to their [ClockMetadata]. It's stored in a compact binary file in the cache
+ * directory, keyed by the pack's version, and memory-mapped on later starts, so a pack is ready
+ * to use without parsing any XML. Lookups are binary searches with absolute reads on the
+ * buffer, which makes them safe to call from any thread.
+ *
+ * Layout (big endian):
+ * - header: magic, format version, pack versionCode, pack lastUpdateTime, record counts and
+ *   the offset of the string table
+ * - drawable records sorted by name: name offset, name length, resource id, clock index
+ * - component records sorted by flattened component and type: key offset, key length, type,
+ *   drawable index
+ * - clock records: hour, minute and second layer indices and their defaults
+ * - string table: UTF-8 bytes of all names and keys
+ */
+class IconPackIndex private constructor(private val buffer: ByteBuffer) {
+
+    private val drawableCount = buffer.getInt(OFFSET_DRAWABLE_COUNT)
+    private val componentCount = buffer.getInt(OFFSET_COMPONENT_COUNT)
+    private val clockCount = buffer.getInt(OFFSET_CLOCK_COUNT)
+    private val stringsOffset = buffer.getInt(OFFSET_STRINGS)
+    private val componentsOffset = HEADER_SIZE + drawableCount * RECORD_SIZE
+    private val clocksOffset = componentsOffset + componentCount * RECORD_SIZE
+
+    private val versionCode: Long get() = buffer.getLong(OFFSET_VERSION_CODE)
+    private val lastUpdateTime: Long get() = buffer.getLong(OFFSET_LAST_UPDATE_TIME)
+
+    val calendars: Set<ComponentName> by lazy { collectComponents(IconType.Calendar, clocksOnly = false) }
+    val clocks: Set<ComponentName> by lazy { collectComponents(IconType.Normal, clocksOnly = true) }
+
+    init {
+        require(buffer.getInt(OFFSET_MAGIC) == MAGIC && buffer.getInt(OFFSET_FORMAT) == FORMAT_VERSION)
+        require(drawableCount >= 0 && componentCount >= 0 && clockCount >= 0)
+        require(stringsOffset == clocksOffset + clockCount * CLOCK_RECORD_SIZE)
+        require(stringsOffset <= buffer.limit())
+    }
+
+    /**
+     * Returns the drawable name of [componentName] for [type], or null.
+     */
+    fun getDrawableName(componentName: ComponentName, type: IconType): String? {
+        val key = componentName.flattenToString().toByteArray()
+        var low = 0
+        var high = componentCount - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val record = componentsOffset + mid * RECORD_SIZE
+            var cmp = compareString(buffer.getInt(record), buffer.getInt(record + 4), key)
+            if (cmp == 0) cmp = buffer.getInt(record + 8).compareTo(type.ordinal)
+            when {
+                cmp < 0 -> low = mid + 1
+                cmp > 0 -> high = mid - 1
+                else -> return drawableName(buffer.getInt(record + 12))
+            }
+        }
+        return null
+    }
+
+    /**
+     * Returns the resolved resource id of the drawable [name], 0 if the pack doesn't have it,
+     * or null if the drawable isn't referenced by the appfilter.
+     */
+    fun getResourceId(name: String): Int? {
+        val index = findDrawable(name)
+        return if (index < 0) null else buffer.getInt(HEADER_SIZE + index * RECORD_SIZE + 8)
+    }
+
+    fun getClock(name: String): ClockMetadata? {
+        val index = findDrawable(name)
+        if (index < 0) return null
+        val clockIndex = buffer.getInt(HEADER_SIZE + index * RECORD_SIZE + 12)
+        if (clockIndex < 0) return null
+        val record = clocksOffset + clockIndex * CLOCK_RECORD_SIZE
+        return ClockMetadata(
+            buffer.getInt(record),
+            buffer.getInt(record + 4),
+            buffer.getInt(record + 8),
+            buffer.getInt(record + 12),
+            buffer.getInt(record + 16),
+            buffer.getInt(record + 20),
+        )
+    }
+
+    private fun findDrawable(name: String): Int {
+        val key = name.toByteArray()
+        var low = 0
+        var high = drawableCount - 1
+        while (low <= high) {
+            val mid = (low + high) ushr 1
+            val record = HEADER_SIZE + mid * RECORD_SIZE
+            val cmp = compareString(buffer.getInt(record), buffer.getInt(record + 4), key)
+            when {
+                cmp < 0 -> low = mid + 1
+                cmp > 0 -> high = mid - 1
+                else -> return mid
+            }
+        }
+        return -1
+    }
+
+    private fun drawableName(index: Int): String {
+        val record = HEADER_SIZE + index * RECORD_SIZE
+        return readString(buffer.getInt(record), buffer.getInt(record + 4))
+    }
+
+    private fun collectComponents(type: IconType, clocksOnly: Boolean): Set<ComponentName> {
+        val result = mutableSetOf<ComponentName>()
+        for (i in 0 until componentCount) {
+            val record = componentsOffset + i * RECORD_SIZE
+            if (buffer.getInt(record + 8) != type.ordinal) continue
+            if (clocksOnly) {
+                val drawable = HEADER_SIZE + buffer.getInt(record + 12) * RECORD_SIZE
+                if (buffer.getInt(drawable + 12) < 0) continue
+            }
+            ComponentName.unflattenFromString(readString(buffer.getInt(record), buffer.getInt(record + 4)))
+                ?.let { result.add(it) }
+        }
+        return result
+    }
+
+    private fun readString(offset: Int, length: Int): String {
+        val bytes = ByteArray(length)
+        val start = stringsOffset + offset
+        for (i in 0 until length) bytes[i] = buffer.get(start + i)
+        return String(bytes)
+    }
+
+    // Compares the stored string with key, byte by byte as unsigned values
+    private fun compareString(offset: Int, length: Int, key: ByteArray): Int {
+        val start = stringsOffset + offset
+        val common = minOf(length, key.size)
+        for (i in 0 until common) {
+            val cmp = (buffer.get(start + i).toInt() and 0xff) - (key[i].toInt() and 0xff)
+            if (cmp != 0) return cmp
+        }
+        return length - key.size
+    }
+
+    /**
+     * Collects the appfilter entries of a pack and compiles them into an [IconPackIndex].
+     */
+    class Builder(private val packPackageName: String) {
+
+        private val components = mutableMapOf<Pair<String, Int>, String>()
+        private val clockMetas = mutableMapOf<String, IntArray>()
+
+        fun addComponent(componentName: ComponentName, type: IconType, drawableName: String) {
+            components[componentName.flattenToString() to type.ordinal] = drawableName
+        }
+
+        fun addClock(drawableName: String, metadata: IntArray) {
+            check(metadata.size == 6)
+            clockMetas[drawableName] = metadata
+        }
+
+        @SuppressLint("DiscouragedApi")
+        fun build(resources: Resources, versionCode: Long, lastUpdateTime: Long): ByteArray {
+            val drawableNames = (components.values + clockMetas.keys)
+                .distinct()
+                .sortedWith { a, b -> compareBytes(a.toByteArray(), b.toByteArray()) }
+            val drawableIndices = drawableNames.withIndex().associate { it.value to it.index }
+            val sortedComponents = components.entries.sortedWith { a, b ->
+                val cmp = compareBytes(a.key.first.toByteArray(), b.key.first.toByteArray())
+                if (cmp != 0) cmp else a.key.second.compareTo(b.key.second)
+            }
+            val clockNames = clockMetas.keys.toList()
+            val clockIndices = clockNames.withIndex().associate { it.value to it.index }
+
+            val strings = ByteArrayOutputStream()
+            fun addString(value: String): Pair<Int, Int> {
+                val bytes = value.toByteArray()
+                val offset = strings.size()
+                strings.write(bytes)
+                return offset to bytes.size
+            }
+
+            val stringsOffset = HEADER_SIZE + (drawableNames.size + sortedComponents.size) * RECORD_SIZE +
+                clockNames.size * CLOCK_RECORD_SIZE
+            val records = ByteBuffer.allocate(stringsOffset)
+            records.putInt(MAGIC)
+                .putInt(FORMAT_VERSION)
+                .putLong(versionCode)
+                .putLong(lastUpdateTime)
+                .putInt(drawableNames.size)
+                .putInt(sortedComponents.size)
+                .putInt(clockNames.size)
+                .putInt(stringsOffset)
+            drawableNames.forEach { name ->
+                val (offset, length) = addString(name)
+                records.putInt(offset)
+                    .putInt(length)
+                    .putInt(resources.getIdentifier(name, "drawable", packPackageName))
+                    .putInt(clockIndices[name] ?: -1)
+            }
+            sortedComponents.forEach { (key, drawableName) ->
+                val (offset, length) = addString(key.first)
+                records.putInt(offset)
+                    .putInt(length)
+                    .putInt(key.second)
+                    .putInt(drawableIndices.getValue(drawableName))
+            }
+            clockNames.forEach { name -> clockMetas.getValue(name).forEach { records.putInt(it) } }
+            return records.array() + strings.toByteArray()
+        }
+    }
+
+    companion object {
+        private const val TAG = "IconPackIndex"
+        private const val DIR_NAME = "icon_pack_index"
+
+        private const val MAGIC = 0x4c49504b // "LIPK"
+        private const val FORMAT_VERSION = 1
+
+        private const val OFFSET_MAGIC = 0
+        private const val OFFSET_FORMAT = 4
+        private const val OFFSET_VERSION_CODE = 8
+        private const val OFFSET_LAST_UPDATE_TIME = 16
+        private const val OFFSET_DRAWABLE_COUNT = 24
+        private const val OFFSET_COMPONENT_COUNT = 28
+        private const val OFFSET_CLOCK_COUNT = 32
+        private const val OFFSET_STRINGS = 36
+        private const val HEADER_SIZE = 40
+        private const val RECORD_SIZE = 16
+        private const val CLOCK_RECORD_SIZE = 24
+
+        /**
+         * Returns the version of [packPackageName] the index must match, as (versionCode,
+         * lastUpdateTime), or null if the pack isn't installed.
+         */
+        fun getPackVersion(context: Context, packPackageName: String): Pair<Long, Long>? = try {
+            val info = context.packageManager.getPackageInfo(packPackageName, 0)
+            PackageInfoCompat.getLongVersionCode(info) to info.lastUpdateTime
+        } catch (_: PackageManager.NameNotFoundException) {
+            null
+        }
+
+        /**
+         * Memory-maps the cached index of [packPackageName], or returns null if there's no index
+         * for [version] of the pack.
+         */
+        fun open(context: Context, packPackageName: String, version: Pair<Long, Long>): IconPackIndex? {
+            val file = getFile(context, packPackageName)
+            if (!file.isFile) return null
+            return try {
+                val buffer = RandomAccessFile(file, "r").use {
+                    it.channel.map(FileChannel.MapMode.READ_ONLY, 0, it.length())
+                }
+                IconPackIndex(buffer).takeIf {
+                    it.versionCode == version.first && it.lastUpdateTime == version.second
+                }
+            } catch (e: IOException) {
+                Log.w(TAG, "Failed to open index of $packPackageName", e)
+                null
+            } catch (e: RuntimeException) {
+                Log.w(TAG, "Dropping invalid index of $packPackageName", e)
+                file.delete()
+                null
+            }
+        }
+
+        /**
+         * Returns an index backed by [data], without caching it.
+         */
+        fun wrap(data: ByteArray) = IconPackIndex(ByteBuffer.wrap(data))
+
+        /**
+         * Writes [data] as the cached index of [packPackageName] and returns it as an index.
+         */
+        fun write(context: Context, packPackageName: String, data: ByteArray): IconPackIndex {
+            val file = getFile(context, packPackageName)
+            val tmp = File(file.path + ".tmp")
+            try {
+                file.parentFile?.mkdirs()
+                tmp.writeBytes(data)
+                if (!tmp.renameTo(file)) tmp.delete()
+            } catch (e: IOException) {
+                Log.w(TAG, "Failed to write index of $packPackageName", e)
+                tmp.delete()
+            }
+            return wrap(data)
+        }
+
+        private fun getFile(context: Context, packPackageName: String) =
+            File(File(context.cacheDir, DIR_NAME), packPackageName)
+
+        private fun compareBytes(a: ByteArray, b: ByteArray): Int {
+            val common = minOf(a.size, b.size)
+            for (i in 0 until common) {
+                val cmp = (a[i].toInt() and 0xff) - (b[i].toInt() and 0xff)
+                if (cmp != 0) return cmp
+            }
+            return a.size - b.size
+        }
+    }
+}
@@ -1,11 +1,16 @@
 package app.lawnchair.icons.iconpack
 
+import android.content.BroadcastReceiver
+import android.content.ComponentName
 import android.content.Context
+import android.content.Intent
+import android.content.IntentFilter
 import android.content.pm.PackageManager
 import android.graphics.drawable.Drawable
 import android.os.Build
 import android.os.Process
 import android.os.UserHandle
+import android.util.Log
 import app.lawnchair.icons.ClockMetadata
 import app.lawnchair.icons.CustomAdaptiveIconDrawable
 import app.lawnchair.icons.picker.IconEntry
@@ -17,6 +22,15 @@ import com.android.launcher3.icons.ClockDrawableWrapper
 import com.android.launcher3.util.DaggerSingletonObject
 import com.android.launcher3.util.SafeCloseable
 import javax.inject.Inject
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
 
 @LauncherAppSingleton
 class IconPackProvider @Inject constructor(
@@ -24,6 +38,28 @@ class IconPackProvider @Inject constructor(
 ) : SafeCloseable {
 
     private val iconPacks = mutableMapOf<String, IconPack?>()
+    private val drawableCache = IconPackDrawableCache()
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    @OptIn(ExperimentalCoroutinesApi::class)
+    private val prefetchDispatcher = Dispatchers.IO.limitedParallelism(PREFETCH_PARALLELISM)
+
+    // Drops the loaded pack and its decoded drawables once the pack is updated or uninstalled
+    private val packageChangeReceiver = object : BroadcastReceiver() {
+        override fun onReceive(context: Context, intent: Intent) {
+            val packageName = intent.data?.schemeSpecificPart ?: return
+            invalidate(packageName)
+        }
+    }
+
+    init {
+        val filter = IntentFilter(Intent.ACTION_PACKAGE_ADDED)
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED)
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED)
+        filter.addDataScheme("package")
+        context.registerReceiver(packageChangeReceiver, filter)
+    }
 
     fun getIconPackOrSystem(packageName: String): IconPack? {
         if (packageName.isEmpty()) return SystemIconPack(context, packageName)
@@ -34,15 +70,50 @@ class IconPackProvider @Inject constructor(
         if (packageName.isEmpty()) {
             return null
         }
-        return iconPacks.getOrPut(packageName) {
-            try {
-                CustomIconPack(context, packageName)
-            } catch (_: PackageManager.NameNotFoundException) {
-                null
+        return synchronized(iconPacks) {
+            iconPacks.getOrPut(packageName) {
+                try {
+                    CustomIconPack(context, packageName, drawableCache)
+                } catch (_: PackageManager.NameNotFoundException) {
+                    null
+                }
             }
         }
     }
 
+    /**
+     * Decodes the icons of [components] from [packageName] into the drawable cache, on a bounded
+     * background pool, so that loading them afterwards only hits the cache.
+     */
+    fun prefetch(packageName: String, iconDpi: Int, components: Collection<ComponentName>): Job = scope.launch {
+        val iconPack = getIconPack(packageName) ?: return@launch
+        iconPack.load()
+        withContext(prefetchDispatcher) {
+            components.chunked(PREFETCH_CHUNK_SIZE).forEach { chunk ->
+                launch { chunk.forEach { prefetchIcon(iconPack, it, iconDpi) } }
+            }
+        }
+    }
+
+    private fun CoroutineScope.prefetchIcon(iconPack: IconPack, componentName: ComponentName, iconDpi: Int) {
+        ensureActive()
+        val entry = iconPack.getIcon(componentName) ?: return
+        try {
+            iconPack.getIcon(entry, iconDpi)
+        } catch (e: Exception) {
+            Log.w(TAG, "Failed to prefetch icon of $componentName", e)
+        }
+    }
+
+    private fun invalidate(packageName: String) {
+        val wasLoaded = synchronized(iconPacks) {
+            iconPacks.containsKey(packageName).also { iconPacks.remove(packageName) }
+        }
+        if (wasLoaded) {
+            drawableCache.evict(packageName)
+        }
+    }
+
     fun getClockMetadata(iconEntry: IconEntry): ClockMetadata? {
         val iconPack = getIconPackOrSystem(iconEntry.packPackageName) ?: return null
         return iconPack.getClock(iconEntry)
@@ -78,10 +149,16 @@ class IconPackProvider @Inject constructor(
     }
 
     override fun close() {
-        TODO("Not yet implemented")
+        context.unregisterReceiver(packageChangeReceiver)
+        scope.cancel()
+        drawableCache.clear()
     }
 
     companion object {
+        private const val TAG = "IconPackProvider"
+        private const val PREFETCH_PARALLELISM = 4
+        private const val PREFETCH_CHUNK_SIZE = 16
+
         @JvmField
         val INSTANCE = DaggerSingletonObject(LauncherAppComponent::getIconPackProvider)
     }
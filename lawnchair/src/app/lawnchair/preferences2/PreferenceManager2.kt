@@ -71,14 +71,23 @@ import com.android.launcher3.util.SafeCloseable
 import com.patrykmichalik.opto.core.PreferenceManager
 import com.patrykmichalik.opto.core.firstBlocking
 import com.patrykmichalik.opto.core.setBlocking
+import com.patrykmichalik.opto.domain.Preference
+import java.util.concurrent.ConcurrentHashMap
 import javax.inject.Inject
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.MainScope
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
 import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.MutableStateFlow
+import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.distinctUntilChanged
 import kotlinx.coroutines.flow.drop
 import kotlinx.coroutines.flow.launchIn
 import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.onEach
+import kotlinx.coroutines.launch
 
 @LauncherAppSingleton
 class PreferenceManager2 @Inject constructor(
@@ -87,6 +96,8 @@ class PreferenceManager2 @Inject constructor(
     SafeCloseable {
 
     private val scope = MainScope()
+    private val snapshotScope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+    private val snapshots = ConcurrentHashMap<String, StateFlow<*>>()
     private val resourceProvider = DynamicResource.provider(context)
     private var liveInformationManager: LiveInformationManager =
         LiveInformationManager.getInstance(context)
@@ -598,6 +609,11 @@ class PreferenceManager2 @Inject constructor(
         defaultValue = resourceProvider.getInt(R.dimen.config_default_max_web_suggestion_delay),
     )
 
+    val searchProviderBudget = preference(
+        key = intPreferencesKey(name = "search_provider_budget"),
+        defaultValue = resourceProvider.getInt(R.dimen.config_default_search_provider_budget),
+    )
+
     val maxSettingsEntryResultCount = preference(
         key = intPreferencesKey(name = "max_settings_entry_result_count"),
         defaultValue = resourceProvider.getInt(R.dimen.config_default_settings_entry_max_result_count),
@@ -812,6 +828,52 @@ class PreferenceManager2 @Inject constructor(
                 LauncherAppState.getInstance(context).model.reloadIfActive()
             }
             .launchIn(scope)
+
+        // Search and the accessibility service read these for every keystroke or event
+        snapshotScope.launch {
+            listOf(
+                hiddenApps,
+                hiddenAppsInSearch,
+                searchAlgorithm,
+                enableFuzzySearch,
+                webSuggestionProvider,
+                webSuggestionProviderUrl,
+                webSuggestionProviderSuggestionsUrl,
+                webSuggestionProviderName,
+                maxAppSearchResultCount,
+                maxWebSuggestionResultCount,
+                maxFileResultCount,
+                maxPeopleResultCount,
+                maxSettingsEntryResultCount,
+                maxRecentResultCount,
+                maxWebSuggestionDelay,
+                searchProviderBudget,
+                coverScreenAutoLaunch,
+                coverScreenSamsungHomeToggle,
+            ).forEach { snapshot(it) }
+        }
+    }
+
+    /**
+     * Returns the current value of [preference] without blocking on the data store.
+     *
+     * The first call for a preference reads it once and keeps it up to date from then on, so
+     * later calls only read a field. A value set right before may not be visible yet; use
+     * [firstBlocking] where a read must observe a preceding write.
+     */
+    fun <C> current(preference: Preference<C, *, *>): C = snapshot(preference).value
+
+    @Suppress("UNCHECKED_CAST")
+    private fun <C> snapshot(preference: Preference<C, *, *>): StateFlow<C> {
+        val key = preference.key.name
+        snapshots[key]?.let { return it as StateFlow<C> }
+        // Read outside of the map, so the data store read doesn't block other keys. Only the
+        // snapshot that ends up in the map is kept up to date.
+        val snapshot = MutableStateFlow(preference.firstBlocking())
+        val existing = snapshots.putIfAbsent(key, snapshot)
+        if (existing != null) return existing as StateFlow<C>
+        preference.get().onEach { snapshot.value = it }.launchIn(snapshotScope)
+        return snapshot
     }
 
     suspend fun setGestureForApp(
@@ -844,6 +906,7 @@ class PreferenceManager2 @Inject constructor(
     }
 
     override fun close() {
+        snapshotScope.cancel()
     }
 
     private fun getRemoteDefault(key: String): String? = liveInformationManager.liveInformation
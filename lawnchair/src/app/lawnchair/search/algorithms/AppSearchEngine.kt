@@ -0,0 +1,138 @@
+package app.lawnchair.search.algorithms
+
+import app.lawnchair.search.algorithms.engine.provider.apps.AppSearchIndex
+import com.android.launcher3.allapps.BaseAllAppsAdapter
+import com.android.launcher3.model.AllAppsList
+import com.android.launcher3.model.data.AppInfo
+import com.android.launcher3.search.StringMatcherUtility
+import java.util.Locale
+import java.util.concurrent.atomic.AtomicInteger
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.ensureActive
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.withContext
+
+/**
+ * Ranks app search results off the main thread.
+ *
+ * Every query works on an [AppSearchIndex] snapshot of [AllAppsList] taken once on the model
+ * thread. Ranking and adapter item building run on a single background lane, so only the final
+ * list of adapter items is posted to the main thread. When a query extends the previous one and
+ * the app list is unchanged, the normal matcher only re-checks the previous candidates instead
+ * of every app.
+ *
+ * Each call to [newRequest] supersedes the previous request: in-flight work is cancelled and
+ * results of stale requests are dropped before they are delivered.
+ */
+class AppSearchEngine(private val scope: CoroutineScope) {
+
+    data class Options(
+        val enableFuzzySearch: Boolean,
+        val maxResultsCount: Int,
+        val hiddenApps: Set<String>,
+        val hiddenAppsInSearch: String,
+    )
+
+    @OptIn(kotlinx.coroutines.ExperimentalCoroutinesApi::class)
+    private val rankingDispatcher = Dispatchers.Default.limitedParallelism(1)
+    private val generation = AtomicInteger()
+
+    @Volatile
+    private var currentJob: Job? = null
+
+    // Only accessed from rankingDispatcher
+    private var lastIndex: AppSearchIndex? = null
+    private var lastQuery: String? = null
+    private var lastCandidates: List<AppSearchIndex.Entry> = emptyList()
+
+    /**
+     * Starts a new request and returns its id. Any request started before it becomes stale.
+     */
+    fun newRequest(): Int = generation.incrementAndGet()
+
+    fun isStale(requestId: Int): Boolean = requestId != generation.get()
+
+    /**
+     * Returns the search index for the current app list. Must be called on the model thread.
+     */
+    fun snapshot(apps: AllAppsList): AppSearchIndex = AppSearchIndex.of(apps)
+
+    /**
+     * Ranks [snapshot] against [query] and builds the adapter items on a background thread,
+     * then delivers them on the main thread unless the request has become stale.
+     */
+    fun submit(
+        requestId: Int,
+        snapshot: AppSearchIndex,
+        query: String,
+        options: Options,
+        buildResults: (List<AppInfo>) -> List<BaseAllAppsAdapter.AdapterItem>,
+        onResult: (ArrayList<BaseAllAppsAdapter.AdapterItem>) -> Unit,
+    ) {
+        if (isStale(requestId)) return
+        currentJob?.cancel()
+        currentJob = scope.launch(rankingDispatcher) {
+            val appResults = rankApps(snapshot, query, options)
+            if (isStale(requestId)) return@launch
+            ensureActive()
+
+            val adapterItems = ArrayList(buildResults(appResults))
+            if (isStale(requestId)) return@launch
+            withContext(Dispatchers.Main) {
+                if (!isStale(requestId)) onResult(adapterItems)
+            }
+        }
+    }
+
+    /**
+     * Cancels the request in flight and forgets the previous query, so that the next query
+     * is matched against the whole app list.
+     */
+    fun cancel() {
+        generation.incrementAndGet()
+        currentJob?.cancel()
+        scope.launch(rankingDispatcher) {
+            lastQuery = null
+            lastCandidates = emptyList()
+        }
+    }
+
+    private fun rankApps(snapshot: AppSearchIndex, query: String, options: Options): List<AppInfo> {
+        val queryTextLower = query.lowercase(Locale.getDefault())
+        if (options.enableFuzzySearch) {
+            // Fuzzy scores don't shrink monotonically as the query grows, so there is
+            // nothing to refine here.
+            lastQuery = null
+            lastCandidates = emptyList()
+            return SearchUtils.fuzzySearch(
+                snapshot,
+                query,
+                options.maxResultsCount,
+                options.hiddenApps,
+                options.hiddenAppsInSearch,
+            )
+        }
+
+        val previousQuery = lastQuery
+        val canRefine = previousQuery != null &&
+            queryTextLower.startsWith(previousQuery) &&
+            snapshot === lastIndex
+        val source = if (canRefine) lastCandidates else snapshot.entries
+
+        val matcher = StringMatcherUtility.StringMatcher.getInstance()
+        val candidates = source.filter {
+            StringMatcherUtility.matches(queryTextLower, it.title, matcher)
+        }
+        lastIndex = snapshot
+        lastQuery = queryTextLower
+        lastCandidates = candidates
+
+        return candidates.asSequence()
+            .filterNot { snapshot.isHidden(it, queryTextLower, options.hiddenApps, options.hiddenAppsInSearch) }
+            .map { it.app }
+            .take(options.maxResultsCount)
+            .toList()
+    }
+}
@@ -1,7 +1,6 @@
 package app.lawnchair.search.algorithms
 
 import android.content.Context
-import android.os.Handler
 import app.lawnchair.preferences2.PreferenceManager2
 import app.lawnchair.search.adapter.SPACE
 import app.lawnchair.search.adapter.SearchTargetCompat
@@ -15,16 +14,13 @@ import com.android.launcher3.model.BgDataModel
 import com.android.launcher3.model.ModelTaskController
 import com.android.launcher3.model.data.AppInfo
 import com.android.launcher3.search.SearchCallback
-import com.android.launcher3.util.Executors
 import com.patrykmichalik.opto.core.onEach
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.launch
 
 class LawnchairAppSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm(context) {
 
     private val appState = LauncherAppState.getInstance(context)
-    private val resultHandler = Handler(Executors.MAIN_EXECUTOR.looper)
 
     // todo maybe use D.I.?
     private val searchTargetFactory = SearchTargetFactory(context)
@@ -38,6 +34,7 @@ class LawnchairAppSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm(c
     private val prefs2 = PreferenceManager2.getInstance(context)
 
     val coroutineScope = CoroutineScope(context = Dispatchers.IO)
+    private val searchEngine = AppSearchEngine(coroutineScope)
 
     init {
         prefs2.enableFuzzySearch.onEach(launchIn = coroutineScope) {
@@ -55,32 +52,38 @@ class LawnchairAppSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm(c
     }
 
     override fun doSearch(query: String, callback: SearchCallback<BaseAllAppsAdapter.AdapterItem>) {
+        val requestId = searchEngine.newRequest()
+        val options = AppSearchEngine.Options(
+            enableFuzzySearch = enableFuzzySearch,
+            maxResultsCount = maxResultsCount,
+            hiddenApps = hiddenApps,
+            hiddenAppsInSearch = hiddenAppsInSearch,
+        )
         appState.model.enqueueModelUpdateTask(object : LauncherModel.ModelUpdateTask {
             override fun execute(app: ModelTaskController, dataModel: BgDataModel, apps: AllAppsList) {
-                coroutineScope.launch(Dispatchers.Main) {
-                    val results = getResult(apps.data, query)
-                    callback.onSearchResult(query, results)
-                }
+                if (searchEngine.isStale(requestId)) return
+                searchEngine.submit(
+                    requestId = requestId,
+                    snapshot = searchEngine.snapshot(apps),
+                    query = query,
+                    options = options,
+                    buildResults = { appResults -> getResult(appResults, query) },
+                    onResult = { results -> callback.onSearchResult(query, results) },
+                )
             }
         })
     }
 
     override fun cancel(interruptActiveRequests: Boolean) {
         if (interruptActiveRequests) {
-            resultHandler.removeCallbacksAndMessages(null)
+            searchEngine.cancel()
         }
     }
 
     private fun getResult(
-        apps: MutableList<AppInfo>,
+        appResults: List<AppInfo>,
         query: String,
-    ): ArrayList<BaseAllAppsAdapter.AdapterItem> {
-        val appResults = if (enableFuzzySearch) {
-            SearchUtils.fuzzySearch(apps, query, maxResultsCount, hiddenApps, hiddenAppsInSearch)
-        } else {
-            SearchUtils.normalSearch(apps, query, maxResultsCount, hiddenApps, hiddenAppsInSearch)
-        }
-
+    ): List<BaseAllAppsAdapter.AdapterItem> {
         val searchTargets = mutableListOf<SearchTargetCompat>()
 
         if (appResults.isNotEmpty()) {
@@ -103,7 +106,6 @@ class LawnchairAppSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm(c
         searchTargetFactory.createMarketSearchTarget(query)?.let { searchTargets.add(it) }
 
         setFirstItemQuickLaunch(searchTargets)
-        val adapterItems = transformSearchResults(searchTargets)
-        return ArrayList(adapterItems)
+        return transformSearchResults(searchTargets)
     }
 }
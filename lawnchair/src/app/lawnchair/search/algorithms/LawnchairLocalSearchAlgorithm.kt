@@ -14,7 +14,10 @@ import app.lawnchair.search.algorithms.engine.EmptyStateSectionBuilder
 import app.lawnchair.search.algorithms.engine.FilesSectionBuilder
 import app.lawnchair.search.algorithms.engine.HistorySectionBuilder
 import app.lawnchair.search.algorithms.engine.SearchProvider
+import app.lawnchair.search.algorithms.engine.SearchProviderLatency
+import app.lawnchair.search.algorithms.engine.SearchProviderScheduler
 import app.lawnchair.search.algorithms.engine.SearchResult
+import app.lawnchair.search.algorithms.engine.SearchResultCache
 import app.lawnchair.search.algorithms.engine.SearchSettingsSectionBuilder
 import app.lawnchair.search.algorithms.engine.SectionBuilder
 import app.lawnchair.search.algorithms.engine.SettingsSectionBuilder
@@ -32,12 +35,10 @@ import com.android.launcher3.LauncherAppState
 import com.android.launcher3.R
 import com.android.launcher3.allapps.BaseAllAppsAdapter
 import com.android.launcher3.search.SearchCallback
-import com.patrykmichalik.opto.core.firstBlocking
 import kotlinx.coroutines.CoroutineScope
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.SupervisorJob
-import kotlinx.coroutines.flow.combine
 import kotlinx.coroutines.flow.firstOrNull
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
@@ -48,49 +49,78 @@ class LawnchairLocalSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm
 
     private val coroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
     private var currentJob: Job? = null
+    private var settingsCatalogWarmedUp = false
 
     private val appSearchProvider = AppSearchProvider
     private val shortcutSearchProvider = ShortcutSearchProvider
     private val historySearchProvider = HistorySearchProvider
 
+    private val resultCache = SearchResultCache(context)
+
     private val searchProviders: List<SearchProvider> = listOf(
-        SettingsSearchProvider,
-        FileSearchProvider,
-        ContactsSearchProvider,
+        resultCache.wrap(SettingsSearchProvider),
+        resultCache.wrap(FileSearchProvider),
+        resultCache.wrap(ContactsSearchProvider),
         WebSuggestionProvider,
     )
 
+    init {
+        SearchProviderLatency.register(context)
+    }
+
     override fun doSearch(query: String, callback: SearchCallback<BaseAllAppsAdapter.AdapterItem>) {
         appState.model.enqueueModelUpdateTask { _, _, apps ->
             val appResults = appSearchProvider.search(context, query, apps)
-            val shortcutResults = shortcutSearchProvider.search(context, appResults)
 
             currentJob?.cancel()
             currentJob = coroutineScope.launch {
-                val nonAppProvidersFlow = combine(
-                    searchProviders.map { it.search(context, query) },
-                ) { resultsArray ->
-                    resultsArray.toList().flatten()
-                }
+                val shortcutResults = shortcutSearchProvider.search(context, appResults)
+                val calcResult = CalculatorSearchProvider.search(context, query)
+                    .firstOrNull()
+                    .orEmpty()
+                val localResults = appResults + shortcutResults + calcResult
+                val actionResults = generateActionResults(query)
 
-                nonAppProvidersFlow.collect { nonAppResults ->
-                    val calcResult = CalculatorSearchProvider.search(context, query)
-                        .firstOrNull()
+                // Show apps and shortcuts right away, then add every other section as soon as
+                // its provider answers.
+                publishResults(query, localResults + actionResults, callback)
 
-                    val allResults = appResults + shortcutResults + (calcResult ?: emptyList()) + nonAppResults + generateActionResults(query)
-
-                    val searchTargets = translateToSearchTargets(allResults)
-                    val adapterItems = transformSearchResults(searchTargets)
-                    withContext(Dispatchers.Main) {
-                        callback.onSearchResult(query, ArrayList(adapterItems))
-                    }
+                val prefs2 = PreferenceManager2.getInstance(context)
+                val budget = prefs2.current(prefs2.searchProviderBudget).toLong()
+                // Web suggestions have their own configurable delay
+                val webSuggestionDelay = prefs2.current(prefs2.maxWebSuggestionDelay).toLong()
+                SearchProviderScheduler(searchProviders) { provider ->
+                    if (provider.id == WebSuggestionProvider.id) webSuggestionDelay else budget
                 }
+                    .search(context, query)
+                    .collect { nonAppResults ->
+                        publishResults(query, localResults + nonAppResults + actionResults, callback)
+                    }
             }
         }
     }
 
+    private suspend fun publishResults(
+        query: String,
+        results: List<SearchResult>,
+        callback: SearchCallback<BaseAllAppsAdapter.AdapterItem>,
+    ) {
+        val searchTargets = translateToSearchTargets(results)
+        val adapterItems = transformSearchResults(searchTargets)
+        withContext(Dispatchers.Main) {
+            callback.onSearchResult(query, ArrayList(adapterItems))
+        }
+    }
+
     override fun doZeroStateSearch(callback: SearchCallback<BaseAllAppsAdapter.AdapterItem>) {
         currentJob?.cancel()
+        if (!settingsCatalogWarmedUp) {
+            settingsCatalogWarmedUp = true
+            coroutineScope.launch { SettingsSearchProvider.warmUp() }
+        }
+        // A new search session starts here, and search preferences may have changed since the
+        // results were cached.
+        resultCache.clear()
 
         val prefs = PreferenceManager.getInstance(context)
         val historyEnabled = prefs.searchResulRecentSuggestion.get()
@@ -100,7 +130,7 @@ class LawnchairLocalSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm
         } else {
             currentJob = coroutineScope.launch {
                 val prefs2 = PreferenceManager2.getInstance(context)
-                val maxHistory = prefs2.maxRecentResultCount.firstBlocking()
+                val maxHistory = prefs2.current(prefs2.maxRecentResultCount)
 
                 val historyResults = historySearchProvider.getRecentKeywords(context, maxHistory)
 
@@ -129,13 +159,18 @@ class LawnchairLocalSearchAlgorithm(context: Context) : LawnchairSearchAlgorithm
         currentJob?.cancel()
     }
 
+    override fun destroy() {
+        currentJob?.cancel()
+        resultCache.destroy()
+    }
+
     private fun generateActionResults(query: String): List<SearchResult.Action> {
         val actions = mutableListOf<SearchResult.Action>()
         val prefs = PreferenceManager.getInstance(context)
         val prefs2 = PreferenceManager2.getInstance(context)
 
         if (prefs.searchResultStartPageSuggestion.get()) {
-            val provider = prefs2.webSuggestionProvider.firstBlocking()
+            val provider = prefs2.current(prefs2.webSuggestionProvider)
             val webProvider = provider.configure(context)
 
             val providerName = if (webProvider is CustomWebSearchProvider) {
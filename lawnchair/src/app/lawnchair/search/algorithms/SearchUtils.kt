@@ -3,43 +3,48 @@ package app.lawnchair.search.algorithms
 import android.content.Context
 import android.content.pm.ShortcutInfo
 import app.lawnchair.launcher
-import app.lawnchair.ui.preferences.components.HiddenAppsInSearch
+import app.lawnchair.search.algorithms.engine.provider.apps.AppSearchIndex
 import com.android.launcher3.model.data.AppInfo
 import com.android.launcher3.popup.PopupPopulator
 import com.android.launcher3.search.StringMatcherUtility
 import com.android.launcher3.shortcuts.ShortcutRequest
 import java.util.Locale
-import me.xdrop.fuzzywuzzy.FuzzySearch
 import me.xdrop.fuzzywuzzy.algorithms.WeightedRatio
 
 object SearchUtils {
-    fun normalSearch(apps: List<AppInfo>, query: String, maxResultsCount: Int, hiddenApps: Set<String>, hiddenAppsInSearch: String): List<AppInfo> {
+    private const val FUZZY_SCORE_CUTOFF = 65
+
+    private class AppScore(val app: AppInfo, val score: Int)
+
+    fun normalSearch(index: AppSearchIndex, query: String, maxResultsCount: Int, hiddenApps: Set<String>, hiddenAppsInSearch: String): List<AppInfo> {
         // Do an intersection of the words in the query and each title, and filter out all the
         // apps that don't match all of the words in the query.
         val queryTextLower = query.lowercase(Locale.getDefault())
         val matcher = StringMatcherUtility.StringMatcher.getInstance()
-        return apps.asSequence()
-            .filter { StringMatcherUtility.matches(queryTextLower, it.title.toString(), matcher) }
-            .filterHiddenApps(queryTextLower, hiddenApps, hiddenAppsInSearch)
+        return index.entries.asSequence()
+            .filter { StringMatcherUtility.matches(queryTextLower, it.title, matcher) }
+            .filterNot { index.isHidden(it, queryTextLower, hiddenApps, hiddenAppsInSearch) }
+            .map { it.app }
             .take(maxResultsCount)
             .toList()
     }
 
-    fun fuzzySearch(apps: List<AppInfo>, query: String, maxResultsCount: Int, hiddenApps: Set<String>, hiddenAppsInSearch: String): List<AppInfo> {
+    fun fuzzySearch(index: AppSearchIndex, query: String, maxResultsCount: Int, hiddenApps: Set<String>, hiddenAppsInSearch: String): List<AppInfo> {
         val queryTextLower = query.lowercase(Locale.getDefault())
-        val filteredApps = apps.asSequence()
-            .filterHiddenApps(queryTextLower, hiddenApps, hiddenAppsInSearch)
-            .toList()
-        val matches = FuzzySearch.extractSorted(
-            queryTextLower,
-            filteredApps,
-            { it.sectionName + it.title },
-            WeightedRatio(),
-            65,
-        )
+        val ratio = WeightedRatio()
+        val matches = mutableListOf<AppScore>()
+        for (entry in index.entries) {
+            if (index.isHidden(entry, queryTextLower, hiddenApps, hiddenAppsInSearch)) continue
+            val score = ratio.apply(queryTextLower, entry.fuzzyKey)
+            if (score >= FUZZY_SCORE_CUTOFF) {
+                matches.add(AppScore(entry.app, score))
+            }
+        }
+        // Stable sort keeps the app list order for equal scores, same as FuzzySearch.extractSorted
+        matches.sortByDescending { it.score }
 
         return matches.take(maxResultsCount)
-            .map { it.referent }
+            .map { it.app }
     }
 
     fun getShortcuts(app: AppInfo, context: Context): List<ShortcutInfo> {
@@ -49,26 +54,3 @@ object SearchUtils {
         return PopupPopulator.sortAndFilterShortcuts(shortcuts)
     }
 }
-
-fun Sequence<AppInfo>.filterHiddenApps(
-    query: String,
-    hiddenApps: Set<String>,
-    hiddenAppsInSearch: String,
-): Sequence<AppInfo> {
-    return when (hiddenAppsInSearch) {
-        HiddenAppsInSearch.ALWAYS -> {
-            this
-        }
-
-        HiddenAppsInSearch.IF_NAME_TYPED -> {
-            filter {
-                it.toComponentKey().toString() !in hiddenApps ||
-                    it.title.toString().lowercase(Locale.getDefault()) == query
-            }
-        }
-
-        else -> {
-            filter { it.toComponentKey().toString() !in hiddenApps }
-        }
-    }
-}
@@ -0,0 +1,54 @@
+package app.lawnchair.search.algorithms.data
+
+import app.lawnchair.search.index.SearchIndexQuery
+
+/**
+ * What a file search result was matched against, so that it can be matched against a longer
+ * query the same way the backend that found it would.
+ */
+sealed interface FileMatch {
+
+    fun matches(query: String): Boolean
+
+    /**
+     * Found in the search index, which matches the tokens of the query as prefixes of the tokens
+     * of the name and path.
+     */
+    data class Indexed(val name: String, val path: String) : FileMatch {
+        override fun matches(query: String) = SearchIndexQuery.matches(query, name, path)
+    }
+
+    /**
+     * Found by a MediaStore selection of `column LIKE '%query%'` over each of [columns], which
+     * hold the raw column values of the row. NULL columns never match.
+     */
+    data class MediaStoreLike(val columns: List<String?>) : FileMatch {
+        override fun matches(query: String): Boolean {
+            val pattern = likePattern("%$query%")
+            return columns.any { it != null && pattern.matches(it.asciiLowercase()) }
+        }
+    }
+
+    private companion object {
+        /**
+         * Turns a LIKE pattern without an ESCAPE clause into a regex: `%` matches any sequence of
+         * characters and `_` any single character. Like SQLite, only ASCII letters are matched
+         * case-insensitively, so the value must be passed through [asciiLowercase].
+         */
+        fun likePattern(pattern: String): Regex {
+            val regex = StringBuilder()
+            pattern.asciiLowercase().codePoints().forEach { codePoint ->
+                when (codePoint) {
+                    '%'.code -> regex.append(".*")
+                    '_'.code -> regex.append('.')
+                    else -> regex.append(Regex.escape(String(Character.toChars(codePoint))))
+                }
+            }
+            return Regex(regex.toString(), RegexOption.DOT_MATCHES_ALL)
+        }
+
+        fun String.asciiLowercase(): String = buildString(length) {
+            this@asciiLowercase.forEach { append(if (it in 'A'..'Z') it + ('a' - 'A') else it) }
+        }
+    }
+}
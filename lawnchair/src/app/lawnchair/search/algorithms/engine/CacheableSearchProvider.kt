@@ -0,0 +1,41 @@
+package app.lawnchair.search.algorithms.engine
+
+import android.content.Context
+import android.net.Uri
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.map
+
+/**
+ * A [SearchProvider] whose results can be cached and reused by [SearchResultCache].
+ */
+interface CacheableSearchProvider : SearchProvider {
+
+    /**
+     * Content URIs backing this provider. Cached results are dropped when any of them change.
+     */
+    val contentUris: List<Uri>
+
+    /**
+     * The maximum number of results a query can return. By default, a result list shorter than
+     * this is complete, so the results of any longer query starting with it are a subset of it.
+     */
+    fun maxResults(context: Context): Int
+
+    /**
+     * Returns whether [result] matches [query]. Used to narrow the complete results of a shorter
+     * query instead of querying the underlying content provider again.
+     */
+    fun matches(result: SearchResult, query: String): Boolean
+
+    /**
+     * Like [search], but also tells whether each list holds all the results of [query].
+     * Providers whose lists can be cut short before [maxResults] must override this.
+     */
+    fun searchCacheable(context: Context, query: String): Flow<CacheableResults> =
+        search(context, query).map { CacheableResults(it, complete = it.size < maxResults(context)) }
+}
+
+/**
+ * Results of a [CacheableSearchProvider], and whether they are all the results of their query.
+ */
+class CacheableResults(val results: List<SearchResult>, val complete: Boolean)
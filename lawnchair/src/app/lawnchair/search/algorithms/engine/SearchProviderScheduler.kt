@@ -0,0 +1,130 @@
+package app.lawnchair.search.algorithms.engine
+
+import android.content.Context
+import android.os.SystemClock
+import android.util.Log
+import com.android.launcher3.dagger.LauncherComponentProvider
+import java.io.PrintWriter
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.atomic.AtomicBoolean
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.catch
+import kotlinx.coroutines.flow.channelFlow
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withTimeoutOrNull
+
+/**
+ * Runs a set of [SearchProvider]s in parallel and streams their results as they arrive.
+ *
+ * Unlike `combine`, a slow provider doesn't hold back the others: every time any provider
+ * emits, the returned flow emits the latest results of all providers that have emitted so far.
+ * Every provider runs in its own job with its own deadline, given by [deadlineMillis]. A
+ * provider that hasn't finished by then is cancelled and contributes whatever it emitted before
+ * the deadline, without taking time from the others. The latency of every provider is recorded
+ * in [SearchProviderLatency].
+ */
+class SearchProviderScheduler(
+    private val providers: List<SearchProvider>,
+    private val deadlineMillis: (SearchProvider) -> Long,
+) {
+
+    fun search(context: Context, query: String): Flow<List<SearchResult>> = channelFlow {
+        val latest = arrayOfNulls<List<SearchResult>>(providers.size)
+        val lock = Mutex()
+
+        providers.forEachIndexed { index, provider ->
+            launch {
+                val start = SystemClock.uptimeMillis()
+                var firstResultMillis = -1L
+                val completed = withTimeoutOrNull(deadlineMillis(provider)) {
+                    provider.search(context, query)
+                        .catch { e ->
+                            if (e is CancellationException) throw e
+                            Log.e(TAG, "Provider ${provider.id} failed", e)
+                        }
+                        .collect { results ->
+                            if (firstResultMillis < 0) {
+                                firstResultMillis = SystemClock.uptimeMillis() - start
+                            }
+                            // Sending under the lock keeps the snapshots in order, so the last
+                            // one sent always holds the latest results of every provider
+                            lock.withLock {
+                                latest[index] = results
+                                send(latest.flatMap { it.orEmpty() })
+                            }
+                        }
+                } != null
+                SearchProviderLatency.record(
+                    providerId = provider.id,
+                    firstResultMillis = firstResultMillis,
+                    totalMillis = SystemClock.uptimeMillis() - start,
+                    timedOut = !completed,
+                )
+            }
+        }
+    }
+
+    companion object {
+        private const val TAG = "SearchProviderScheduler"
+    }
+}
+
+/**
+ * Per-provider latency statistics for local search, included in the launcher dump.
+ */
+object SearchProviderLatency {
+
+    private class Stats {
+        var count = 0
+        var timeouts = 0
+        var answered = 0
+        var lastFirstResultMillis = -1L
+        var totalFirstResultMillis = 0L
+        var maxFirstResultMillis = 0L
+        var lastTotalMillis = 0L
+    }
+
+    private val stats = ConcurrentHashMap<String, Stats>()
+    private val registered = AtomicBoolean(false)
+
+    /**
+     * Adds the statistics to the launcher dump. Safe to call multiple times.
+     */
+    fun register(context: Context) {
+        if (registered.compareAndSet(false, true)) {
+            LauncherComponentProvider.get(context).dumpManager.register(::dump)
+        }
+    }
+
+    fun record(providerId: String, firstResultMillis: Long, totalMillis: Long, timedOut: Boolean) {
+        val entry = stats.getOrPut(providerId) { Stats() }
+        synchronized(entry) {
+            entry.count++
+            if (timedOut) entry.timeouts++
+            entry.lastFirstResultMillis = firstResultMillis
+            entry.lastTotalMillis = totalMillis
+            if (firstResultMillis >= 0) {
+                entry.answered++
+                entry.totalFirstResultMillis += firstResultMillis
+                entry.maxFirstResultMillis = maxOf(entry.maxFirstResultMillis, firstResultMillis)
+            }
+        }
+    }
+
+    fun dump(prefix: String, writer: PrintWriter, args: Array<String>?) {
+        writer.println("${prefix}SearchProviderLatency:")
+        stats.forEach { (id, entry) ->
+            synchronized(entry) {
+                val average = if (entry.answered > 0) entry.totalFirstResultMillis / entry.answered else -1
+                writer.println(
+                    "$prefix\t$id: queries=${entry.count} timeouts=${entry.timeouts}" +
+                        " firstResultMs(last=${entry.lastFirstResultMillis} avg=$average" +
+                        " max=${entry.maxFirstResultMillis}) lastTotalMs=${entry.lastTotalMillis}",
+                )
+            }
+        }
+    }
+}
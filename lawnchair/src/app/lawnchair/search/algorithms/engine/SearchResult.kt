@@ -4,6 +4,7 @@ import android.content.pm.ShortcutInfo
 import androidx.annotation.DrawableRes
 import androidx.annotation.StringRes
 import app.lawnchair.search.algorithms.data.ContactInfo
+import app.lawnchair.search.algorithms.data.FileMatch
 import app.lawnchair.search.algorithms.data.IFileInfo
 import app.lawnchair.search.algorithms.data.RecentKeyword
 import app.lawnchair.search.algorithms.data.SettingInfo
@@ -16,7 +17,7 @@ import com.android.launcher3.model.data.AppInfo
 sealed interface SearchResult {
     data class App(val data: AppInfo) : SearchResult
     data class Contact(val data: ContactInfo) : SearchResult
-    data class File(val data: IFileInfo) : SearchResult
+    data class File(val data: IFileInfo, val match: FileMatch) : SearchResult
     data class Setting(val data: SettingInfo) : SearchResult
     data class Shortcut(val data: ShortcutInfo) : SearchResult
     data class WebSuggestion(val suggestion: String, val provider: String) : SearchResult
@@ -0,0 +1,123 @@
+package app.lawnchair.search.algorithms.engine
+
+import android.content.Context
+import android.database.ContentObserver
+import android.util.LruCache
+import java.util.concurrent.ConcurrentHashMap
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+
+/**
+ * A size-bounded LRU cache of search results, keyed by provider id and query.
+ *
+ * Providers wrapped with [wrap] are only queried when neither the query itself nor a shorter
+ * query it extends is cached. When the user types one more character, the complete results of
+ * the previous query are narrowed in memory with [CacheableSearchProvider.matches], which saves
+ * a content provider round trip per keystroke.
+ *
+ * Cached results of a provider are dropped as soon as one of its
+ * [CacheableSearchProvider.contentUris] changes. Call [clear] when the cached results may be
+ * stale for other reasons (like preference changes), and [destroy] once the cache isn't needed.
+ */
+class SearchResultCache(
+    context: Context,
+    maxEntries: Int = DEFAULT_MAX_ENTRIES,
+) {
+
+    private class Entry(val results: List<SearchResult>, val complete: Boolean)
+
+    private val contentResolver = context.applicationContext.contentResolver
+    private val cache = LruCache<String, Entry>(maxEntries)
+    private val observers = mutableMapOf<String, ContentObserver>()
+    private val generations = ConcurrentHashMap<String, Int>()
+
+    /**
+     * Returns a [SearchProvider] that answers from this cache when possible and otherwise
+     * queries [provider] and caches its final results.
+     */
+    fun wrap(provider: CacheableSearchProvider): SearchProvider = object : SearchProvider {
+        override val id: String = provider.id
+
+        override fun search(context: Context, query: String): Flow<List<SearchResult>> = flow {
+            val cached = cache.get(key(provider, query)) ?: narrow(provider, query)
+            if (cached != null) {
+                emit(cached.results)
+                return@flow
+            }
+
+            observe(provider)
+            val generation = generations[provider.id] ?: 0
+            var lastResults: CacheableResults? = null
+            provider.searchCacheable(context, query).collect {
+                lastResults = it
+                emit(it.results)
+            }
+            // Don't cache results that may predate a change to the underlying data
+            if (generation != (generations[provider.id] ?: 0)) return@flow
+            lastResults?.let {
+                cache.put(key(provider, query), Entry(it.results, it.complete))
+            }
+        }
+    }
+
+    fun clear() {
+        cache.evictAll()
+    }
+
+    fun destroy() {
+        synchronized(observers) {
+            observers.values.forEach { contentResolver.unregisterContentObserver(it) }
+            observers.clear()
+        }
+        clear()
+    }
+
+    /**
+     * Looks for the longest cached query that [query] extends and whose results are complete,
+     * and filters its results down to [query].
+     */
+    private fun narrow(provider: CacheableSearchProvider, query: String): Entry? {
+        for (length in query.length - 1 downTo 1) {
+            val prefix = query.substring(0, length)
+            val entry = cache.get(key(provider, prefix)) ?: continue
+            if (!entry.complete) return null
+            val narrowed = Entry(entry.results.filter { provider.matches(it, query) }, complete = true)
+            cache.put(key(provider, query), narrowed)
+            return narrowed
+        }
+        return null
+    }
+
+    private fun observe(provider: CacheableSearchProvider) {
+        if (provider.contentUris.isEmpty()) return
+        synchronized(observers) {
+            if (provider.id in observers) return
+            val observer = object : ContentObserver(null) {
+                override fun onChange(selfChange: Boolean) {
+                    invalidate(provider)
+                }
+            }
+            provider.contentUris.forEach {
+                runCatching {
+                    contentResolver.registerContentObserver(it, true, observer)
+                }
+            }
+            observers[provider.id] = observer
+        }
+    }
+
+    private fun invalidate(provider: SearchProvider) {
+        generations.merge(provider.id, 1, Int::plus)
+        val prefix = provider.id + KEY_SEPARATOR
+        cache.snapshot().keys
+            .filter { it.startsWith(prefix) }
+            .forEach { cache.remove(it) }
+    }
+
+    private fun key(provider: SearchProvider, query: String) = provider.id + KEY_SEPARATOR + query
+
+    companion object {
+        private const val DEFAULT_MAX_ENTRIES = 64
+        private const val KEY_SEPARATOR = '\u0000'
+    }
+}
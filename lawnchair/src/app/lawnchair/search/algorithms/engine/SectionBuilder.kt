@@ -6,7 +6,6 @@ import app.lawnchair.search.adapter.SPACE
 import app.lawnchair.search.adapter.SearchTargetCompat
 import app.lawnchair.search.adapter.SearchTargetFactory
 import com.android.launcher3.R
-import com.patrykmichalik.opto.core.firstBlocking
 
 sealed interface SectionBuilder {
     /**
@@ -131,7 +130,8 @@ data object HistorySectionBuilder : SectionBuilder {
         factory: SearchTargetFactory,
         results: List<SearchResult>,
     ): List<SearchTargetCompat> {
-        val webSuggestion = PreferenceManager2.getInstance(context).webSuggestionProvider.firstBlocking()
+        val prefs2 = PreferenceManager2.getInstance(context)
+        val webSuggestion = prefs2.current(prefs2.webSuggestionProvider)
 
         val history = results.filterIsInstance<SearchResult.History>()
         if (history.isEmpty()) {
@@ -3,150 +3,210 @@ package app.lawnchair.search.algorithms.engine.provider
 import android.Manifest
 import android.content.Context
 import android.content.pm.PackageManager
+import android.database.Cursor
+import android.net.Uri
 import android.provider.ContactsContract
 import android.util.Log
 import app.lawnchair.preferences.PreferenceManager
 import app.lawnchair.preferences2.PreferenceManager2
 import app.lawnchair.search.algorithms.data.ContactInfo
+import app.lawnchair.search.algorithms.engine.CacheableResults
+import app.lawnchair.search.algorithms.engine.CacheableSearchProvider
 import app.lawnchair.search.algorithms.engine.SearchPermission
-import app.lawnchair.search.algorithms.engine.SearchProvider
 import app.lawnchair.search.algorithms.engine.SearchResult
-import com.patrykmichalik.opto.core.firstBlocking
+import app.lawnchair.search.index.SearchIndexManager
+import app.lawnchair.search.index.SearchIndexQuery
 import kotlinx.coroutines.CoroutineExceptionHandler
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
+import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.withContext
 import kotlinx.serialization.json.buildJsonArray
 import kotlinx.serialization.json.buildJsonObject
 import kotlinx.serialization.json.put
 
-object ContactsSearchProvider : SearchProvider, SearchPermission {
+object ContactsSearchProvider : CacheableSearchProvider, SearchPermission {
     override val id: String = "contacts"
 
+    override val contentUris: List<Uri> = listOf(ContactsContract.Data.CONTENT_URI)
+
+    override fun maxResults(context: Context): Int {
+        val prefs2 = PreferenceManager2.getInstance(context)
+        return prefs2.current(prefs2.maxPeopleResultCount)
+    }
+
+    /**
+     * Whether [contact] is a result for [query]: its name contains [query], like the
+     * `DISPLAY_NAME LIKE %query%` selection, or every token of [query] is a prefix of a token of
+     * its name or number, like the index.
+     */
+    private fun matches(contact: ContactInfo, query: String): Boolean =
+        contact.name.contains(query, ignoreCase = true) ||
+            SearchIndexQuery.matches(query, contact.name, contact.number)
+
+    override fun matches(result: SearchResult, query: String): Boolean =
+        result is SearchResult.Contact && matches(result.data, query)
+
     override fun search(
         context: Context,
         query: String,
-    ): Flow<List<SearchResult>> = flow {
+    ): Flow<List<SearchResult>> = searchCacheable(context, query).map { it.results }
+
+    override fun searchCacheable(
+        context: Context,
+        query: String,
+    ): Flow<CacheableResults> = flow {
         val prefs = PreferenceManager.getInstance(context)
         val prefs2 = PreferenceManager2.getInstance(context)
 
         val permissionsGranted = checkPermission(context)
         if (query.isBlank() || !prefs.searchResultPeople.get() || !permissionsGranted) {
-            emit(emptyList())
+            emit(CacheableResults(emptyList(), complete = false))
             return@flow
         }
 
-        val maxResults = prefs2.maxPeopleResultCount.firstBlocking()
+        val maxResults = prefs2.current(prefs2.maxPeopleResultCount)
 
-        // Call the newly encapsulated, private function.
-        val contactInfoList = findContactsByName(context, query, maxResults)
+        val indexed = SearchIndexManager.getInstance(context).searchContacts(query, maxResults)
+        val (contactInfoList, complete) = if (indexed != null) {
+            indexed to (indexed.size < maxResults)
+        } else {
+            findContactsByName(context, query, maxResults)
+        }
 
         val searchResults = contactInfoList.map { contactInfo ->
             SearchResult.Contact(data = contactInfo)
         }
-        emit(searchResults)
+        emit(CacheableResults(searchResults, complete))
     }
 
     override fun checkPermission(context: Context): Boolean {
         return context.checkSelfPermission(Manifest.permission.READ_CONTACTS) == PackageManager.PERMISSION_GRANTED
     }
 
-    private suspend fun findContactsByName(context: Context, query: String, max: Int): List<ContactInfo> {
+    /**
+     * Returns the contacts named like [query], and whether they are all of them: the row cap of
+     * the query can cut them short before [max] contacts are found.
+     */
+    private suspend fun findContactsByName(context: Context, query: String, max: Int): Pair<List<ContactInfo>, Boolean> {
         try {
-            if (query.isEmpty() || query.isBlank() || max <= 0) return emptyList()
+            if (query.isEmpty() || query.isBlank() || max <= 0) return emptyList<ContactInfo>() to false
             val exceptionHandler = CoroutineExceptionHandler { _, e ->
                 Log.e("ContactSearch", "Something went wrong ", e)
             }
             return withContext(Dispatchers.IO + exceptionHandler) {
                 val contactMap = HashMap<String, ContactInfo>()
-
-                val projection = arrayOf(
-                    ContactsContract.Data._ID,
-                    ContactsContract.Data.CONTACT_ID,
-                    ContactsContract.Data.DISPLAY_NAME,
-                    ContactsContract.Data.DATA1,
-                    ContactsContract.Data.DATA3,
-                    ContactsContract.Data.DATA5,
-                    "phonebook_label",
-                    "account_type",
-                    "account_name",
-                    ContactsContract.Data.MIMETYPE,
-                    ContactsContract.Data.PHOTO_URI,
-                )
+                val results = LinkedHashMap<String, ContactInfo>()
+                val rowLimit = max * MAX_ROWS_PER_CONTACT
+                var reachedRowLimit = true
 
                 val selection = ContactsContract.Data.DISPLAY_NAME + " LIKE ?"
                 val selectionArgs = arrayOf("%$query%")
+                // A contact spans several data rows, so cap the rows rather than the contacts
+                val uri = ContactsContract.Data.CONTENT_URI.buildUpon()
+                    .appendQueryParameter(ContactsContract.LIMIT_PARAM_KEY, rowLimit.toString())
+                    .build()
 
                 context.contentResolver.query(
-                    ContactsContract.Data.CONTENT_URI,
-                    projection,
+                    uri,
+                    PROJECTION,
                     selection,
                     selectionArgs,
                     null,
                 )?.use {
-                    while (it.moveToNext() && contactMap.size < max) {
-                        val contactIdIndex = it.getColumnIndex(ContactsContract.Data.CONTACT_ID)
-                        val displayNameIndex = it.getColumnIndex(ContactsContract.Data.DISPLAY_NAME)
-                        val data1Index = it.getColumnIndex(ContactsContract.Data.DATA1)
-                        val data3Index = it.getColumnIndex(ContactsContract.Data.DATA3)
-                        val data5Index = it.getColumnIndex(ContactsContract.Data.DATA5)
-                        val phonebookLabelIndex = it.getColumnIndex("phonebook_label")
-                        val accountTypeIndex = it.getColumnIndex("account_type")
-                        val accountNameIndex = it.getColumnIndex("account_name")
-                        val mimeTypeIndex = it.getColumnIndex(ContactsContract.Data.MIMETYPE)
-                        val photoUriIndex = it.getColumnIndex(ContactsContract.Data.PHOTO_URI)
-                        val contactId = it.getString(contactIdIndex)
-                        val displayName = it.getString(displayNameIndex)
-                        val data1 = it.getString(data1Index)
-                        val data3 = it.getString(data3Index)
-                        val data5 = it.getString(data5Index)
-                        val phonebookLabel = it.getString(phonebookLabelIndex)
-                        val accountType = it.getString(accountTypeIndex)
-                        val accountName = it.getString(accountNameIndex)
-                        val mimeType = it.getString(mimeTypeIndex)
-                        val photoUri = it.getString(photoUriIndex)
-                        val phoneNumber = data3 ?: data5 ?: data1
-                        val key = contactId ?: phoneNumber
-                        val imageUri = photoUri ?: ""
-                        val phonebookLabel2 = phonebookLabel ?: ""
-                        val pkg = contactId + displayName + phoneNumber
-                        if (key != null && !EXCLUDED_MIME_TYPES.contains(mimeType)) {
-                            contactMap[key] = ContactInfo(
-                                contactId,
-                                displayName,
-                                phoneNumber,
-                                phonebookLabel2,
-                                imageUri,
-                                pkg,
-                            )
-                        } else {
-                            if (contactMap.containsKey(contactId)) {
-                                val existingContact = contactMap[contactId]
-                                val jsonArray = buildJsonArray {
-                                    add(
-                                        buildJsonObject {
-                                            put(CONTACT_ACCOUNT_ID, key)
-                                            put(CONTACT_ACCOUNT_TITLE, data5)
-                                            put(CONTACT_ACCOUNT_NAME, accountName)
-                                            put(CONTACT_ACCOUNT_TYPE, accountType)
-                                            put(CONTACT_ACCOUNT_MIME, mimeType)
-                                        },
-                                    )
-                                }
-                                existingContact?.packages = jsonArray.toString()
-                            }
-                        }
+                    reachedRowLimit = it.count >= rowLimit
+                    while (results.size < max && it.moveToNext()) {
+                        val key = collectContact(it, contactMap) ?: continue
+                        val contact = contactMap.getValue(key)
+                        if (matches(contact, query)) results[key] = contact
                     }
                 }
-                contactMap.values.toList()
+                results.values.toList() to (results.size < max && !reachedRowLimit)
             }
         } catch (e: Exception) {
             Log.e("ContactSearch", "Something went wrong ", e)
-            return emptyList()
+            return emptyList<ContactInfo>() to false
         }
     }
 
+    internal val PROJECTION = arrayOf(
+        ContactsContract.Data._ID,
+        ContactsContract.Data.CONTACT_ID,
+        ContactsContract.Data.DISPLAY_NAME,
+        ContactsContract.Data.DATA1,
+        ContactsContract.Data.DATA3,
+        ContactsContract.Data.DATA5,
+        "phonebook_label",
+        "account_type",
+        "account_name",
+        ContactsContract.Data.MIMETYPE,
+        ContactsContract.Data.PHOTO_URI,
+    )
+
+    /**
+     * Merges the [PROJECTION] row [cursor] points at into [contactMap], keyed by contact id, and
+     * returns the key of the contact the row was merged into, or null if there is none.
+     */
+    internal fun collectContact(cursor: Cursor, contactMap: MutableMap<String, ContactInfo>): String? {
+        val contactIdIndex = cursor.getColumnIndex(ContactsContract.Data.CONTACT_ID)
+        val displayNameIndex = cursor.getColumnIndex(ContactsContract.Data.DISPLAY_NAME)
+        val data1Index = cursor.getColumnIndex(ContactsContract.Data.DATA1)
+        val data3Index = cursor.getColumnIndex(ContactsContract.Data.DATA3)
+        val data5Index = cursor.getColumnIndex(ContactsContract.Data.DATA5)
+        val phonebookLabelIndex = cursor.getColumnIndex("phonebook_label")
+        val accountTypeIndex = cursor.getColumnIndex("account_type")
+        val accountNameIndex = cursor.getColumnIndex("account_name")
+        val mimeTypeIndex = cursor.getColumnIndex(ContactsContract.Data.MIMETYPE)
+        val photoUriIndex = cursor.getColumnIndex(ContactsContract.Data.PHOTO_URI)
+        val contactId = cursor.getString(contactIdIndex)
+        val displayName = cursor.getString(displayNameIndex)
+        val data1 = cursor.getString(data1Index)
+        val data3 = cursor.getString(data3Index)
+        val data5 = cursor.getString(data5Index)
+        val phonebookLabel = cursor.getString(phonebookLabelIndex)
+        val accountType = cursor.getString(accountTypeIndex)
+        val accountName = cursor.getString(accountNameIndex)
+        val mimeType = cursor.getString(mimeTypeIndex)
+        val photoUri = cursor.getString(photoUriIndex)
+        val phoneNumber = data3 ?: data5 ?: data1
+        val key = contactId ?: phoneNumber
+        val imageUri = photoUri ?: ""
+        val phonebookLabel2 = phonebookLabel ?: ""
+        val pkg = contactId + displayName + phoneNumber
+        if (key != null && !EXCLUDED_MIME_TYPES.contains(mimeType)) {
+            contactMap[key] = ContactInfo(
+                contactId,
+                displayName,
+                phoneNumber,
+                phonebookLabel2,
+                imageUri,
+                pkg,
+            )
+            return key
+        } else {
+            if (contactMap.containsKey(contactId)) {
+                val existingContact = contactMap[contactId]
+                val jsonArray = buildJsonArray {
+                    add(
+                        buildJsonObject {
+                            put(CONTACT_ACCOUNT_ID, key)
+                            put(CONTACT_ACCOUNT_TITLE, data5)
+                            put(CONTACT_ACCOUNT_NAME, accountName)
+                            put(CONTACT_ACCOUNT_TYPE, accountType)
+                            put(CONTACT_ACCOUNT_MIME, mimeType)
+                        },
+                    )
+                }
+                existingContact?.packages = jsonArray.toString()
+                return contactId
+            }
+        }
+        return null
+    }
+
+    private const val MAX_ROWS_PER_CONTACT = 16
+
     private const val CONTACT_ACCOUNT_ID = "contact.id"
     private const val CONTACT_ACCOUNT_MIME = "contact.mime"
     private const val CONTACT_ACCOUNT_NAME = "contact.account.name"
@@ -8,10 +8,12 @@ import android.util.Log
 import app.lawnchair.preferences.PreferenceManager
 import app.lawnchair.preferences2.PreferenceManager2
 import app.lawnchair.search.algorithms.data.FileInfo
+import app.lawnchair.search.algorithms.data.FileMatch
 import app.lawnchair.search.algorithms.data.FolderInfo
 import app.lawnchair.search.algorithms.data.IFileInfo
-import app.lawnchair.search.algorithms.engine.SearchProvider
+import app.lawnchair.search.algorithms.engine.CacheableSearchProvider
 import app.lawnchair.search.algorithms.engine.SearchResult
+import app.lawnchair.search.index.SearchIndexManager
 import app.lawnchair.util.FileAccessManager
 import app.lawnchair.util.FileAccessState
 import app.lawnchair.util.audioFileTypes
@@ -22,7 +24,6 @@ import app.lawnchair.util.isHidden
 import app.lawnchair.util.isRegularFile
 import app.lawnchair.util.mimeType2Extension
 import app.lawnchair.util.videoFileTypes
-import com.patrykmichalik.opto.core.firstBlocking
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.async
 import kotlinx.coroutines.coroutineScope
@@ -32,9 +33,20 @@ import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.withContext
 import okio.Path.Companion.toPath
 
-object FileSearchProvider : SearchProvider {
+object FileSearchProvider : CacheableSearchProvider {
     override val id = "Files"
 
+    override val contentUris: List<Uri> = listOf(MediaStore.AUTHORITY_URI)
+
+    override fun maxResults(context: Context): Int {
+        val prefs2 = PreferenceManager2.getInstance(context)
+        return prefs2.current(prefs2.maxFileResultCount)
+    }
+
+    // Each result keeps the values it was matched on by the index or the MediaStore selection
+    override fun matches(result: SearchResult, query: String): Boolean =
+        result is SearchResult.File && result.match.matches(query)
+
     override fun search(
         context: Context,
         query: String,
@@ -54,7 +66,7 @@ object FileSearchProvider : SearchProvider {
         }
 
         val prefs2 = PreferenceManager2.getInstance(context)
-        val maxResults = prefs2.maxFileResultCount.firstBlocking()
+        val maxResults = prefs2.current(prefs2.maxFileResultCount)
 
         // check for permissions:
         val fileAccessManager = FileAccessManager.getInstance(context)
@@ -64,7 +76,11 @@ object FileSearchProvider : SearchProvider {
 
         val results = coroutineScope {
             val allFilesDeferred = if (allFilesGranted && searchAllFiles) {
-                async { searchAllFiles(context, query, maxResults).first() }
+                async {
+                    SearchIndexManager.getInstance(context).searchFiles(query, maxResults)
+                        ?.map { SearchResult.File(it, FileMatch.Indexed(it.name, it.path)) }
+                        ?: searchAllFiles(context, query, maxResults).first()
+                }
             } else {
                 null
             }
@@ -93,8 +109,7 @@ object FileSearchProvider : SearchProvider {
             }
         }
 
-        val uniqueResults = results.distinctBy { it.path }.take(maxResults)
-        emit(uniqueResults.map { SearchResult.File(it) })
+        emit(results.distinctBy { it.data.path }.take(maxResults))
     }
 
     private val IMAGE_MIME_TYPES = imageFileTypes.values.toTypedArray()
@@ -108,8 +123,8 @@ object FileSearchProvider : SearchProvider {
         context: Context,
         query: String,
         maxResults: Int,
-    ): Flow<List<IFileInfo>> = flow {
-        val results = mutableListOf<IFileInfo>()
+    ): Flow<List<SearchResult.File>> = flow {
+        val results = mutableListOf<SearchResult.File>()
 
         results.addAll(
             queryMediaStoreByType(
@@ -131,7 +146,7 @@ object FileSearchProvider : SearchProvider {
             ).toList(),
         )
 
-        val uniqueResults = results.distinctBy { it.path }.take(maxResults)
+        val uniqueResults = results.distinctBy { it.data.path }.take(maxResults)
 
         emit(uniqueResults)
     }
@@ -143,7 +158,7 @@ object FileSearchProvider : SearchProvider {
         context: Context,
         query: String,
         maxResults: Int,
-    ): Flow<List<IFileInfo>> = flow {
+    ): Flow<List<SearchResult.File>> = flow {
         val audioInfoList = queryMediaStoreByType(
             context = context,
             uri = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
@@ -164,7 +179,7 @@ object FileSearchProvider : SearchProvider {
         context: Context,
         query: String,
         maxResults: Int,
-    ): Flow<List<IFileInfo>> = flow {
+    ): Flow<List<SearchResult.File>> = flow {
         val fileInfoList = queryGeneralFilesInMediaStore(
             context = context,
             keyword = query,
@@ -174,7 +189,7 @@ object FileSearchProvider : SearchProvider {
         emit(fileInfoList)
     }
 
-    private val commonProjection = arrayOf(
+    internal val commonProjection = arrayOf(
         MediaStore.MediaColumns.DATA,
         MediaStore.MediaColumns.DISPLAY_NAME,
         MediaStore.MediaColumns.SIZE,
@@ -196,7 +211,7 @@ object FileSearchProvider : SearchProvider {
      * @param maxResult The maximum number of results to return.
      * @param mimeTypes An optional array of MIME types to filter the results.
      *                  If null or empty, no MIME type filtering is applied.
-     * @return A [Sequence] of [FileInfo] objects matching the query criteria.
+     * @return A [Sequence] of [FileInfo] results matching the query criteria.
      *         The sequence is processed lazily.
      */
     private suspend fun queryMediaStoreByType(
@@ -205,7 +220,7 @@ object FileSearchProvider : SearchProvider {
         keyword: String,
         maxResult: Int,
         mimeTypes: Array<String>? = null,
-    ): Sequence<FileInfo> = withContext(Dispatchers.IO) {
+    ): Sequence<SearchResult.File> = withContext(Dispatchers.IO) {
         val selectionClauses = mutableListOf<String>()
         val selectionArgsList = mutableListOf<String>()
 
@@ -229,7 +244,12 @@ object FileSearchProvider : SearchProvider {
             selectionArgs = selectionArgs,
             maxResult = maxResult,
         ) { cursor ->
-            createFileInfoFromCursor(cursor)
+            createFileInfoFromCursor(cursor)?.let {
+                SearchResult.File(
+                    it,
+                    cursor.likeMatch(MediaStore.MediaColumns.DISPLAY_NAME, MediaStore.MediaColumns.TITLE),
+                )
+            }
         }
     }
 
@@ -242,7 +262,7 @@ object FileSearchProvider : SearchProvider {
         maxResult: Int,
         path: String = "",
         mimeTypes: Array<String>? = null,
-    ): Sequence<IFileInfo> = withContext(Dispatchers.IO) {
+    ): Sequence<SearchResult.File> = withContext(Dispatchers.IO) {
         val selectionClauses = mutableListOf<String>()
         val selectionArgsList = mutableListOf<String>()
 
@@ -272,24 +292,43 @@ object FileSearchProvider : SearchProvider {
             selectionArgs,
             maxResult = maxResult,
         ) { cursor ->
-            // Determine if it's a file or folder.
-            // A simple check could be if MIME_TYPE is null for folders, or check file system.
-            // However, it's more robust to check the file system attributes if possible,
-            // or rely on MediaStore.Files.FileColumns.MEDIA_TYPE (equals MEDIA_TYPE_NONE for folders)
-            // For now, let's use a filesystem check on the path.
-            val filePath = cursor.getString(cursor.getColumnIndexOrThrow(commonProjection[0])).toPath()
-            if (filePath.isDirectory() && !filePath.isRegularFile()) {
-                createFolderInfoFromCursor(cursor)
-            } else {
-                createFileInfoFromCursor(cursor)
+            readFileInfo(cursor)?.let {
+                SearchResult.File(
+                    it,
+                    cursor.likeMatch(MediaStore.MediaColumns.DATA, MediaStore.MediaColumns.DISPLAY_NAME),
+                )
             }
         }
     }
 
+    /**
+     * The match of the `LIKE` selection over [columns] of the current row.
+     */
+    private fun Cursor.likeMatch(vararg columns: String) =
+        FileMatch.MediaStoreLike(columns.map { getString(getColumnIndexOrThrow(it)) })
+
+    /**
+     * Creates a [FileInfo] or [FolderInfo] from a [commonProjection] row, or returns null when
+     * the item no longer exists or is hidden.
+     */
+    internal fun readFileInfo(cursor: Cursor): IFileInfo? {
+        // Determine if it's a file or folder.
+        // A simple check could be if MIME_TYPE is null for folders, or check file system.
+        // However, it's more robust to check the file system attributes if possible,
+        // or rely on MediaStore.Files.FileColumns.MEDIA_TYPE (equals MEDIA_TYPE_NONE for folders)
+        // For now, let's use a filesystem check on the path.
+        val filePath = cursor.getString(cursor.getColumnIndexOrThrow(commonProjection[0]))?.toPath() ?: return null
+        return if (filePath.isDirectory() && !filePath.isRegularFile()) {
+            createFolderInfoFromCursor(cursor)
+        } else {
+            createFileInfoFromCursor(cursor)
+        }
+    }
+
     /**
      * Core ContentResolver query logic.
      */
-    private suspend inline fun <T : IFileInfo> contentResolverQuery(
+    private suspend inline fun <T : Any> contentResolverQuery(
         context: Context,
         uri: Uri,
         projection: Array<String>?,
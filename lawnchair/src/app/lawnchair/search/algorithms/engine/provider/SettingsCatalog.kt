@@ -0,0 +1,129 @@
+package app.lawnchair.search.algorithms.engine.provider
+
+import android.provider.Settings
+import android.util.Log
+import app.lawnchair.search.algorithms.data.SettingInfo
+import java.lang.reflect.Modifier
+import java.util.Locale
+
+/**
+ * An immutable catalog of the `Settings.ACTION_*` intents that can be offered as search results.
+ *
+ * The catalog is built once, by reflecting on [Settings], the first time it's used. Each entry
+ * keeps its lowercase field name and the tokens of its humanized title (`ACTION_WIFI_SETTINGS`
+ * becomes "wifi settings"). A sorted token table answers token-prefix queries with a binary
+ * search, so queries never touch reflection.
+ */
+internal class SettingsCatalog private constructor(val entries: List<Entry>) {
+
+    class Entry(val info: SettingInfo) {
+        val nameLower: String = info.name.lowercase(Locale.ROOT)
+        val tokens: List<String> = nameLower.removePrefix("action_").split('_').filter { it.isNotEmpty() }
+    }
+
+    private val entriesById = entries.associateBy { it.info.id }
+
+    // All (token, entry index) pairs, sorted by token
+    private val sortedTokens: Array<String>
+    private val tokenEntries: IntArray
+
+    init {
+        val pairs = entries.flatMapIndexed { index, entry -> entry.tokens.map { it to index } }
+            .sortedBy { it.first }
+        sortedTokens = Array(pairs.size) { pairs[it].first }
+        tokenEntries = IntArray(pairs.size) { pairs[it].second }
+    }
+
+    /**
+     * Returns up to [max] settings matching [query]. Settings where every query token is a prefix
+     * of a title token come first, followed by settings whose field name merely contains the
+     * query, each in catalog order.
+     */
+    fun search(query: String, max: Int): List<SettingInfo> {
+        val queryLower = query.trim().lowercase(Locale.ROOT)
+        if (queryLower.isEmpty() || max <= 0) return emptyList()
+
+        val tokenMatches = findTokenMatches(queryLower)
+        val results = ArrayList<SettingInfo>(max)
+        for (index in tokenMatches) {
+            if (results.size == max) return results
+            results.add(entries[index].info)
+        }
+        for ((index, entry) in entries.withIndex()) {
+            if (results.size == max) break
+            if (!tokenMatches.contains(index) && entry.nameLower.contains(queryLower)) {
+                results.add(entry.info)
+            }
+        }
+        return results
+    }
+
+    /**
+     * Returns whether [info] would be returned for [query], ignoring the result limit.
+     */
+    fun matches(info: SettingInfo, query: String): Boolean {
+        val entry = entriesById[info.id] ?: return false
+        val queryLower = query.trim().lowercase(Locale.ROOT)
+        if (entry.nameLower.contains(queryLower)) return true
+        val queryTokens = queryLower.split(WHITESPACE).filter { it.isNotEmpty() }
+        return queryTokens.isNotEmpty() && queryTokens.all { q -> entry.tokens.any { it.startsWith(q) } }
+    }
+
+    private fun findTokenMatches(queryLower: String): Set<Int> {
+        val queryTokens = queryLower.split(WHITESPACE).filter { it.isNotEmpty() }
+        var result: Set<Int>? = null
+        for (token in queryTokens) {
+            val matches = entriesWithTokenPrefix(token)
+            result = result?.intersect(matches) ?: matches
+            if (result.isEmpty()) break
+        }
+        return result.orEmpty().sortedTo(LinkedHashSet())
+    }
+
+    private fun entriesWithTokenPrefix(prefix: String): Set<Int> {
+        var start = sortedTokens.binarySearch(prefix).let { if (it < 0) -it - 1 else it }
+        // binarySearch may land on any of several equal tokens
+        while (start > 0 && sortedTokens[start - 1] >= prefix) start--
+        val matches = mutableSetOf<Int>()
+        var i = start
+        while (i < sortedTokens.size && sortedTokens[i].startsWith(prefix)) {
+            matches.add(tokenEntries[i])
+            i++
+        }
+        return matches
+    }
+
+    companion object {
+        private const val TAG = "SettingsCatalog"
+        private val WHITESPACE = Regex("\\s+")
+
+        val instance: SettingsCatalog by lazy { SettingsCatalog(loadEntries()) }
+
+        private fun loadEntries(): List<Entry> = try {
+            Settings::class.java.fields
+                .asSequence()
+                .filter {
+                    it.type == String::class.java &&
+                        Modifier.isStatic(it.modifiers) &&
+                        it.name.startsWith("ACTION_")
+                }
+                .map { it.name to it.get(null) as String }
+                .filter { (name, action) ->
+                    !action.contains("REQUEST", ignoreCase = true) &&
+                        !name.contains("REQUEST", ignoreCase = true) &&
+                        !action.contains("PERMISSION", ignoreCase = true) &&
+                        !name.contains("DETAIL", ignoreCase = true) &&
+                        !name.contains("REMOTE", ignoreCase = true)
+                }
+                .map { (name, action) ->
+                    val id = name + action
+                    val requiresUri = action.contains("URI")
+                    Entry(SettingInfo(id, name, action, requiresUri))
+                }
+                .toList()
+        } catch (e: Exception) {
+            Log.e(TAG, "Failed to load settings actions", e)
+            emptyList()
+        }
+    }
+}
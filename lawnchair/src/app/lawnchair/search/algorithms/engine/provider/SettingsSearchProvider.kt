@@ -1,25 +1,41 @@
 package app.lawnchair.search.algorithms.engine.provider
 
 import android.content.Context
-import android.provider.Settings
+import android.net.Uri
 import android.util.Log
 import app.lawnchair.preferences.PreferenceManager
 import app.lawnchair.preferences2.PreferenceManager2
 import app.lawnchair.search.algorithms.data.SettingInfo
-import app.lawnchair.search.algorithms.engine.SearchProvider
+import app.lawnchair.search.algorithms.engine.CacheableSearchProvider
 import app.lawnchair.search.algorithms.engine.SearchResult
-import com.patrykmichalik.opto.core.firstBlocking
-import java.lang.reflect.Modifier
 import kotlinx.coroutines.CoroutineExceptionHandler
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
 import kotlinx.coroutines.withContext
 
-object SettingsSearchProvider : SearchProvider {
+object SettingsSearchProvider : CacheableSearchProvider {
 
     override val id: String = "settings"
 
+    // The settings actions are compiled into the framework and never change at runtime
+    override val contentUris: List<Uri> = emptyList()
+
+    override fun maxResults(context: Context): Int {
+        val prefs2 = PreferenceManager2.getInstance(context)
+        return prefs2.current(prefs2.maxSettingsEntryResultCount)
+    }
+
+    override fun matches(result: SearchResult, query: String): Boolean =
+        result is SearchResult.Setting && SettingsCatalog.instance.matches(result.data, query)
+
+    /**
+     * Builds the settings catalog ahead of the first query. Must be called on a background thread.
+     */
+    fun warmUp() {
+        SettingsCatalog.instance
+    }
+
     override fun search(
         context: Context,
         query: String,
@@ -33,7 +49,7 @@ object SettingsSearchProvider : SearchProvider {
             return@flow
         }
 
-        val maxResults = prefs2.maxSettingsEntryResultCount.firstBlocking()
+        val maxResults = prefs2.current(prefs2.maxSettingsEntryResultCount)
         val settingsInfoList = findSettingsByNameAndAction(query, maxResults)
 
         val searchResults = settingsInfoList.map { settingInfo ->
@@ -52,28 +68,7 @@ private suspend fun findSettingsByNameAndAction(query: String, max: Int): List<S
                 Log.e("SettingSearch", "Something went wrong ", e)
             },
         ) {
-            Settings::class.java.fields
-                .asSequence()
-                .filter {
-                    it.type == String::class.java &&
-                        Modifier.isStatic(it.modifiers) &&
-                        it.name.startsWith("ACTION_")
-                }
-                .map { it.name to it.get(null) as String }
-                .filter { (name, action) ->
-                    name.contains(query, ignoreCase = true) &&
-                        !action.contains("REQUEST", ignoreCase = true) &&
-                        !name.contains("REQUEST", ignoreCase = true) &&
-                        !action.contains("PERMISSION", ignoreCase = true) &&
-                        !name.contains("DETAIL", ignoreCase = true) &&
-                        !name.contains("REMOTE", ignoreCase = true)
-                }
-                .map { (name, action) ->
-                    val id = name + action
-                    val requiresUri = action.contains("URI")
-                    SettingInfo(id, name, action, requiresUri)
-                }
-                .toList().take(max)
+            SettingsCatalog.instance.search(query, max)
         }
     }
 } catch (e: Exception) {
@@ -1,6 +1,6 @@
 package app.lawnchair.search.algorithms.engine.provider.apps
 
-import java.util.Locale
+import java.util.BitSet
 import me.xdrop.fuzzywuzzy.FuzzySearch
 
 internal data class MatchResult(val score: Float, val type: MatchType)
@@ -13,7 +13,6 @@ internal enum class MatchType(val priority: Int) {
     SUBSTRING(4),
     ALL_TOKENS_PRESENT(5),
     FUZZY(6),
-    NO_MATCH(7),
 }
 
 /**
@@ -33,55 +32,94 @@ internal enum class MatchType(val priority: Int) {
  * 6. **All Tokens Present:** All tokens from the query are present as prefixes in the app name's tokens, regardless of order.
  * 7. **Fuzzy Match:** A fuzzy string matching algorithm finds a similarity score above a certain cutoff.
  *
- * If none of these rules produce a match, a result indicating no match is returned.
+ * If none of these rules produce a match, null is returned.
+ *
+ * The per-app inputs (lowercase name, tokens and initials) are read from an [AppSearchIndex], and
+ * the query is tokenized once per search, so matching does not allocate for apps that don't match.
  */
 internal object AppMatcher {
     private const val FUZZY_SCORE_CUTOFF = 65
 
-    fun match(appName: String, query: String): MatchResult {
-        val app = appName.lowercase(Locale.getDefault())
+    /**
+     * A search query, tokenized once so that it can be matched against every app.
+     *
+     * @param text The lowercase query.
+     */
+    class Query(val text: String, val substringCandidates: BitSet?) {
+        val tokens: Array<String> = text.split(AppSearchIndex.WHITESPACE).filter { it.isNotBlank() }.toTypedArray()
+        val isSingleToken: Boolean = text.none { it.isWhitespace() }
+    }
+
+    /**
+     * Returns the score for the given [query] and [entry] at position [index] of its
+     * [AppSearchIndex], or null if they don't match.
+     *
+     * Rules with a priority above [maxPriority] are skipped, which lets callers that already
+     * hold enough better matches avoid the more expensive rules for the remaining apps.
+     */
+    fun match(
+        entry: AppSearchIndex.Entry,
+        index: Int,
+        query: Query,
+        maxPriority: Int = MatchType.FUZZY.priority,
+    ): MatchResult? {
+        if (maxPriority < MatchType.EXACT_MATCH.priority) return null
+        val app = entry.titleLower
+        val q = query.text
 
         // Rule 0: Exact Match
-        if (app == query) return MatchResult(1.0f, MatchType.EXACT_MATCH)
+        if (app == q) return EXACT_MATCH
 
         // Rule 1: Direct Prefix
-        if (app.startsWith(query)) {
-            val ratio = query.length.toFloat() / app.length
+        if (app.startsWith(q)) {
+            val ratio = q.length.toFloat() / app.length
             val score = (0.9f + 0.05f * ratio).coerceAtMost(0.95f)
             return MatchResult(score, MatchType.DIRECT_PREFIX)
         }
 
-        // Tokenize once and reuse
-        val tokens = app.split(Regex("\\s+")).filter { it.isNotBlank() }
-        val qTokens = query.split(Regex("\\s+")).filter { it.isNotBlank() }
+        val tokens = entry.tokens
+        val qTokens = query.tokens
+
+        if (maxPriority < MatchType.INITIALS.priority) return null
 
         // Rule 2: Initials (for single-token queries)
-        if (query.none { it.isWhitespace() }) {
-            val initials = tokens.joinToString("") { it.first().toString() }
-            if (initials.isNotEmpty() && initials.startsWith(query)) {
-                return MatchResult(0.88f, MatchType.INITIALS)
+        if (query.isSingleToken) {
+            val initials = entry.initials
+            if (initials.isNotEmpty() && initials.startsWith(q)) {
+                return INITIALS
             }
         }
 
+        if (maxPriority < MatchType.TOKEN_PREFIX_ORDERED.priority) return null
+
         // Rule 3: Token Prefix (Ordered)
         if (qTokens.isNotEmpty() && qTokens.size <= tokens.size) {
             if (qTokens.indices.all { i -> tokens[i].startsWith(qTokens[i]) }) {
-                return MatchResult(0.82f, MatchType.TOKEN_PREFIX_ORDERED)
+                return TOKEN_PREFIX_ORDERED
             }
         }
 
+        if (maxPriority < MatchType.SUBSTRING.priority) return null
+
         // Rule 4: Substring
-        if (app.contains(query)) return MatchResult(0.72f, MatchType.SUBSTRING)
+        val mayContain = query.substringCandidates?.get(index) ?: true
+        if (mayContain && app.contains(q)) return SUBSTRING
+
+        if (maxPriority < MatchType.ALL_TOKENS_PRESENT.priority) return null
 
         // Rule 5: All Tokens Present (Order-agnostic)
         if (qTokens.isNotEmpty() && qTokens.all { qTok -> tokens.any { it.startsWith(qTok) } }) {
-            return MatchResult(0.68f, MatchType.ALL_TOKENS_PRESENT)
+            return ALL_TOKENS_PRESENT
         }
 
+        if (maxPriority < MatchType.FUZZY.priority) return null
+
         // Rule 6: Fuzzy Search
-        val fuzzyWhole = FuzzySearch.ratio(app, query)
-        // Avoid re-calculating max if no tokens exist
-        val fuzzyToken = if (tokens.isEmpty()) 0 else tokens.maxOfOrNull { FuzzySearch.ratio(it, query) } ?: 0
+        val fuzzyWhole = FuzzySearch.ratio(app, q)
+        var fuzzyToken = 0
+        for (token in tokens) {
+            fuzzyToken = maxOf(fuzzyToken, FuzzySearch.ratio(token, q))
+        }
         val fuzzyScore = maxOf(fuzzyWhole, fuzzyToken)
 
         if (fuzzyScore >= FUZZY_SCORE_CUTOFF) {
@@ -89,6 +127,12 @@ internal object AppMatcher {
             return MatchResult(normalized, MatchType.FUZZY)
         }
 
-        return MatchResult(0f, MatchType.NO_MATCH)
+        return null
     }
+
+    private val EXACT_MATCH = MatchResult(1.0f, MatchType.EXACT_MATCH)
+    private val INITIALS = MatchResult(0.88f, MatchType.INITIALS)
+    private val TOKEN_PREFIX_ORDERED = MatchResult(0.82f, MatchType.TOKEN_PREFIX_ORDERED)
+    private val SUBSTRING = MatchResult(0.72f, MatchType.SUBSTRING)
+    private val ALL_TOKENS_PRESENT = MatchResult(0.68f, MatchType.ALL_TOKENS_PRESENT)
 }
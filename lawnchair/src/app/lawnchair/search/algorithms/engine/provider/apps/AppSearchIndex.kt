@@ -0,0 +1,121 @@
+package app.lawnchair.search.algorithms.engine.provider.apps
+
+import androidx.annotation.VisibleForTesting
+import app.lawnchair.ui.preferences.components.HiddenAppsInSearch
+import com.android.launcher3.model.AllAppsList
+import com.android.launcher3.model.data.AppInfo
+import com.android.launcher3.util.TraceHelper
+import java.util.BitSet
+import java.util.Locale
+
+/**
+ * An immutable, precomputed view of [AllAppsList] for app search.
+ *
+ * Everything the matchers need that depends only on the app (lowercase title, tokens, initials,
+ * component key) is computed once when the index is built, so matching a query against the
+ * index does not allocate per app. A trigram table maps every 3-character window of the
+ * lowercase titles to the entries containing it, so substring checks can skip apps that
+ * cannot contain the query.
+ *
+ * Use [of] on the model thread to get the index for the current state of the app list. The
+ * index is rebuilt lazily whenever [AllAppsList.getVersion] changes, which happens whenever
+ * the model publishes an app list change (package updates, loader runs, label changes).
+ */
+class AppSearchIndex private constructor(
+    private val source: AllAppsList?,
+    private val version: Int,
+    apps: List<AppInfo>,
+) {
+
+    class Entry internal constructor(val app: AppInfo) {
+        /** Title as displayed, used by [com.android.launcher3.search.StringMatcherUtility]. */
+        val title: String = app.title?.toString().orEmpty()
+        val titleLower: String = title.lowercase(Locale.getDefault())
+        val tokens: Array<String> = titleLower.split(WHITESPACE).filter { it.isNotBlank() }.toTypedArray()
+        val initials: String = buildString(tokens.size) { tokens.forEach { append(it.first()) } }
+        val componentKey: String = app.toComponentKey().toString()
+
+        /** Key used by the WeightedRatio fuzzy search. */
+        val fuzzyKey: String = (app.sectionName ?: "") + title
+    }
+
+    val entries: List<Entry> = apps.map(::Entry)
+
+    private val trigrams: Map<String, BitSet> = buildMap<String, BitSet> {
+        entries.forEachIndexed { index, entry ->
+            val title = entry.titleLower
+            for (i in 0..title.length - TRIGRAM_LENGTH) {
+                getOrPut(title.substring(i, i + TRIGRAM_LENGTH)) { BitSet(entries.size) }.set(index)
+            }
+        }
+    }
+
+    val size: Int get() = entries.size
+
+    /**
+     * Returns the entries whose lowercase title may contain [queryLower], or null if the query
+     * is too short for the trigram table to narrow anything down. Computed once per query.
+     */
+    fun substringCandidates(queryLower: String): BitSet? {
+        if (queryLower.length < TRIGRAM_LENGTH) return null
+        var result: BitSet? = null
+        for (i in 0..queryLower.length - TRIGRAM_LENGTH) {
+            val posting = trigrams[queryLower.substring(i, i + TRIGRAM_LENGTH)] ?: return BitSet(0)
+            if (result == null) {
+                result = posting.clone() as BitSet
+            } else {
+                result.and(posting)
+            }
+        }
+        return result
+    }
+
+    /**
+     * Returns whether [entry] should be excluded from results for [queryLower] because it is
+     * hidden, following the [HiddenAppsInSearch] preference.
+     */
+    fun isHidden(
+        entry: Entry,
+        queryLower: String,
+        hiddenApps: Set<String>,
+        hiddenAppsInSearch: String,
+    ): Boolean = when (hiddenAppsInSearch) {
+        HiddenAppsInSearch.ALWAYS -> false
+        HiddenAppsInSearch.IF_NAME_TYPED -> entry.componentKey in hiddenApps && entry.titleLower != queryLower
+        else -> entry.componentKey in hiddenApps
+    }
+
+    companion object {
+        private const val TRIGRAM_LENGTH = 3
+        // Measured by the search benchmarks in the baseline-profile module
+        private const val TRACE_BUILD = "AppSearchIndex.build"
+        internal val WHITESPACE = Regex("\\s+")
+
+        @Volatile
+        private var cached: AppSearchIndex? = null
+
+        /**
+         * Returns the index for the current contents of [apps], rebuilding it if the list has
+         * changed since the last call. Must be called on the model thread.
+         */
+        @JvmStatic
+        fun of(apps: AllAppsList): AppSearchIndex {
+            val current = cached
+            if (current != null && current.source === apps && current.version == apps.version) {
+                return current
+            }
+            TraceHelper.INSTANCE.beginSection(TRACE_BUILD)
+            try {
+                return AppSearchIndex(apps, apps.version, ArrayList(apps.data)).also { cached = it }
+            } finally {
+                TraceHelper.INSTANCE.endSection()
+            }
+        }
+
+        /**
+         * Builds an index over [apps] that isn't tied to an [AllAppsList].
+         */
+        @VisibleForTesting
+        internal fun build(apps: List<AppInfo>): AppSearchIndex = AppSearchIndex(null, 0, apps)
+    }
+}
@@ -3,61 +3,67 @@ package app.lawnchair.search.algorithms.engine.provider.apps
 import android.content.Context
 import app.lawnchair.preferences2.PreferenceManager2
 import app.lawnchair.search.algorithms.engine.SearchResult
-import app.lawnchair.search.algorithms.filterHiddenApps
 import com.android.launcher3.model.AllAppsList
 import com.android.launcher3.model.data.AppInfo
 import com.android.launcher3.search.StringMatcherUtility
-import com.patrykmichalik.opto.core.firstBlocking
+import com.android.launcher3.util.TraceHelper
 import java.util.Locale
 
 object AppSearchProvider {
 
+    // Measured by the search benchmarks in the baseline-profile module
+    private const val TRACE_MATCH = "AppSearchProvider.match"
+
     fun search(context: Context, query: String, allApps: AllAppsList): List<SearchResult.App> {
         val prefs = PreferenceManager2.getInstance(context)
-        val hiddenApps = prefs.hiddenApps.firstBlocking()
-        val hiddenAppsInSearch = prefs.hiddenAppsInSearch.firstBlocking()
-        val maxAppResults = prefs.maxAppSearchResultCount.firstBlocking()
-        val enableFuzzySearch = prefs.enableFuzzySearch.firstBlocking()
-
-        val appResults = if (enableFuzzySearch) {
-            fuzzySearch(allApps.data, query, maxAppResults, hiddenApps, hiddenAppsInSearch)
-        } else {
-            normalSearch(allApps.data, query, maxAppResults, hiddenApps, hiddenAppsInSearch)
+        val hiddenApps = prefs.current(prefs.hiddenApps)
+        val hiddenAppsInSearch = prefs.current(prefs.hiddenAppsInSearch)
+        val maxAppResults = prefs.current(prefs.maxAppSearchResultCount)
+        val enableFuzzySearch = prefs.current(prefs.enableFuzzySearch)
+
+        val index = AppSearchIndex.of(allApps)
+        TraceHelper.INSTANCE.beginSection(TRACE_MATCH)
+        val appResults = try {
+            if (enableFuzzySearch) {
+                fuzzySearch(index, query, maxAppResults, hiddenApps, hiddenAppsInSearch)
+            } else {
+                normalSearch(index, query, maxAppResults, hiddenApps, hiddenAppsInSearch)
+            }
+        } finally {
+            TraceHelper.INSTANCE.endSection()
         }
 
         return appResults.map { SearchResult.App(data = it) }
     }
 
-    private fun normalSearch(apps: List<AppInfo>, query: String, maxResultsCount: Int, hiddenApps: Set<String>, hiddenAppsInSearch: String): List<AppInfo> {
+    private fun normalSearch(index: AppSearchIndex, query: String, maxResultsCount: Int, hiddenApps: Set<String>, hiddenAppsInSearch: String): List<AppInfo> {
         // Do an intersection of the words in the query and each title, and filter out all the
         // apps that don't match all of the words in the query.
         val queryTextLower = query.lowercase(Locale.getDefault())
         val matcher = StringMatcherUtility.StringMatcher.getInstance()
-        return apps.asSequence()
-            .filter { StringMatcherUtility.matches(queryTextLower, it.title.toString(), matcher) }
-            .filterHiddenApps(queryTextLower, hiddenApps, hiddenAppsInSearch)
+        return index.entries.asSequence()
+            .filter { StringMatcherUtility.matches(queryTextLower, it.title, matcher) }
+            .filterNot { index.isHidden(it, queryTextLower, hiddenApps, hiddenAppsInSearch) }
+            .map { it.app }
             .take(maxResultsCount)
             .toList()
     }
 
-    private fun fuzzySearch(apps: List<AppInfo>, query: String, maxResultsCount: Int, hiddenApps: Set<String>, hiddenAppsInSearch: String): List<AppInfo> {
+    private fun fuzzySearch(index: AppSearchIndex, query: String, maxResultsCount: Int, hiddenApps: Set<String>, hiddenAppsInSearch: String): List<AppInfo> {
         val queryTextLower = query.lowercase(Locale.getDefault())
-        val filteredApps = apps.asSequence()
-            .filterHiddenApps(queryTextLower, hiddenApps, hiddenAppsInSearch)
-            .toList()
+        val matchQuery = AppMatcher.Query(queryTextLower, index.substringCandidates(queryTextLower))
 
-        return filteredApps
-            .mapNotNull { app ->
-                val matchResult = AppMatcher.match(app.title.toString(), queryTextLower)
-                if (matchResult.type == MatchType.NO_MATCH) null else Pair(app, matchResult)
-            }
-            .sortedWith(
-                compareBy(
-                    { it.second.type.priority },
-                    { -it.second.score },
-                ),
-            )
-            .map { it.first }
-            .take(maxResultsCount)
+        // Only the best few results are shown, so keep a bounded selection instead of sorting
+        // every match. Once it's full, rules that can't beat the worst kept match are skipped,
+        // which avoids the fuzzy rule for the long tail when there are enough good matches.
+        val topMatches = TopAppMatches(maxResultsCount.coerceAtLeast(0))
+        index.entries.forEachIndexed { i, entry ->
+            if (index.isHidden(entry, queryTextLower, hiddenApps, hiddenAppsInSearch)) return@forEachIndexed
+            val matchResult = AppMatcher.match(entry, i, matchQuery, topMatches.maxUsefulPriority)
+                ?: return@forEachIndexed
+            topMatches.offer(entry.app, matchResult)
+        }
+
+        return topMatches.toList()
     }
 }
@@ -0,0 +1,63 @@
+package app.lawnchair.search.algorithms.engine.provider.apps
+
+import com.android.launcher3.model.data.AppInfo
+
+/**
+ * Keeps the best [capacity] app matches, ordered by match priority and then by descending score.
+ *
+ * Matches are kept in small parallel arrays sorted from best to worst, so offering a match costs
+ * at most [capacity] comparisons and the full candidate list is never materialized or sorted.
+ * Ties keep the order in which matches were offered, which matches a stable sort over the app
+ * list.
+ */
+internal class TopAppMatches(private val capacity: Int) {
+
+    private val apps = arrayOfNulls<AppInfo>(capacity)
+    private val priorities = IntArray(capacity)
+    private val scores = FloatArray(capacity)
+    private var size = 0
+
+    val isFull: Boolean get() = size == capacity
+
+    /**
+     * The worst priority a new match can have and still make it into the results. Rules with a
+     * higher priority can be skipped entirely. Below every priority when nothing can be kept.
+     */
+    val maxUsefulPriority: Int
+        get() = when {
+            capacity == 0 -> NO_USEFUL_PRIORITY
+            isFull -> priorities[size - 1]
+            else -> MatchType.FUZZY.priority
+        }
+
+    fun offer(app: AppInfo, result: MatchResult) {
+        if (capacity == 0) return
+        val priority = result.type.priority
+        val score = result.score
+        if (isFull && !isBetter(priority, score, size - 1)) return
+
+        var position = if (isFull) size - 1 else size
+        while (position > 0 && isBetter(priority, score, position - 1)) {
+            apps[position] = apps[position - 1]
+            priorities[position] = priorities[position - 1]
+            scores[position] = scores[position - 1]
+            position--
+        }
+        apps[position] = app
+        priorities[position] = priority
+        scores[position] = score
+        if (!isFull) size++
+    }
+
+    fun toList(): List<AppInfo> = List(size) { apps[it]!! }
+
+    private fun isBetter(priority: Int, score: Float, position: Int): Boolean {
+        val otherPriority = priorities[position]
+        if (priority != otherPriority) return priority < otherPriority
+        return score > scores[position]
+    }
+
+    private companion object {
+        const val NO_USEFUL_PRIORITY = -1
+    }
+}
@@ -5,7 +5,6 @@ import android.net.Uri
 import android.util.Log
 import app.lawnchair.preferences2.PreferenceManager2
 import com.android.launcher3.R
-import com.patrykmichalik.opto.core.firstBlocking
 import kotlinx.coroutines.Dispatchers
 import kotlinx.coroutines.flow.Flow
 import kotlinx.coroutines.flow.flow
@@ -48,9 +47,9 @@ object CustomWebSearchProvider : WebSearchProvider {
 
     override fun configure(context: Context): WebSearchProvider {
         val prefs = PreferenceManager2.getInstance(context)
-        searchUrlTemplate = prefs.webSuggestionProviderUrl.firstBlocking()
-        suggestionsUrlTemplate = prefs.webSuggestionProviderSuggestionsUrl.firstBlocking()
-        displayName = prefs.webSuggestionProviderName.firstBlocking()
+        searchUrlTemplate = prefs.current(prefs.webSuggestionProviderUrl)
+        suggestionsUrlTemplate = prefs.current(prefs.webSuggestionProviderSuggestionsUrl)
+        displayName = prefs.current(prefs.webSuggestionProviderName)
         return this
     }
 
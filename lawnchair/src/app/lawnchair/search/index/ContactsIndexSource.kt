@@ -0,0 +1,128 @@
+package app.lawnchair.search.index
+
+import android.content.Context
+import android.database.Cursor
+import android.net.Uri
+import android.provider.ContactsContract
+import app.lawnchair.data.searchindex.SearchIndexDao
+import app.lawnchair.data.searchindex.SearchIndexItem
+import app.lawnchair.data.searchindex.SearchIndexState
+import app.lawnchair.search.algorithms.data.ContactInfo
+import app.lawnchair.search.algorithms.engine.provider.ContactsSearchProvider
+
+/**
+ * Indexes one [ContactInfo] per contact, built the same way [ContactsSearchProvider] builds them.
+ *
+ * Full builds walk the data rows in contact id order. Afterwards, the index catches up using
+ * the contact and deletion timestamps of the contacts provider.
+ */
+internal object ContactsIndexSource : IndexSource {
+    override val name = "contacts"
+
+    override val contentUris: List<Uri> = listOf(ContactsContract.Contacts.CONTENT_URI)
+
+    private const val BATCH_SIZE = 200
+    private val KINDS = listOf(SearchIndexItem.KIND_CONTACT)
+
+    override fun isAvailable(context: Context): Boolean = ContactsSearchProvider.checkPermission(context)
+
+    override suspend fun buildBatch(context: Context, dao: SearchIndexDao, state: SearchIndexState): SearchIndexState {
+        val generation = if (state.cursor == 0L) {
+            dao.deleteAll(KINDS)
+            System.currentTimeMillis()
+        } else {
+            state.generation
+        }
+
+        val contacts = LinkedHashMap<String, ContactInfo>()
+        var lastContactId = state.cursor
+        var exhausted = true
+        query(context, "${ContactsContract.Data.CONTACT_ID} > ?", state.cursor)?.use { cursor ->
+            val contactIdIndex = cursor.getColumnIndexOrThrow(ContactsContract.Data.CONTACT_ID)
+            var count = 0
+            while (cursor.moveToNext()) {
+                val contactId = cursor.getLong(contactIdIndex)
+                if (contactId != lastContactId) {
+                    // Only stop between contacts, since a contact spans several rows
+                    if (count == BATCH_SIZE) {
+                        exhausted = false
+                        break
+                    }
+                    count++
+                    lastContactId = contactId
+                }
+                ContactsSearchProvider.collectContact(cursor, contacts)
+            }
+        }
+
+        val newState = SearchIndexState(
+            source = name,
+            generation = generation,
+            cursor = if (exhausted) 0 else lastContactId,
+            complete = exhausted,
+        )
+        dao.commitBatch(contacts.values.map { it.toIndexItem() }, newState)
+        return newState
+    }
+
+    override suspend fun update(context: Context, dao: SearchIndexDao, state: SearchIndexState): SearchIndexState {
+        // Taken before querying, so that changes made while updating are picked up next time
+        val generation = System.currentTimeMillis()
+
+        val contacts = LinkedHashMap<String, ContactInfo>()
+        val removed = mutableSetOf<String>()
+        query(context, "${ContactsContract.Data.CONTACT_LAST_UPDATED_TIMESTAMP} > ?", state.generation)?.use { cursor ->
+            val contactIdIndex = cursor.getColumnIndexOrThrow(ContactsContract.Data.CONTACT_ID)
+            while (cursor.moveToNext()) {
+                removed.add(cursor.getString(contactIdIndex))
+                ContactsSearchProvider.collectContact(cursor, contacts)
+            }
+        }
+        // Contacts left without a searchable row are dropped
+        removed.removeAll(contacts.keys)
+
+        context.contentResolver.query(
+            ContactsContract.DeletedContacts.CONTENT_URI,
+            arrayOf(ContactsContract.DeletedContacts.CONTACT_ID),
+            "${ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP} > ?",
+            arrayOf(state.generation.toString()),
+            null,
+        )?.use { cursor ->
+            while (cursor.moveToNext()) {
+                removed.add(cursor.getString(0))
+            }
+        }
+
+        val newState = state.copy(generation = generation)
+        dao.commitBatch(contacts.values.map { it.toIndexItem() }, newState, KINDS, removed.toList())
+        return newState
+    }
+
+    fun toContactInfo(item: SearchIndexItem) = ContactInfo(
+        contactId = item.itemId,
+        name = item.title,
+        number = item.detail,
+        phoneBookLabel = item.label,
+        uri = item.uri,
+        packages = item.extra,
+    )
+
+    private fun ContactInfo.toIndexItem() = SearchIndexItem(
+        kind = SearchIndexItem.KIND_CONTACT,
+        itemId = contactId,
+        title = name.orEmpty(),
+        detail = number.orEmpty(),
+        label = phoneBookLabel,
+        uri = uri,
+        extra = packages,
+    )
+
+    private fun query(context: Context, selection: String, after: Long): Cursor? =
+        context.contentResolver.query(
+            ContactsContract.Data.CONTENT_URI,
+            ContactsSearchProvider.PROJECTION,
+            selection,
+            arrayOf(after.toString()),
+            "${ContactsContract.Data.CONTACT_ID} ASC",
+        )
+}
@@ -0,0 +1,169 @@
+package app.lawnchair.search.index
+
+import android.content.Context
+import android.database.Cursor
+import android.net.Uri
+import android.provider.MediaStore
+import app.lawnchair.data.searchindex.SearchIndexDao
+import app.lawnchair.data.searchindex.SearchIndexItem
+import app.lawnchair.data.searchindex.SearchIndexState
+import app.lawnchair.search.algorithms.data.FileInfo
+import app.lawnchair.search.algorithms.data.FolderInfo
+import app.lawnchair.search.algorithms.data.IFileInfo
+import app.lawnchair.search.algorithms.engine.provider.FileSearchProvider
+import app.lawnchair.util.FileAccessManager
+import app.lawnchair.util.FileAccessState
+import app.lawnchair.util.exists
+import com.android.launcher3.Utilities
+import java.util.concurrent.TimeUnit
+import okio.Path.Companion.toPath
+
+/**
+ * Indexes the files and folders of the primary external volume, as seen by MediaStore.
+ *
+ * Full builds walk the files table in id order. Afterwards, the index catches up using the
+ * MediaStore generation on Android 11 and up. Older versions can't tell what changed, so any
+ * change starts a new full build. Deletions don't show up in the generations, and finding them
+ * means listing every file, so updates only look for them once every [RECONCILE_INTERVAL_MS].
+ * Search drops the deleted files it comes across in between.
+ */
+internal object FilesIndexSource : IndexSource {
+    override val name = "files"
+
+    private val VOLUME = if (Utilities.ATLEAST_R) MediaStore.VOLUME_EXTERNAL_PRIMARY else "external"
+    private val FILES_URI: Uri = MediaStore.Files.getContentUri(VOLUME)
+
+    override val contentUris: List<Uri> = listOf(FILES_URI)
+
+    private const val BATCH_SIZE = 200
+    private val RECONCILE_INTERVAL_MS = TimeUnit.DAYS.toMillis(1)
+
+    override fun isAvailable(context: Context): Boolean =
+        FileAccessManager.getInstance(context).allFilesAccessState.value == FileAccessState.Full
+
+    override suspend fun buildBatch(context: Context, dao: SearchIndexDao, state: SearchIndexState): SearchIndexState {
+        val generation = if (state.cursor == 0L) {
+            dao.deleteAll(SearchIndexItem.FILE_KINDS)
+            currentGeneration(context)
+        } else {
+            state.generation
+        }
+
+        val items = mutableListOf<SearchIndexItem>()
+        var lastId = state.cursor
+        var exhausted = true
+        query(context, "${MediaStore.MediaColumns._ID} > ?", state.cursor)?.use { cursor ->
+            val idIndex = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns._ID)
+            while (cursor.moveToNext()) {
+                if (items.size == BATCH_SIZE) {
+                    exhausted = false
+                    break
+                }
+                lastId = cursor.getLong(idIndex)
+                FileSearchProvider.readFileInfo(cursor)?.let { items.add(it.toIndexItem(lastId)) }
+            }
+        }
+
+        val newState = SearchIndexState(
+            source = name,
+            generation = generation,
+            cursor = if (exhausted) 0 else lastId,
+            complete = exhausted,
+            // A full build starts from an empty index
+            reconciledAt = if (exhausted) System.currentTimeMillis() else 0,
+        )
+        dao.commitBatch(items, newState)
+        return newState
+    }
+
+    override suspend fun update(context: Context, dao: SearchIndexDao, state: SearchIndexState): SearchIndexState {
+        if (!Utilities.ATLEAST_R) {
+            val newState = SearchIndexState(source = name)
+            dao.setState(newState)
+            return newState
+        }
+
+        val generation = currentGeneration(context)
+        val items = mutableListOf<SearchIndexItem>()
+        val removed = mutableListOf<String>()
+        if (generation != state.generation) {
+            query(context, "${MediaStore.MediaColumns.GENERATION_MODIFIED} > ?", state.generation)?.use { cursor ->
+                val idIndex = cursor.getColumnIndexOrThrow(MediaStore.MediaColumns._ID)
+                while (cursor.moveToNext()) {
+                    val id = cursor.getLong(idIndex)
+                    // Files that became hidden, or that turned into a folder or back
+                    removed.add(id.toString())
+                    FileSearchProvider.readFileInfo(cursor)?.let { items.add(it.toIndexItem(id)) }
+                }
+            }
+        }
+        val now = System.currentTimeMillis()
+        // Also reconcile if the clock went back
+        val sinceReconciled = now - state.reconciledAt
+        val reconcile = sinceReconciled !in 0 until RECONCILE_INTERVAL_MS
+        if (reconcile) removed.addAll(deletedItemIds(context, dao))
+        if (items.isEmpty() && removed.isEmpty() && generation == state.generation && !reconcile) return state
+
+        val newState = state.copy(
+            generation = generation,
+            reconciledAt = if (reconcile) now else state.reconciledAt,
+        )
+        dao.commitBatch(items, newState, SearchIndexItem.FILE_KINDS, removed)
+        return newState
+    }
+
+    /**
+     * Returns the file or folder [item] describes, or null if it no longer exists.
+     */
+    fun toFileInfo(item: SearchIndexItem): IFileInfo? {
+        val fileInfo = if (item.kind == SearchIndexItem.KIND_FOLDER) {
+            FolderInfo(item.detail, item.title, item.size, item.dateModified)
+        } else {
+            FileInfo(item.itemId, item.detail, item.title, item.size, item.dateModified, item.mimeType)
+        }
+        return fileInfo.takeIf { it.path.toPath().exists }
+    }
+
+    private fun IFileInfo.toIndexItem(id: Long) = SearchIndexItem(
+        kind = if (this is FolderInfo) SearchIndexItem.KIND_FOLDER else SearchIndexItem.KIND_FILE,
+        itemId = id.toString(),
+        title = name,
+        detail = path,
+        mimeType = (this as? FileInfo)?.mimeType,
+        size = size,
+        dateModified = dateModified,
+    )
+
+    /**
+     * Returns the ids of the indexed files and folders that are no longer in MediaStore.
+     */
+    private suspend fun deletedItemIds(context: Context, dao: SearchIndexDao): List<String> {
+        val indexed = dao.getItemIds(SearchIndexItem.FILE_KINDS)
+        if (indexed.isEmpty()) return emptyList()
+        // Keep the index if MediaStore can't be read
+        val cursor = context.contentResolver.query(
+            FILES_URI,
+            arrayOf(MediaStore.MediaColumns._ID),
+            null,
+            null,
+            null,
+        ) ?: return emptyList()
+        val existing = HashSet<String>()
+        cursor.use {
+            while (it.moveToNext()) existing.add(it.getLong(0).toString())
+        }
+        return indexed.filter { it !in existing }
+    }
+
+    private fun currentGeneration(context: Context): Long =
+        if (Utilities.ATLEAST_R) MediaStore.getGeneration(context, VOLUME) else 0
+
+    private fun query(context: Context, selection: String, after: Long): Cursor? =
+        context.contentResolver.query(
+            FILES_URI,
+            FileSearchProvider.commonProjection,
+            selection,
+            arrayOf(after.toString()),
+            "${MediaStore.MediaColumns._ID} ASC",
+        )
+}
@@ -0,0 +1,31 @@
+package app.lawnchair.search.index
+
+import android.content.Context
+import android.net.Uri
+import app.lawnchair.data.searchindex.SearchIndexDao
+import app.lawnchair.data.searchindex.SearchIndexState
+
+/**
+ * A content provider mirrored into the search index.
+ */
+internal interface IndexSource {
+    val name: String
+
+    /** URIs to observe for changes to the source. */
+    val contentUris: List<Uri>
+
+    fun isAvailable(context: Context): Boolean
+
+    /**
+     * Indexes the next batch of a full build started from [state] and returns the new state,
+     * which is complete once the whole source has been indexed.
+     */
+    suspend fun buildBatch(context: Context, dao: SearchIndexDao, state: SearchIndexState): SearchIndexState
+
+    /**
+     * Applies the changes made to the source since the complete index [state] was built and
+     * returns the new state. Sources that can't tell what changed return an incomplete state,
+     * which starts a full build.
+     */
+    suspend fun update(context: Context, dao: SearchIndexDao, state: SearchIndexState): SearchIndexState
+}
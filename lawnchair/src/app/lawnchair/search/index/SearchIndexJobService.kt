@@ -0,0 +1,56 @@
+package app.lawnchair.search.index
+
+import android.app.job.JobParameters
+import android.app.job.JobService
+import android.util.Log
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.cancelChildren
+import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+
+/**
+ * Runs the [SearchIndexer] while the device is charging or idle. See
+ * [SearchIndexManager.scheduleJobs].
+ */
+class SearchIndexJobService : JobService() {
+
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    override fun onStartJob(params: JobParameters): Boolean {
+        scope.launch {
+            val finished = try {
+                // The charging and idle jobs may run at the same time
+                lock.withLock { SearchIndexer(this@SearchIndexJobService).run() }
+                true
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                Log.e(TAG, "Failed to update the search index", e)
+                false
+            }
+            jobFinished(params, !finished)
+        }
+        return true
+    }
+
+    override fun onStopJob(params: JobParameters): Boolean {
+        // Progress is committed after every batch, so the next run resumes from there
+        scope.coroutineContext.cancelChildren()
+        return true
+    }
+
+    override fun onDestroy() {
+        scope.cancel()
+        super.onDestroy()
+    }
+
+    companion object {
+        private const val TAG = "SearchIndexJobService"
+        private val lock = Mutex()
+    }
+}
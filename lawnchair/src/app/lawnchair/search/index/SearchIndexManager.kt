@@ -0,0 +1,173 @@
+package app.lawnchair.search.index
+
+import android.app.job.JobInfo
+import android.app.job.JobScheduler
+import android.content.ComponentName
+import android.content.Context
+import android.database.ContentObserver
+import android.util.Log
+import app.lawnchair.data.searchindex.SearchIndexDatabase
+import app.lawnchair.data.searchindex.SearchIndexItem
+import app.lawnchair.data.searchindex.SearchIndexState
+import app.lawnchair.preferences.PreferenceManager
+import app.lawnchair.search.algorithms.data.ContactInfo
+import app.lawnchair.search.algorithms.data.IFileInfo
+import app.lawnchair.util.MainThreadInitializedObject
+import java.util.concurrent.ConcurrentHashMap
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+
+/**
+ * Keeps the optional on-device search index for contacts and files.
+ *
+ * While the index is enabled, content observers mark changed sources as dirty and schedule
+ * [SearchIndexJobService], which only runs while the device is charging or idle. Until a source
+ * has been fully indexed, [searchContacts] and [searchFiles] return null and the providers fall
+ * back to querying the content providers directly.
+ */
+class SearchIndexManager private constructor(private val context: Context) {
+
+    private val prefs = PreferenceManager.getInstance(context)
+    private val dao = SearchIndexDatabase.INSTANCE.get(context).searchIndexDao()
+    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+
+    private val dirtySources = ConcurrentHashMap.newKeySet<String>()
+    private val completeSources = ConcurrentHashMap.newKeySet<String>()
+    private val observers = mutableListOf<ContentObserver>()
+
+    private val isEnabled: Boolean get() = prefs.searchLocalIndex.get()
+
+    /**
+     * Starts keeping the index up to date if it's enabled. Must be called on the main thread.
+     */
+    fun start() {
+        if (!isEnabled || observers.isNotEmpty()) return
+        SOURCES.forEach { source ->
+            // Changes made while the launcher wasn't running were missed
+            dirtySources.add(source.name)
+            val observer = object : ContentObserver(null) {
+                override fun onChange(selfChange: Boolean) {
+                    markDirty(source)
+                    scheduleJobs()
+                }
+            }
+            source.contentUris.forEach {
+                runCatching { context.contentResolver.registerContentObserver(it, true, observer) }
+            }
+            observers.add(observer)
+        }
+        scope.launch {
+            dao.getStates().filter { it.complete }.forEach { completeSources.add(it.source) }
+        }
+        scheduleJobs()
+    }
+
+    fun onEnabledChanged() {
+        if (isEnabled) {
+            start()
+            return
+        }
+        observers.forEach { context.contentResolver.unregisterContentObserver(it) }
+        observers.clear()
+        context.getSystemService(JobScheduler::class.java)?.run {
+            cancel(JOB_ID_CHARGING)
+            cancel(JOB_ID_IDLE)
+        }
+        completeSources.clear()
+        scope.launch { dao.clear() }
+    }
+
+    /**
+     * Returns contacts whose name or number has a token starting with each token of [query],
+     * or null if the index can't answer.
+     */
+    suspend fun searchContacts(query: String, max: Int): List<ContactInfo>? {
+        val match = matchFor(ContactsIndexSource, query) ?: return null
+        return runCatching {
+            dao.search(match, listOf(SearchIndexItem.KIND_CONTACT), max)
+                .map { ContactsIndexSource.toContactInfo(it) }
+        }.onFailure { Log.e(TAG, "Failed to search contacts", it) }.getOrNull()
+    }
+
+    /**
+     * Returns files and folders whose name or path has a token starting with each token of
+     * [query], newest first, or null if the index can't answer.
+     */
+    suspend fun searchFiles(query: String, max: Int): List<IFileInfo>? {
+        val match = matchFor(FilesIndexSource, query) ?: return null
+        return runCatching { searchExistingFiles(match, max) }
+            .onFailure { Log.e(TAG, "Failed to search files", it) }.getOrNull()
+    }
+
+    private suspend fun searchExistingFiles(match: String, max: Int): List<IFileInfo> {
+        while (true) {
+            val items = dao.search(match, SearchIndexItem.FILE_KINDS, max)
+            val files = ArrayList<IFileInfo>(items.size)
+            val deleted = ArrayList<String>()
+            items.forEach { item ->
+                val file = FilesIndexSource.toFileInfo(item)
+                if (file != null) files.add(file) else deleted.add(item.itemId)
+            }
+            if (deleted.isEmpty()) return files
+            // Files deleted since the last update would cut the results short, which would make
+            // them look complete. Drop them from the index and search again.
+            dao.delete(SearchIndexItem.FILE_KINDS, deleted)
+        }
+    }
+
+    private fun matchFor(source: IndexSource, query: String): String? {
+        if (!isEnabled || source.name !in completeSources) return null
+        return SearchIndexQuery.toMatch(query)
+    }
+
+    internal fun isDirty(source: IndexSource) = source.name in dirtySources
+
+    internal fun markDirty(source: IndexSource) {
+        dirtySources.add(source.name)
+    }
+
+    internal fun clearDirty(source: IndexSource) {
+        dirtySources.remove(source.name)
+    }
+
+    internal fun onStateChanged(state: SearchIndexState) {
+        if (state.complete) completeSources.add(state.source) else completeSources.remove(state.source)
+    }
+
+    private fun scheduleJobs() {
+        val scheduler = context.getSystemService(JobScheduler::class.java) ?: return
+        val component = ComponentName(context, SearchIndexJobService::class.java)
+        // Rescheduling would stop a job that's already running
+        if (scheduler.getPendingJob(JOB_ID_CHARGING) == null) {
+            scheduler.schedule(
+                JobInfo.Builder(JOB_ID_CHARGING, component)
+                    .setRequiresCharging(true)
+                    .build(),
+            )
+        }
+        if (scheduler.getPendingJob(JOB_ID_IDLE) == null) {
+            scheduler.schedule(
+                JobInfo.Builder(JOB_ID_IDLE, component)
+                    .setRequiresDeviceIdle(true)
+                    .setRequiresBatteryNotLow(true)
+                    .build(),
+            )
+        }
+    }
+
+    companion object {
+        private const val TAG = "SearchIndexManager"
+        private const val JOB_ID_CHARGING = 0x5e1d0001
+        private const val JOB_ID_IDLE = 0x5e1d0002
+
+        internal val SOURCES = listOf(ContactsIndexSource, FilesIndexSource)
+
+        @JvmField
+        val INSTANCE = MainThreadInitializedObject(::SearchIndexManager)
+
+        @JvmStatic
+        fun getInstance(context: Context): SearchIndexManager = INSTANCE.get(context)
+    }
+}
@@ -0,0 +1,43 @@
+package app.lawnchair.search.index
+
+import java.text.Normalizer
+import java.util.Locale
+
+/**
+ * Token-prefix query helpers shared by the FTS index and the in-memory result cache.
+ */
+object SearchIndexQuery {
+
+    private val SEPARATOR = Regex("[^\\p{L}\\p{N}]+")
+    private val COMBINING_MARKS = Regex("\\p{Mn}+")
+
+    /**
+     * Builds an FTS `MATCH` expression requiring every token of [query] to be a prefix of some
+     * indexed token, or returns null when [query] has no searchable tokens.
+     */
+    fun toMatch(query: String): String? {
+        val tokens = tokenize(query)
+        if (tokens.isEmpty()) return null
+        // Tokens only contain letters and digits, so they never need escaping
+        return tokens.joinToString(" ") { "\"$it\"*" }
+    }
+
+    /**
+     * Returns whether every token of [query] is a prefix of a token of one of [fields], which is
+     * what [toMatch] matches in the index.
+     */
+    fun matches(query: String, vararg fields: String?): Boolean {
+        val queryTokens = tokenize(query)
+        if (queryTokens.isEmpty()) return false
+        val fieldTokens = fields.flatMap { tokenize(it.orEmpty()) }
+        return queryTokens.all { q -> fieldTokens.any { it.startsWith(q) } }
+    }
+
+    // Removes diacritics like the unicode61 tokenizer of the index, so "José" matches "jose"
+    private fun tokenize(text: String): List<String> =
+        Normalizer.normalize(text, Normalizer.Form.NFD)
+            .replace(COMBINING_MARKS, "")
+            .lowercase(Locale.ROOT)
+            .split(SEPARATOR)
+            .filter { it.isNotEmpty() }
+}
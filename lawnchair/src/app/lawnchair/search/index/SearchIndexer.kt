@@ -0,0 +1,58 @@
+package app.lawnchair.search.index
+
+import android.content.Context
+import app.lawnchair.data.searchindex.SearchIndexDatabase
+import app.lawnchair.data.searchindex.SearchIndexState
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.delay
+
+/**
+ * Brings the search index up to date, one small batch at a time.
+ *
+ * Every batch is committed together with the progress of its source, so an interrupted build
+ * resumes where it stopped. Batches are spaced out by [BATCH_INTERVAL_MS] to keep the load on
+ * the content providers low.
+ */
+internal class SearchIndexer(private val context: Context) {
+
+    private val manager = SearchIndexManager.getInstance(context)
+    private val dao = SearchIndexDatabase.INSTANCE.get(context).searchIndexDao()
+
+    /**
+     * Indexes until no source has pending work. Cancel the calling coroutine to stop early.
+     */
+    suspend fun run() {
+        while (true) {
+            val (source, state) = nextWork() ?: return
+            val newState = try {
+                if (state.complete) update(source, state) else source.buildBatch(context, dao, state)
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                // The source may be unavailable for now, try again on the next run
+                manager.markDirty(source)
+                throw e
+            }
+            manager.onStateChanged(newState)
+            delay(BATCH_INTERVAL_MS)
+        }
+    }
+
+    private suspend fun nextWork(): Pair<IndexSource, SearchIndexState>? {
+        for (source in SearchIndexManager.SOURCES) {
+            if (!source.isAvailable(context)) continue
+            val state = dao.getState(source.name) ?: SearchIndexState(source.name)
+            if (!state.complete || manager.isDirty(source)) return source to state
+        }
+        return null
+    }
+
+    private suspend fun update(source: IndexSource, state: SearchIndexState): SearchIndexState {
+        manager.clearDirty(source)
+        return source.update(context, dao, state)
+    }
+
+    companion object {
+        private const val BATCH_INTERVAL_MS = 250L
+    }
+}
@@ -235,4 +235,11 @@ private fun PreferenceGroupScope.LocalSearchSettings(
             label = stringResource(R.string.all_apps_search_result_calculator),
         )
     }
+    Item {
+        SwitchPreference(
+            adapter = prefs.searchLocalIndex.getAdapter(),
+            label = stringResource(R.string.search_pref_local_index_title),
+            description = stringResource(R.string.search_pref_local_index_description),
+        )
+    }
 }
@@ -0,0 +1,46 @@
+package app.lawnchair.preferences2
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import androidx.test.platform.app.InstrumentationRegistry
+import com.patrykmichalik.opto.core.firstBlocking
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares the cost of one synchronous preference read through [PreferenceManager2.current] and
+ * through [firstBlocking], which hot paths used before:
+ * ```
+ * ./gradlew :connectedLawnWithQuickstepGithubDebugAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=app.lawnchair.preferences2.PreferenceManager2Benchmark
+ * ```
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class PreferenceManager2Benchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val prefs = PreferenceManager2.getInstance(
+        InstrumentationRegistry.getInstrumentation().targetContext,
+    )
+
+    @Test
+    fun readCurrent() {
+        // The first read seeds the snapshot
+        prefs.current(prefs.maxAppSearchResultCount)
+        benchmarkRule.measureRepeated {
+            prefs.current(prefs.maxAppSearchResultCount)
+        }
+    }
+
+    @Test
+    fun readFirstBlocking() {
+        benchmarkRule.measureRepeated {
+            prefs.maxAppSearchResultCount.firstBlocking()
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package app.lawnchair.search.algorithms.engine.provider.apps
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import org.junit.Assert.assertTrue
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Benchmarks building an [AppSearchIndex] over 1,000 synthetic apps and matching every app of
+ * it against one keystroke with [AppMatcher]:
+ * ```
+ * ./gradlew :connectedLawnWithQuickstepGithubDebugAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=app.lawnchair.search.algorithms.engine.provider.apps.AppMatcherBenchmark
+ * ```
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class AppMatcherBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val apps = syntheticApps(APP_COUNT)
+    private val index = AppSearchIndex.build(apps)
+
+    @Test
+    fun buildIndex() {
+        benchmarkRule.measureRepeated {
+            AppSearchIndex.build(apps)
+        }
+    }
+
+    // Matched by the prefix and substring rules
+    @Test
+    fun matchWord() = match("camera")
+
+    // Matched by the initials rule
+    @Test
+    fun matchInitials() = match("gm")
+
+    // Only matched by the fuzzy rule, which runs for every app
+    @Test
+    fun matchMisspelling() = match("setings")
+
+    private fun match(query: String) {
+        var matches = 0
+        benchmarkRule.measureRepeated {
+            val matchQuery = AppMatcher.Query(query, index.substringCandidates(query))
+            matches = 0
+            index.entries.forEachIndexed { i, entry ->
+                if (AppMatcher.match(entry, i, matchQuery) != null) matches++
+            }
+        }
+        assertTrue("No app matches \"$query\"", matches > 0)
+    }
+
+    private companion object {
+        const val APP_COUNT = 1000
+    }
+}
@@ -0,0 +1,32 @@
+package app.lawnchair.search.algorithms.engine.provider.apps
+
+import android.content.ComponentName
+import android.content.Intent
+import android.os.Process
+import com.android.launcher3.model.data.AppInfo
+import kotlin.random.Random
+
+/**
+ * Returns [count] apps with titles of one to three words common in app names. The titles only
+ * depend on [count], so benchmark results can be compared across builds and devices.
+ */
+internal fun syntheticApps(count: Int): List<AppInfo> {
+    val random = Random(SEED)
+    val user = Process.myUserHandle()
+    return List(count) { i ->
+        val title = List(1 + random.nextInt(3)) { WORDS[random.nextInt(WORDS.size)] }.joinToString(" ")
+        val packageName = "com.example.app$i"
+        AppInfo(ComponentName(packageName, "$packageName.MainActivity"), title, user, Intent())
+    }
+}
+
+private const val SEED = 1000
+
+private val WORDS = listOf(
+    "Android", "Auto", "Bank", "Book", "Calculator", "Calendar", "Camera", "Chat", "Clock",
+    "Cloud", "Contacts", "Docs", "Drive", "Editor", "Files", "Fit", "Gallery", "Games", "Google",
+    "Health", "Home", "Keep", "Lens", "Maps", "Messages", "Music", "News", "Notes", "Pay",
+    "Phone", "Photos", "Player", "Podcasts", "Radio", "Reader", "Recorder", "Scanner", "Settings",
+    "Sheets", "Shop", "Slides", "Sports", "Store", "Studio", "Translate", "Travel", "TV",
+    "Video", "Wallet", "Weather",
+)
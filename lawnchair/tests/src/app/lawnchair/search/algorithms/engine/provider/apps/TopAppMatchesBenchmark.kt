@@ -0,0 +1,93 @@
+package app.lawnchair.search.algorithms.engine.provider.apps
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.LargeTest
+import com.android.launcher3.model.data.AppInfo
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+
+/**
+ * Compares the latency and allocations of keeping the best matches with [TopAppMatches] against
+ * sorting every match, which fuzzy app search did before, for a one-letter query that most of
+ * 1,000 synthetic apps match.
+ *
+ * The `select` benchmarks only measure the selection, over precomputed matches. The `search`
+ * benchmarks also match the apps, so they include the rules [TopAppMatches] lets the matcher
+ * skip:
+ * ```
+ * ./gradlew :connectedLawnWithQuickstepGithubDebugAndroidTest -Pandroid.testInstrumentationRunnerArguments.class=app.lawnchair.search.algorithms.engine.provider.apps.TopAppMatchesBenchmark
+ * ```
+ */
+@RunWith(AndroidJUnit4::class)
+@LargeTest
+class TopAppMatchesBenchmark {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val index = AppSearchIndex.build(syntheticApps(APP_COUNT))
+    private val query = AppMatcher.Query(QUERY, index.substringCandidates(QUERY))
+    private val matches = index.entries.mapIndexedNotNull { i, entry ->
+        AppMatcher.match(entry, i, query)?.let { entry.app to it }
+    }
+
+    @Test
+    fun selectBounded() {
+        benchmarkRule.measureRepeated {
+            val topMatches = TopAppMatches(MAX_RESULTS)
+            matches.forEach { (app, result) -> topMatches.offer(app, result) }
+            topMatches.toList()
+        }
+    }
+
+    @Test
+    fun selectBySorting() {
+        benchmarkRule.measureRepeated {
+            sortAndTake(matches)
+        }
+    }
+
+    @Test
+    fun searchBounded() {
+        benchmarkRule.measureRepeated {
+            val topMatches = TopAppMatches(MAX_RESULTS)
+            index.entries.forEachIndexed { i, entry ->
+                val result = AppMatcher.match(entry, i, query, topMatches.maxUsefulPriority)
+                if (result != null) topMatches.offer(entry.app, result)
+            }
+            topMatches.toList()
+        }
+    }
+
+    @Test
+    fun searchBySorting() {
+        benchmarkRule.measureRepeated {
+            val all = mutableListOf<Pair<AppInfo, MatchResult>>()
+            index.entries.forEachIndexed { i, entry ->
+                AppMatcher.match(entry, i, query)?.let { all.add(entry.app to it) }
+            }
+            sortAndTake(all)
+        }
+    }
+
+    private fun sortAndTake(matches: List<Pair<AppInfo, MatchResult>>): List<AppInfo> = matches
+        .sortedWith(
+            compareBy(
+                { it.second.type.priority },
+                { -it.second.score },
+            ),
+        )
+        .map { it.first }
+        .take(MAX_RESULTS)
+
+    private companion object {
+        const val APP_COUNT = 1000
+        const val QUERY = "a"
+
+        // The default maxAppSearchResultCount
+        const val MAX_RESULTS = 5
+    }
+}
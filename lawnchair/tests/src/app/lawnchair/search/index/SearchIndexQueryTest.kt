@@ -0,0 +1,32 @@
+package app.lawnchair.search.index
+
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.filters.SmallTest
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertFalse
+import org.junit.Assert.assertTrue
+import org.junit.Test
+import org.junit.runner.RunWith
+
+@RunWith(AndroidJUnit4::class)
+@SmallTest
+class SearchIndexQueryTest {
+
+    @Test
+    fun matches_tokenPrefixes() {
+        assertTrue(SearchIndexQuery.matches("jo sm", "John Smith"))
+        assertFalse(SearchIndexQuery.matches("ohn", "John Smith"))
+    }
+
+    @Test
+    fun matches_accentedName_withoutAccents() {
+        assertTrue(SearchIndexQuery.matches("jose", "José Muñoz"))
+        assertTrue(SearchIndexQuery.matches("munoz", "José Muñoz"))
+        assertTrue(SearchIndexQuery.matches("JOSÉ", "Jose Munoz"))
+    }
+
+    @Test
+    fun toMatch_foldsAccents() {
+        assertEquals("\"jose\"* \"munoz\"*", SearchIndexQuery.toMatch("José Muñoz"))
+    }
+}
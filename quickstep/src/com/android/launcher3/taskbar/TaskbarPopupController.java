@@ -105,6 +105,7 @@ public class TaskbarPopupController implements TaskbarControllers.LoggableTaskba
 
     public void onDestroy() {
         NotificationListener.removeNotificationsChangedListener(mPopupDataProvider);
+        mPopupDataProvider.cancelPendingDotUpdates();
     }
 
     @NonNull
@@ -350,6 +350,13 @@ public class RecentsModel implements RecentTasksDataSource, TaskStackChangeListe
             // Clear everything once we reach a low-mem situation
             mThumbnailCache.clear();
             mIconCache.clearCache();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            // The process is likely to be killed soon, so reloading any thumbnail is wasted work
+            mThumbnailCache.clear();
+        } else if (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            // Keep the thumbnails, but only at reduced resolution
+            mThumbnailCache.demoteToReducedResolution();
         }
     }
 
@@ -391,6 +398,8 @@ public class RecentsModel implements RecentTasksDataSource, TaskStackChangeListe
     public void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "RecentsModel:");
         mTaskList.dump("  ", writer);
+        mThumbnailCache.dump("  ", writer);
+        mIconCache.dump("  ", writer);
     }
 
     /**
@@ -44,11 +44,12 @@ import com.android.quickstep.recents.di.RecentsDependencies
 import com.android.quickstep.recents.di.inject
 import com.android.quickstep.task.thumbnail.data.TaskIconDataSource
 import com.android.quickstep.util.IconLabelUtil.getBadgedContentDescription
-import com.android.quickstep.util.TaskKeyLruCache
+import com.android.quickstep.util.TaskKeyByteBudgetCache
 import com.android.quickstep.util.TaskVisualsChangeListener
 import com.android.systemui.shared.recents.model.Task
 import com.android.systemui.shared.recents.model.Task.TaskKey
 import com.android.systemui.shared.system.PackageManagerWrapper
+import java.io.PrintWriter
 import java.util.concurrent.Executor
 import kotlinx.coroutines.withContext
 
@@ -60,8 +61,11 @@ class TaskIconCache(
     displayController: DisplayController,
 ) : TaskIconDataSource, DisplayInfoChangeListener {
     private val iconCache =
-        TaskKeyLruCache<TaskCacheEntry>(
-            context.resources.getInteger(R.integer.recentsIconCacheSize)
+        TaskKeyByteBudgetCache<TaskCacheEntry>(
+            context.resources.getInteger(R.integer.recentsIconCacheSize),
+            context.resources.getInteger(R.integer.recentsIconCacheMaxKb) * 1024L,
+            { entry -> weighIcon(entry.icon) },
+            /* evictByLastActiveTime= */ false,
         )
     private val defaultIcons = SparseArray<BitmapInfo>()
     private var defaultIconBase: BitmapInfo? = null
@@ -171,6 +175,11 @@ class TaskIconCache(
         }
     }
 
+    fun dump(prefix: String, writer: PrintWriter) {
+        writer.println("${prefix}TaskIconCache:")
+        iconCache.dump("$prefix  ", writer)
+    }
+
     @WorkerThread
     private fun createIconFactory() =
         BaseIconFactory(
@@ -297,6 +306,13 @@ class TaskIconCache(
         iconCache.evictAll()
     }
 
+    /** Returns the number of bytes used by [icon], estimated from its size if not a bitmap. */
+    private fun weighIcon(icon: Drawable): Long =
+        (icon as? BitmapDrawable)?.bitmap?.allocationByteCount?.toLong()
+            ?: (icon.intrinsicWidth.coerceAtLeast(1).toLong() *
+                icon.intrinsicHeight.coerceAtLeast(1) *
+                4)
+
     data class TaskCacheEntry(
         val icon: Drawable,
         val contentDescription: String = "",
@@ -28,13 +28,13 @@ import com.android.launcher3.util.coroutines.DispatcherProvider
 import com.android.quickstep.recents.di.RecentsDependencies
 import com.android.quickstep.recents.di.inject
 import com.android.quickstep.task.thumbnail.data.TaskThumbnailDataSource
-import com.android.quickstep.util.TaskKeyByLastActiveTimeCache
+import com.android.quickstep.util.TaskKeyByteBudgetCache
 import com.android.quickstep.util.TaskKeyCache
-import com.android.quickstep.util.TaskKeyLruCache
 import com.android.systemui.shared.recents.model.Task
 import com.android.systemui.shared.recents.model.Task.TaskKey
 import com.android.systemui.shared.recents.model.ThumbnailData
 import com.android.systemui.shared.system.ActivityManagerWrapper
+import java.io.PrintWriter
 import java.util.concurrent.Executor
 import java.util.function.Consumer
 import kotlinx.coroutines.withContext
@@ -59,8 +59,14 @@ internal constructor(
     ) : this(
         context,
         bgExecutor,
-        if (enableGridOnlyOverview()) TaskKeyByLastActiveTimeCache(cacheSize)
-        else TaskKeyLruCache(cacheSize),
+        TaskKeyByteBudgetCache(
+            cacheSize,
+            context.resources.getInteger(R.integer.recentsThumbnailCacheMaxKb) * 1024L,
+            { thumbnailData: ThumbnailData ->
+                thumbnailData.thumbnail?.allocationByteCount?.toLong() ?: 0L
+            },
+            /* evictByLastActiveTime= */ enableGridOnlyOverview(),
+        ),
     )
 
     /**
@@ -137,6 +143,18 @@ internal constructor(
         }
     }
 
+    @WorkerThread
+    override suspend fun getReducedResolutionThumbnail(task: Task): ThumbnailData? {
+        task.thumbnail?.let { if (it.thumbnail != null) return it }
+        cache.peek(task.key)?.let { if (it.thumbnail != null) return it }
+
+        return withContext(dispatcherProvider.ioBackground) {
+            ActivityManagerWrapper.getInstance()
+                .getTaskThumbnail(task.key.id, /* isLowResolution= */ true)
+                .takeIf { it.thumbnail != null }
+        }
+    }
+
     /**
      * Asynchronously fetches the thumbnail for the given `task`.
      *
@@ -235,6 +253,29 @@ internal constructor(
         cache.evictAll()
     }
 
+    /**
+     * Replaces the full resolution thumbnails of the cache with reduced resolution ones, which are
+     * loaded in the background. The reload doesn't count as cache hits or misses.
+     */
+    fun demoteToReducedResolution() {
+        val demotedKeys = cache.removeAllValues { !it.reducedResolution }
+        if (demotedKeys.isEmpty()) return
+        bgExecutor.execute {
+            for (key in demotedKeys) {
+                val thumbnailData =
+                    ActivityManagerWrapper.getInstance().getTaskThumbnail(key.id, true)
+                if (thumbnailData.thumbnail == null) continue
+                // Don't replace a thumbnail loaded since then
+                cache.putIfAbsent(key, thumbnailData)
+            }
+        }
+    }
+
+    fun dump(prefix: String, writer: PrintWriter) {
+        writer.println("${prefix}TaskThumbnailCache:")
+        cache.dump("$prefix  ", writer)
+    }
+
     /** Removes the cached thumbnail for the given task. */
     fun remove(key: TaskKey) {
         cache.remove(key)
@@ -47,4 +47,11 @@ interface RecentTasksRepository {
      * populated e.g. icons/thumbnails etc.
      */
     fun setVisibleTasks(displayId: Int, visibleTaskIdList: Set<Int>)
+
+    /**
+     * Sets the tasks about to become visible, in the order they are expected to. A reduced
+     * resolution thumbnail is loaded for each of them, one at a time, and dropped once the task
+     * is no longer in the list or visible.
+     */
+    fun setPrefetchTasks(displayId: Int, prefetchTaskIdList: List<Int>)
 }
@@ -28,6 +28,7 @@ import com.android.quickstep.task.thumbnail.data.TaskThumbnailDataSource
 import com.android.systemui.shared.recents.model.Task
 import com.android.systemui.shared.recents.model.ThumbnailData
 import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.CoroutineStart
 import kotlinx.coroutines.Job
 import kotlinx.coroutines.async
 import kotlinx.coroutines.awaitAll
@@ -36,6 +37,7 @@ import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.distinctUntilChangedBy
 import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.flow.update
+import kotlinx.coroutines.job
 import kotlinx.coroutines.launch
 import kotlinx.coroutines.withContext
 
@@ -50,6 +52,12 @@ class TasksRepository(
     private val tasks = MutableStateFlow(MapForStateFlow<Int, Task>(emptyMap()))
     private var visibleTaskIdsPerDisplay = SparseArray<Set<Int>>()
     private val taskRequests = HashMap<Int, Pair<Task.TaskKey, Job>>()
+    private var prefetchTaskIdsPerDisplay = SparseArray<List<Int>>()
+    // Tasks which aren't visible yet, but whose thumbnail was prefetched
+    private val prefetchedTaskIds = HashSet<Int>()
+    // Tasks whose thumbnail is still to prefetch, in priority order
+    private val prefetchQueue = ArrayDeque<Int>()
+    private var prefetchRequest: Pair<Int, Job>? = null
 
     override fun getAllTaskData(displayId: Int, forceRefresh: Boolean): Flow<List<Task>> {
         if (!visibleTaskIdsPerDisplay.contains(displayId)) {
@@ -96,6 +104,15 @@ class TasksRepository(
         updateTaskRequests()
     }
 
+    override fun setPrefetchTasks(displayId: Int, prefetchTaskIdList: List<Int>) {
+        if (prefetchTaskIdList.isEmpty()) {
+            prefetchTaskIdsPerDisplay.remove(displayId)
+        } else {
+            prefetchTaskIdsPerDisplay.put(displayId, prefetchTaskIdList)
+        }
+        updateTaskRequests()
+    }
+
     @Synchronized
     private fun updateTaskRequests() {
         val allVisibleTaskIds =
@@ -113,10 +130,78 @@ class TasksRepository(
             )
         }
 
+        val prefetchesNeeded =
+            prefetchTaskIdsPerDisplay
+                .valueIterator()
+                .asSequence()
+                .flatMap { it }
+                .filter { it !in requestsNeeded && it in tasks.value }
+                .distinct()
+                .toList()
+
         // Remove tasks are no longer visible
-        removeTasks(requestsNoLongerNeeded)
+        removeTasks(requestsNoLongerNeeded, prefetchesNeeded)
         // Add new tasks to be requested
         newlyRequestedTasks.forEach { taskId -> requestTaskData(taskId) }
+        updatePrefetchRequests(prefetchesNeeded)
+    }
+
+    private fun updatePrefetchRequests(prefetchesNeeded: List<Int>) {
+        // Visible tasks now own their prefetched thumbnail, and the others are dropped
+        val prefetchesNoLongerNeeded = prefetchedTaskIds.subtract(prefetchesNeeded.toSet())
+        prefetchedTaskIds.removeAll(prefetchesNoLongerNeeded)
+        clearThumbnails(prefetchesNoLongerNeeded.filterNot { it in taskRequests })
+
+        prefetchRequest?.let { (taskId, job) ->
+            if (taskId !in prefetchesNeeded) {
+                job.cancel()
+                prefetchRequest = null
+            }
+        }
+        prefetchQueue.clear()
+        prefetchesNeeded.filterTo(prefetchQueue) {
+            it !in prefetchedTaskIds &&
+                it != prefetchRequest?.first &&
+                tasks.value[it]?.thumbnail == null
+        }
+        if (prefetchRequest == null) {
+            prefetchNextThumbnail()
+        }
+    }
+
+    private fun prefetchNextThumbnail() {
+        val task = prefetchQueue.removeFirstOrNull()?.let { tasks.value[it] } ?: return
+        val taskId = task.key.id
+        // Started lazily, so that a thumbnail loaded synchronously finds the request
+        val job =
+            recentsCoroutineScope.launch(
+                dispatcherProvider.lightweightBackground,
+                CoroutineStart.LAZY,
+            ) {
+                val thumbnail = taskThumbnailDataSource.getReducedResolutionThumbnail(task)
+                onThumbnailPrefetched(taskId, coroutineContext.job, thumbnail)
+            }
+        prefetchRequest = Pair(taskId, job)
+        job.start()
+    }
+
+    @Synchronized
+    private fun onThumbnailPrefetched(taskId: Int, job: Job, thumbnail: ThumbnailData?) {
+        if (prefetchRequest?.second !== job) return
+        prefetchRequest = null
+        if (thumbnail != null && tasks.value[taskId]?.thumbnail == null) {
+            prefetchedTaskIds.add(taskId)
+            updateThumbnail(taskId, thumbnail)
+        }
+        prefetchNextThumbnail()
+    }
+
+    private fun clearThumbnails(taskIds: Collection<Int>) {
+        if (taskIds.isEmpty()) return
+        tasks.update { currentTasks ->
+            taskIds.forEach { taskId -> currentTasks[taskId]?.thumbnail = null }
+            MapForStateFlow(currentTasks)
+        }
     }
 
     private fun requestTaskData(taskId: Int) {
@@ -133,7 +218,7 @@ class TasksRepository(
             )
     }
 
-    private fun removeTasks(tasksToRemove: Set<Int>) {
+    private fun removeTasks(tasksToRemove: Set<Int>, prefetchesNeeded: List<Int>) {
         if (tasksToRemove.isEmpty()) return
 
         Log.i(TAG, "removeTasks: $tasksToRemove")
@@ -147,9 +232,14 @@ class TasksRepository(
                 taskVisualsChangedDelegate.unregisterTaskIconChangedCallback(taskKey)
                 taskVisualsChangedDelegate.unregisterTaskThumbnailChangedCallback(taskKey)
 
-                // Clearing Task to reduce memory footprint
+                // Clearing Task to reduce memory footprint, but keeping the thumbnail if it
+                // is about to be visible again
                 currentTasks[taskId]?.apply {
-                    thumbnail = null
+                    if (taskId in prefetchesNeeded && thumbnail != null) {
+                        prefetchedTaskIds.add(taskId)
+                    } else {
+                        thumbnail = null
+                    }
                     icon = null
                     title = null
                     titleDescription = null
@@ -38,6 +38,14 @@ class RecentsViewModel(
         recentsTasksRepository.setVisibleTasks(displayId, visibleTaskIds)
     }
 
+    fun updatePrefetchTasks(prefetchTaskIdList: List<Int>) {
+        recentsTasksRepository.setPrefetchTasks(displayId, prefetchTaskIdList)
+    }
+
+    /** Returns whether a thumbnail is loaded for the task with [taskId]. */
+    fun hasThumbnail(taskId: Int) =
+        recentsTasksRepository.getCurrentThumbnailById(taskId)?.thumbnail != null
+
     fun updateTasksFullyVisible(taskIds: Set<Int>) {
         recentsViewData.settledFullyVisibleTaskIds.value = taskIds
     }
@@ -68,6 +76,7 @@ class RecentsViewModel(
     }
 
     fun onReset() {
+        updatePrefetchTasks(emptyList())
         updateVisibleTasks(emptyList())
     }
 
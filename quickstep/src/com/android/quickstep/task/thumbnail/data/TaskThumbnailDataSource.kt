@@ -21,4 +21,10 @@ import com.android.systemui.shared.recents.model.ThumbnailData
 
 interface TaskThumbnailDataSource {
     suspend fun getThumbnail(task: Task): ThumbnailData?
+
+    /**
+     * Gets a thumbnail of any resolution for [task], loading a reduced resolution one if none is
+     * available. Unlike [getThumbnail], loaded thumbnails aren't cached.
+     */
+    suspend fun getReducedResolutionThumbnail(task: Task): ThumbnailData?
 }
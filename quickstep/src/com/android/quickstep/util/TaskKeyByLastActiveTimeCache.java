@@ -22,9 +22,11 @@ import androidx.annotation.VisibleForTesting;
 
 import com.android.systemui.shared.recents.model.Task;
 
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -91,6 +93,25 @@ public class TaskKeyByLastActiveTimeCache<V> implements TaskKeyCache<V> {
         }
     }
 
+    /**
+     * Removes all entries whose value matches valueCheck
+     */
+    @Override
+    public synchronized List<Task.TaskKey> removeAllValues(Predicate<V> valueCheck) {
+        List<Task.TaskKey> removed = new ArrayList<>();
+        Iterator<Task.TaskKey> iterator = mQueue.iterator();
+        while (iterator.hasNext()) {
+            Task.TaskKey key = iterator.next();
+            Entry<V> entry = mMap.get(key.id);
+            if (entry != null && entry.mValue != null && valueCheck.test(entry.mValue)) {
+                mMap.remove(key.id);
+                iterator.remove();
+                removed.add(key);
+            }
+        }
+        return removed;
+    }
+
     /**
      * Gets the entry if it is still valid
      */
@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import android.util.Log;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.systemui.shared.recents.model.Task;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * A cache of task ids and their corresponding objects, limited by both a number of entries and
+ * the number of bytes used by the objects.
+ *
+ * <p>Hits don't take a lock: readers look entries up in an immutable snapshot, which is replaced
+ * whenever entries are added or removed, and only record when the entry was last accessed.
+ * Changes lock, and evict entries until both limits are met: the least recently accessed ones, or
+ * the least recently active tasks if {@code evictByLastActiveTime} is set.
+ *
+ * @param <V> Type of object stored in the cache
+ */
+public class TaskKeyByteBudgetCache<V> implements TaskKeyCache<V> {
+
+    private static final String TAG = "TaskKeyByteBudgetCache";
+
+    /**
+     * Measures the number of bytes used by cached objects.
+     */
+    public interface Weigher<V> {
+        long weigh(@NonNull V value);
+    }
+
+    private final Weigher<V> mWeigher;
+    private final boolean mEvictByLastActiveTime;
+    private final AtomicLong mAccessCount = new AtomicLong();
+
+    // Guarded by this
+    private final SparseArray<SizedEntry<V>> mEntries = new SparseArray<>();
+    private long mBytes;
+    private int mMaxSize;
+    private long mMaxBytes;
+    // An immutable copy of mEntries for readers
+    private volatile SparseArray<SizedEntry<V>> mSnapshot = new SparseArray<>();
+
+    private final LongAdder mHits = new LongAdder();
+    private final LongAdder mMisses = new LongAdder();
+    private final LongAdder mEvictions = new LongAdder();
+
+    public TaskKeyByteBudgetCache(int maxSize, long maxBytes, Weigher<V> weigher,
+            boolean evictByLastActiveTime) {
+        mMaxSize = maxSize;
+        mMaxBytes = maxBytes;
+        mWeigher = weigher;
+        mEvictByLastActiveTime = evictByLastActiveTime;
+    }
+
+    @Override
+    public synchronized void evictAll() {
+        mEntries.clear();
+        mBytes = 0;
+        publish();
+    }
+
+    @Override
+    public synchronized void remove(Task.TaskKey key) {
+        if (key == null) {
+            return;
+        }
+        int index = mEntries.indexOfKey(key.id);
+        if (index >= 0) {
+            mBytes -= mEntries.valueAt(index).mBytes;
+            mEntries.removeAt(index);
+            publish();
+        }
+    }
+
+    @Override
+    public synchronized void removeAll(Predicate<Task.TaskKey> keyCheck) {
+        removeIf(entry -> keyCheck.test(entry.mKey));
+    }
+
+    @Override
+    public synchronized List<Task.TaskKey> removeAllValues(Predicate<V> valueCheck) {
+        return removeIf(entry -> entry.mValue != null && valueCheck.test(entry.mValue));
+    }
+
+    @Override
+    @Nullable
+    public V getAndInvalidateIfModified(Task.TaskKey key) {
+        SizedEntry<V> entry = mSnapshot.get(key.id);
+        if (entry != null && isValid(entry, key)) {
+            entry.mLastAccess = mAccessCount.incrementAndGet();
+            mHits.increment();
+            return entry.mValue;
+        }
+        mMisses.increment();
+        if (entry != null) {
+            removeStale(entry);
+        }
+        return null;
+    }
+
+    @Override
+    @Nullable
+    public V peek(Task.TaskKey key) {
+        SizedEntry<V> entry = mSnapshot.get(key.id);
+        return entry != null && isValid(entry, key) ? entry.mValue : null;
+    }
+
+    @Override
+    public synchronized void putIfAbsent(Task.TaskKey key, V value) {
+        SizedEntry<V> entry = key == null ? null : mEntries.get(key.id);
+        if (entry == null || !isValid(entry, key)) {
+            put(key, value);
+        }
+    }
+
+    @Override
+    public final synchronized void put(Task.TaskKey key, V value) {
+        if (key == null || value == null) {
+            Log.e(TAG, "Unexpected null key or value: " + key + ", " + value);
+            return;
+        }
+        SizedEntry<V> previous = mEntries.get(key.id);
+        if (previous != null) {
+            mBytes -= previous.mBytes;
+        }
+        SizedEntry<V> entry = new SizedEntry<>(key, value, mWeigher.weigh(value));
+        entry.mLastAccess = mAccessCount.incrementAndGet();
+        mEntries.put(key.id, entry);
+        mBytes += entry.mBytes;
+        removeExcess(entry);
+        publish();
+    }
+
+    @Override
+    public synchronized void updateIfAlreadyInCache(int taskId, V data) {
+        SizedEntry<V> entry = mEntries.get(taskId);
+        if (entry != null) {
+            long bytes = data == null ? 0 : mWeigher.weigh(data);
+            mBytes += bytes - entry.mBytes;
+            entry.mBytes = bytes;
+            entry.mValue = data;
+            if (removeExcess(entry)) {
+                publish();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void updateCacheSizeAndRemoveExcess(int cacheSize) {
+        mMaxSize = cacheSize;
+        if (removeExcess(null)) {
+            publish();
+        }
+    }
+
+    /**
+     * Updates the number of bytes the cached objects can use, removing the excess entries.
+     */
+    public synchronized void updateMaxBytesAndRemoveExcess(long maxBytes) {
+        mMaxBytes = maxBytes;
+        if (removeExcess(null)) {
+            publish();
+        }
+    }
+
+    @Override
+    public synchronized int getMaxSize() {
+        return mMaxSize;
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return mEntries.size();
+    }
+
+    public synchronized long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    public synchronized long getBytes() {
+        return mBytes;
+    }
+
+    @Override
+    public void dump(String prefix, PrintWriter writer) {
+        synchronized (this) {
+            writer.println(prefix + "size=" + mEntries.size() + "/" + mMaxSize
+                    + " bytes=" + mBytes + "/" + mMaxBytes);
+        }
+        writer.println(prefix + "hits=" + mHits.sum() + " misses=" + mMisses.sum()
+                + " evictions=" + mEvictions.sum());
+    }
+
+    @VisibleForTesting
+    long getEvictionCount() {
+        return mEvictions.sum();
+    }
+
+    @VisibleForTesting
+    long getHitCount() {
+        return mHits.sum();
+    }
+
+    @VisibleForTesting
+    long getMissCount() {
+        return mMisses.sum();
+    }
+
+    private static <V> boolean isValid(SizedEntry<V> entry, Task.TaskKey key) {
+        return entry.mKey.windowingMode == key.windowingMode
+                && entry.mKey.lastActiveTime == key.lastActiveTime;
+    }
+
+    /**
+     * Removes {@code stale} unless it was already replaced, by a put from another thread that
+     * happened after the snapshot was read.
+     */
+    private synchronized void removeStale(SizedEntry<V> stale) {
+        int index = mEntries.indexOfKey(stale.mKey.id);
+        if (index >= 0 && mEntries.valueAt(index) == stale) {
+            mBytes -= stale.mBytes;
+            mEntries.removeAt(index);
+            publish();
+        }
+    }
+
+    /**
+     * Evicts entries other than {@code keep} until both limits are met.
+     *
+     * @return whether any entry was evicted
+     */
+    private boolean removeExcess(@Nullable SizedEntry<V> keep) {
+        boolean removed = false;
+        while (mEntries.size() > mMaxSize || (mBytes > mMaxBytes && mEntries.size() > 1)) {
+            int victim = -1;
+            for (int i = 0; i < mEntries.size(); i++) {
+                SizedEntry<V> entry = mEntries.valueAt(i);
+                if (entry != keep && (victim < 0 || isOlder(entry, mEntries.valueAt(victim)))) {
+                    victim = i;
+                }
+            }
+            if (victim < 0) {
+                break;
+            }
+            mBytes -= mEntries.valueAt(victim).mBytes;
+            mEntries.removeAt(victim);
+            mEvictions.increment();
+            removed = true;
+        }
+        return removed;
+    }
+
+    private boolean isOlder(SizedEntry<V> entry, SizedEntry<V> other) {
+        return mEvictByLastActiveTime
+                ? entry.mKey.lastActiveTime < other.mKey.lastActiveTime
+                : entry.mLastAccess < other.mLastAccess;
+    }
+
+    private List<Task.TaskKey> removeIf(Predicate<SizedEntry<V>> check) {
+        List<Task.TaskKey> removed = new ArrayList<>();
+        for (int i = mEntries.size() - 1; i >= 0; i--) {
+            SizedEntry<V> entry = mEntries.valueAt(i);
+            if (check.test(entry)) {
+                removed.add(entry.mKey);
+                mBytes -= entry.mBytes;
+                mEntries.removeAt(i);
+            }
+        }
+        if (!removed.isEmpty()) {
+            publish();
+        }
+        return removed;
+    }
+
+    private void publish() {
+        mSnapshot = mEntries.clone();
+    }
+
+    private static class SizedEntry<V> {
+
+        final Task.TaskKey mKey;
+        volatile V mValue;
+        // Guarded by the cache
+        long mBytes;
+        volatile long mLastAccess;
+
+        SizedEntry(Task.TaskKey key, V value, long bytes) {
+            mKey = key;
+            mValue = value;
+            mBytes = bytes;
+        }
+    }
+}
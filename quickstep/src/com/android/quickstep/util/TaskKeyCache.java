@@ -19,6 +19,8 @@ import androidx.annotation.Nullable;
 
 import com.android.systemui.shared.recents.model.Task;
 
+import java.io.PrintWriter;
+import java.util.List;
 import java.util.function.Predicate;
 
 /**
@@ -43,17 +45,43 @@ public interface TaskKeyCache<V> {
      */
     void removeAll(Predicate<Task.TaskKey> keyCheck);
 
+    /**
+     * Removes all entries whose value matches valueCheck.
+     *
+     * @return the keys of the removed entries
+     */
+    List<Task.TaskKey> removeAllValues(Predicate<V> valueCheck);
+
     /**
      * Gets the entry if it is still valid.
      */
     @Nullable
     V getAndInvalidateIfModified(Task.TaskKey key);
 
+    /**
+     * Gets the entry if it is still valid, without counting as an access. Unlike
+     * {@link #getAndInvalidateIfModified}, a stale entry is left for the next access to remove.
+     */
+    @Nullable
+    default V peek(Task.TaskKey key) {
+        return getAndInvalidateIfModified(key);
+    }
+
     /**
      * Adds an entry to the cache, optionally evicting the last accessed entry.
      */
     void put(Task.TaskKey key, V value);
 
+    /**
+     * Adds an entry to the cache unless it already has a valid one for the key. Unlike a lookup
+     * followed by {@link #put}, this doesn't count as an access.
+     */
+    default void putIfAbsent(Task.TaskKey key, V value) {
+        if (getAndInvalidateIfModified(key) == null) {
+            put(key, value);
+        }
+    }
+
     /**
      * Updates the cache entry if it is already present in the cache.
      */
@@ -75,6 +103,13 @@ public interface TaskKeyCache<V> {
      */
     int getSize();
 
+    /**
+     * Dumps the state of the cache.
+     */
+    default void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "size=" + getSize() + "/" + getMaxSize());
+    }
+
     class Entry<V> {
 
         final Task.TaskKey mKey;
@@ -21,7 +21,10 @@ import androidx.annotation.Nullable;
 
 import com.android.systemui.shared.recents.model.Task.TaskKey;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Predicate;
 
@@ -58,6 +61,23 @@ public class TaskKeyLruCache<V> implements TaskKeyCache<V> {
         mMap.entrySet().removeIf(e -> keyCheck.test(e.getValue().mKey));
     }
 
+    /**
+     * Removes all entries whose value matches valueCheck
+     */
+    @Override
+    public synchronized List<TaskKey> removeAllValues(Predicate<V> valueCheck) {
+        List<TaskKey> removed = new ArrayList<>();
+        Iterator<Entry<V>> iterator = mMap.values().iterator();
+        while (iterator.hasNext()) {
+            Entry<V> entry = iterator.next();
+            if (entry.mValue != null && valueCheck.test(entry.mValue)) {
+                removed.add(entry.mKey);
+                iterator.remove();
+            }
+        }
+        return removed;
+    }
+
     /**
      * Gets the entry if it is still valid
      */
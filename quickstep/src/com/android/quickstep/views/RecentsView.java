@@ -258,6 +258,7 @@ import kotlinx.coroutines.CoroutineScope;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -509,6 +510,11 @@ public abstract class RecentsView<
     private static final int DEFAULT_ACTIONS_VIEW_ALPHA_ANIMATION_DURATION = 300;
 
     private static final int DISMISS_TASK_DURATION = 300;
+    // How far ahead of a fling thumbnails are loaded, in time at the current velocity
+    private static final int THUMBNAIL_PREFETCH_LOOKAHEAD_MS = 300;
+    // Trace counter of the visible tasks still showing a placeholder instead of their thumbnail
+    private static final String THUMBNAIL_PLACEHOLDERS_COUNTER =
+            "RecentsView#thumbnailPlaceholders";
     private static final int ADDITION_TASK_DURATION = 200;
     private static final float INITIAL_DISMISS_TRANSLATION_INTERPOLATION_OFFSET = 0.55f;
     private static final float ADDITIONAL_DISMISS_TRANSLATION_INTERPOLATION_OFFSET = 0.05f;
@@ -558,6 +564,7 @@ public abstract class RecentsView<
     protected final CONTAINER_TYPE mContainer;
     private final float mFastFlingVelocity;
     private final int mScrollHapticMinGapMillis;
+    private final int mThumbnailPrefetchCount;
     private final RecentsModel mModel;
     private final int mSplitPlaceholderSize;
     private final int mSplitPlaceholderInset;
@@ -935,6 +942,8 @@ public abstract class RecentsView<
                 .getInteger(R.integer.recentsScrollHapticMinGapMillis);
         mFastFlingVelocity = getResources()
                 .getDimensionPixelSize(R.dimen.recents_fast_fling_velocity);
+        mThumbnailPrefetchCount = getResources()
+                .getInteger(R.integer.recentsThumbnailPrefetchCount);
         mModel = RecentsModel.INSTANCE.get(context);
 
         mClearAllButton = (ClearAllButton) LayoutInflater.from(context)
@@ -2616,10 +2625,11 @@ public abstract class RecentsView<
             return;
         }
 
+        int screenStart = getPagedOrientationHandler().getPrimaryScroll(this);
+        int pageOrientedSize = getPagedOrientationHandler().getMeasuredSize(this);
+        int screenEnd = screenStart + pageOrientedSize;
         int lowerIndex, upperIndex, visibleStart, visibleEnd;
         if (showAsGrid()) {
-            int screenStart = getPagedOrientationHandler().getPrimaryScroll(this);
-            int pageOrientedSize = getPagedOrientationHandler().getMeasuredSize(this);
             // For GRID_ONLY_OVERVIEW, use +/- 1 task column as visible area for preloading
             // adjacent thumbnails, otherwise use +/-50% screen width
             int extraWidth = enableGridOnlyOverview()
@@ -2633,10 +2643,13 @@ public abstract class RecentsView<
             int numChildren = getChildCount();
             lowerIndex = Math.max(0, centerPageIndex - 2);
             upperIndex = Math.min(centerPageIndex + 2, numChildren - 1);
-            visibleStart = visibleEnd = 0;
+            visibleStart = screenStart;
+            visibleEnd = screenEnd;
         }
 
         List<Integer> visibleTaskIds = new ArrayList<>();
+        List<TaskView> prefetchTaskViews = new ArrayList<>();
+        int[] placeholderCount = new int[1];
         // Update the task data for the in/visible children
         getTaskViews().forEachWithIndexInParent((index, taskView) -> {
             List<TaskContainer> containers = taskView.getTaskContainers();
@@ -2658,6 +2671,15 @@ public abstract class RecentsView<
                 if (enableRefactorTaskThumbnail()) {
                     visibleTaskIds.addAll(
                             tasksToUpdate.stream().map((task) -> task.key.id).toList());
+                    if (taskView != getRunningTaskView() && isTaskViewWithinBounds(taskView,
+                            screenStart, screenEnd,
+                            mTaskViewsDismissPrimaryTranslations.getOrDefault(taskView, 0))) {
+                        for (Task task : tasksToUpdate) {
+                            if (!mRecentsViewModel.hasThumbnail(task.key.id)) {
+                                placeholderCount[0]++;
+                            }
+                        }
+                    }
                 }
                 if (tasksToUpdate.isEmpty()) {
                     return;
@@ -2679,6 +2701,9 @@ public abstract class RecentsView<
                     taskView.onTaskListVisibilityChanged(true /* visible */, visibilityChanges);
                 }
             } else {
+                if (enableRefactorTaskThumbnail()) {
+                    prefetchTaskViews.add(taskView);
+                }
                 int visibilityChanges = 0;
                 for (TaskContainer container : containers) {
                     if (container == null) {
@@ -2697,7 +2722,57 @@ public abstract class RecentsView<
         });
         if (enableRefactorTaskThumbnail()) {
             mRecentsViewModel.updateVisibleTasks(visibleTaskIds);
+            mRecentsViewModel.updatePrefetchTasks(
+                    getTaskIdsToPrefetch(prefetchTaskViews, visibleStart, visibleEnd));
+            Trace.setCounter(THUMBNAIL_PLACEHOLDERS_COUNTER, placeholderCount[0]);
+        }
+    }
+
+    /**
+     * Returns the ids of the tasks a fling is about to show, among the non visible
+     * {@code taskViews}, nearest first.
+     */
+    private List<Integer> getTaskIdsToPrefetch(List<TaskView> taskViews, int visibleStart,
+            int visibleEnd) {
+        if (mScroller.isFinished() || taskViews.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int remainingScroll = getPagedOrientationHandler().getPrimaryValue(
+                mScroller.getFinalX(), mScroller.getFinalY())
+                - getPagedOrientationHandler().getPrimaryScroll(this);
+        // Don't look further than where the fling stops
+        int lookahead = Math.min(Math.abs(remainingScroll),
+                (int) (mScroller.getCurrVelocity() * THUMBNAIL_PREFETCH_LOOKAHEAD_MS / 1000));
+        if (lookahead <= 0) {
+            return Collections.emptyList();
+        }
+        boolean forward = remainingScroll > 0;
+        int prefetchStart = forward ? visibleEnd : visibleStart - lookahead;
+        int prefetchEnd = forward ? visibleEnd + lookahead : visibleStart;
+
+        List<TaskView> prefetched = new ArrayList<>();
+        for (TaskView taskView : taskViews) {
+            if (isTaskViewWithinBounds(taskView, prefetchStart, prefetchEnd,
+                    mTaskViewsDismissPrimaryTranslations.getOrDefault(taskView, 0))) {
+                prefetched.add(taskView);
+            }
+        }
+        prefetched.sort(Comparator.comparingInt(taskView -> {
+            int taskStart = getPagedOrientationHandler().getChildStart(taskView)
+                    + (int) taskView.getOffsetAdjustment(showAsGrid());
+            return forward ? taskStart : -taskStart;
+        }));
+
+        List<Integer> taskIds = new ArrayList<>();
+        for (TaskView taskView : prefetched) {
+            for (TaskContainer container : taskView.getTaskContainers()) {
+                if (taskIds.size() >= mThumbnailPrefetchCount) {
+                    return taskIds;
+                }
+                taskIds.add(container.getTask().key.id);
+            }
         }
+        return taskIds;
     }
 
     /**
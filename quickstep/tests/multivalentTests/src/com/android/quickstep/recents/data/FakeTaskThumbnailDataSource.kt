@@ -29,6 +29,7 @@ class FakeTaskThumbnailDataSource : TaskThumbnailDataSource {
         (0..10).associateWith { mock<Bitmap>() }.toMutableMap()
     private val completionPrevented: MutableSet<Int> = mutableSetOf()
     private val getThumbnailCalls = mutableMapOf<Int, Int>()
+    private val getReducedResolutionThumbnailCalls = mutableMapOf<Int, Int>()
 
     var highResEnabled = true
 
@@ -46,8 +47,22 @@ class FakeTaskThumbnailDataSource : TaskThumbnailDataSource {
         )
     }
 
+    /** Retrieves a reduced resolution thumbnail for [task] from [taskIdToBitmap]. */
+    override suspend fun getReducedResolutionThumbnail(task: Task): ThumbnailData {
+        getReducedResolutionThumbnailCalls[task.key.id] =
+            (getReducedResolutionThumbnailCalls[task.key.id] ?: 0) + 1
+
+        while (task.key.id in completionPrevented) {
+            delay(1L)
+        }
+        return ThumbnailData(thumbnail = taskIdToBitmap[task.key.id], reducedResolution = true)
+    }
+
     fun getNumberOfGetThumbnailCalls(taskId: Int): Int = getThumbnailCalls[taskId] ?: 0
 
+    fun getNumberOfGetReducedResolutionThumbnailCalls(taskId: Int): Int =
+        getReducedResolutionThumbnailCalls[taskId] ?: 0
+
     fun preventThumbnailLoad(taskId: Int) {
         completionPrevented.add(taskId)
     }
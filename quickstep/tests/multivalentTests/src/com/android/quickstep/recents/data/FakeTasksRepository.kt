@@ -78,6 +78,8 @@ class FakeTasksRepository : RecentTasksRepository {
             }
     }
 
+    override fun setPrefetchTasks(displayId: Int, prefetchTaskIdList: List<Int>) {}
+
     fun seedTasks(tasks: List<Task>) {
         this.tasks.value = tasks
     }
@@ -584,6 +584,101 @@ class TasksRepositoryTest {
             }
         }
 
+    @Test
+    fun setPrefetchTasks_populatesReducedResolutionThumbnails() =
+        testScope.runTest {
+            recentsModel.seedTasks(defaultTaskList)
+            systemUnderTest.getAllTaskData(DEFAULT_DISPLAY, forceRefresh = true)
+            systemUnderTest.setVisibleTasks(DEFAULT_DISPLAY, setOf(0))
+
+            systemUnderTest.setPrefetchTasks(DEFAULT_DISPLAY, listOf(1, 2))
+
+            for (taskId in 1..2) {
+                val thumbnail = systemUnderTest.getThumbnailById(taskId).first()!!
+                assertThat(thumbnail.thumbnail)
+                    .isEqualTo(taskThumbnailDataSource.taskIdToBitmap[taskId])
+                assertThat(thumbnail.reducedResolution).isTrue()
+            }
+            assertThat(systemUnderTest.getTaskDataById(1).first()!!.icon).isNull()
+        }
+
+    @Test
+    fun setPrefetchTasks_loadsOneThumbnailAtATimeInOrder() =
+        testScope.runTest {
+            recentsModel.seedTasks(defaultTaskList)
+            systemUnderTest.getAllTaskData(DEFAULT_DISPLAY, forceRefresh = true)
+            taskThumbnailDataSource.preventThumbnailLoad(2)
+
+            systemUnderTest.setPrefetchTasks(DEFAULT_DISPLAY, listOf(2, 1))
+
+            assertThat(taskThumbnailDataSource.getNumberOfGetReducedResolutionThumbnailCalls(2))
+                .isEqualTo(1)
+            assertThat(taskThumbnailDataSource.getNumberOfGetReducedResolutionThumbnailCalls(1))
+                .isEqualTo(0)
+
+            taskThumbnailDataSource.completeLoadingForTask(2)
+            advanceUntilIdle()
+
+            assertThat(taskThumbnailDataSource.getNumberOfGetReducedResolutionThumbnailCalls(1))
+                .isEqualTo(1)
+            assertThat(systemUnderTest.getThumbnailById(1).first()?.thumbnail)
+                .isEqualTo(taskThumbnailDataSource.taskIdToBitmap[1])
+        }
+
+    @Test
+    fun setPrefetchTasks_taskOutOfRange_cancelsRequestAndDropsThumbnail() =
+        testScope.runTest {
+            recentsModel.seedTasks(defaultTaskList)
+            systemUnderTest.getAllTaskData(DEFAULT_DISPLAY, forceRefresh = true)
+            systemUnderTest.setPrefetchTasks(DEFAULT_DISPLAY, listOf(1))
+            taskThumbnailDataSource.preventThumbnailLoad(2)
+            systemUnderTest.setPrefetchTasks(DEFAULT_DISPLAY, listOf(1, 2))
+
+            systemUnderTest.setPrefetchTasks(DEFAULT_DISPLAY, listOf(3))
+            taskThumbnailDataSource.completeLoadingForTask(2)
+            advanceUntilIdle()
+
+            assertThat(systemUnderTest.getThumbnailById(1).first()?.thumbnail).isNull()
+            assertThat(systemUnderTest.getThumbnailById(2).first()?.thumbnail).isNull()
+            assertThat(systemUnderTest.getThumbnailById(3).first()?.thumbnail)
+                .isEqualTo(taskThumbnailDataSource.taskIdToBitmap[3])
+        }
+
+    @Test
+    fun prefetchedTaskBecomesVisible_keepsThumbnailUntilLoaded() =
+        testScope.runTest {
+            recentsModel.seedTasks(defaultTaskList)
+            systemUnderTest.getAllTaskData(DEFAULT_DISPLAY, forceRefresh = true)
+            systemUnderTest.setPrefetchTasks(DEFAULT_DISPLAY, listOf(1))
+            taskThumbnailDataSource.preventThumbnailLoad(1)
+
+            systemUnderTest.setVisibleTasks(DEFAULT_DISPLAY, setOf(1))
+            systemUnderTest.setPrefetchTasks(DEFAULT_DISPLAY, emptyList())
+
+            assertThat(systemUnderTest.getThumbnailById(1).first()!!.reducedResolution).isTrue()
+
+            taskThumbnailDataSource.completeLoadingForTask(1)
+            advanceUntilIdle()
+
+            assertThat(systemUnderTest.getThumbnailById(1).first()!!.reducedResolution).isFalse()
+        }
+
+    @Test
+    fun visibleTaskMovedToPrefetchTasks_keepsThumbnail() =
+        testScope.runTest {
+            recentsModel.seedTasks(defaultTaskList)
+            systemUnderTest.getAllTaskData(DEFAULT_DISPLAY, forceRefresh = true)
+            systemUnderTest.setVisibleTasks(DEFAULT_DISPLAY, setOf(1))
+
+            systemUnderTest.setPrefetchTasks(DEFAULT_DISPLAY, listOf(1))
+            systemUnderTest.setVisibleTasks(DEFAULT_DISPLAY, setOf(2))
+
+            assertThat(systemUnderTest.getThumbnailById(1).first()?.thumbnail)
+                .isEqualTo(taskThumbnailDataSource.taskIdToBitmap[1])
+            assertThat(taskThumbnailDataSource.getNumberOfGetReducedResolutionThumbnailCalls(1))
+                .isEqualTo(0)
+        }
+
     private fun createTaskWithId(taskId: Int) =
         Task(Task.TaskKey(taskId, 0, Intent(), ComponentName("", ""), 0, 2000))
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.quickstep.util;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+
+import android.content.ComponentName;
+import android.content.Intent;
+
+import androidx.test.filters.SmallTest;
+
+import com.android.systemui.shared.recents.model.Task;
+
+import org.junit.Test;
+
+import java.util.List;
+
+@SmallTest
+public class TaskKeyByteBudgetCacheTest {
+
+    // Values weigh as many bytes as their length
+    private static final TaskKeyByteBudgetCache.Weigher<String> WEIGHER = String::length;
+
+    @Test
+    public void put_overByteBudget_evictsLeastRecentlyAccessed() {
+        TaskKeyByteBudgetCache<String> cache = new TaskKeyByteBudgetCache<>(10, 10, WEIGHER, false);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 2);
+        Task.TaskKey key3 = createKey(3, 3);
+        cache.put(key1, "aaaa");
+        cache.put(key2, "bbbb");
+        // Access key1 so that key2 is the least recently accessed
+        assertEquals("aaaa", cache.getAndInvalidateIfModified(key1));
+
+        cache.put(key3, "cccc");
+
+        assertEquals(2, cache.getSize());
+        assertEquals(8, cache.getBytes());
+        assertEquals(1, cache.getEvictionCount());
+        assertNull(cache.getAndInvalidateIfModified(key2));
+        assertEquals("aaaa", cache.getAndInvalidateIfModified(key1));
+        assertEquals("cccc", cache.getAndInvalidateIfModified(key3));
+    }
+
+    @Test
+    public void put_overByteBudget_evictsLeastRecentlyActive() {
+        TaskKeyByteBudgetCache<String> cache = new TaskKeyByteBudgetCache<>(10, 10, WEIGHER, true);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 2);
+        Task.TaskKey key3 = createKey(3, 3);
+        cache.put(key1, "aaaa");
+        cache.put(key2, "bbbb");
+        cache.getAndInvalidateIfModified(key1);
+
+        cache.put(key3, "cccc");
+
+        assertNull(cache.getAndInvalidateIfModified(key1));
+        assertEquals("bbbb", cache.getAndInvalidateIfModified(key2));
+    }
+
+    @Test
+    public void put_overMaxSize_evicts() {
+        TaskKeyByteBudgetCache<String> cache =
+                new TaskKeyByteBudgetCache<>(2, 100, WEIGHER, false);
+        cache.put(createKey(1, 1), "a");
+        cache.put(createKey(2, 2), "b");
+        cache.put(createKey(3, 3), "c");
+
+        assertEquals(2, cache.getSize());
+        assertEquals(2, cache.getBytes());
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 1)));
+    }
+
+    @Test
+    public void put_singleValueOverByteBudget_isKept() {
+        TaskKeyByteBudgetCache<String> cache = new TaskKeyByteBudgetCache<>(3, 2, WEIGHER, false);
+        Task.TaskKey key = createKey(1, 1);
+        cache.put(key, "aaaa");
+
+        assertEquals("aaaa", cache.getAndInvalidateIfModified(key));
+    }
+
+    @Test
+    public void put_sameTask_replacesBytes() {
+        TaskKeyByteBudgetCache<String> cache =
+                new TaskKeyByteBudgetCache<>(3, 100, WEIGHER, false);
+        Task.TaskKey key = createKey(1, 1);
+        cache.put(key, "aaaa");
+        cache.put(key, "aa");
+
+        assertEquals(1, cache.getSize());
+        assertEquals(2, cache.getBytes());
+    }
+
+    @Test
+    public void getAndInvalidateIfModified_modifiedTask_removesEntry() {
+        TaskKeyByteBudgetCache<String> cache =
+                new TaskKeyByteBudgetCache<>(3, 100, WEIGHER, false);
+        cache.put(createKey(1, 1), "aaaa");
+
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 2)));
+        assertEquals(0, cache.getSize());
+        assertEquals(0, cache.getBytes());
+    }
+
+    @Test
+    public void updateMaxBytesAndRemoveExcess() {
+        TaskKeyByteBudgetCache<String> cache =
+                new TaskKeyByteBudgetCache<>(3, 100, WEIGHER, false);
+        cache.put(createKey(1, 1), "aaaa");
+        cache.put(createKey(2, 2), "bbbb");
+        cache.put(createKey(3, 3), "cccc");
+
+        cache.updateMaxBytesAndRemoveExcess(8);
+
+        assertEquals(2, cache.getSize());
+        assertEquals(8, cache.getBytes());
+        assertNull(cache.getAndInvalidateIfModified(createKey(1, 1)));
+    }
+
+    @Test
+    public void removeAllValues_returnsRemovedKeys() {
+        TaskKeyByteBudgetCache<String> cache =
+                new TaskKeyByteBudgetCache<>(3, 100, WEIGHER, false);
+        Task.TaskKey key1 = createKey(1, 1);
+        cache.put(key1, "large");
+        cache.put(createKey(2, 2), "s");
+
+        List<Task.TaskKey> removed = cache.removeAllValues(value -> value.length() > 1);
+
+        assertEquals(1, removed.size());
+        assertEquals(key1, removed.get(0));
+        assertEquals(1, cache.getSize());
+        assertEquals(1, cache.getBytes());
+    }
+
+    @Test
+    public void putIfAbsent_keepsValidEntryWithoutCountingAccess() {
+        TaskKeyByteBudgetCache<String> cache =
+                new TaskKeyByteBudgetCache<>(3, 100, WEIGHER, false);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 2);
+        cache.put(key1, "a");
+
+        cache.putIfAbsent(key1, "b");
+        cache.putIfAbsent(key2, "c");
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertEquals("a", cache.getAndInvalidateIfModified(key1));
+        assertEquals("c", cache.getAndInvalidateIfModified(key2));
+    }
+
+    @Test
+    public void peek_doesNotCountAccessOrRemoveStaleEntry() {
+        TaskKeyByteBudgetCache<String> cache =
+                new TaskKeyByteBudgetCache<>(2, 100, WEIGHER, false);
+        Task.TaskKey key1 = createKey(1, 1);
+        Task.TaskKey key2 = createKey(2, 2);
+        cache.put(key1, "a");
+        cache.put(key2, "b");
+
+        assertEquals("a", cache.peek(key1));
+        assertNull(cache.peek(createKey(2, 3)));
+        // Peeking key1 didn't make key2 the least recently accessed
+        cache.put(createKey(3, 3), "c");
+
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+        assertNull(cache.peek(key1));
+        assertEquals("b", cache.peek(key2));
+    }
+
+    private static Task.TaskKey createKey(int id, long lastActiveTime) {
+        return new Task.TaskKey(id, 0, new Intent(), new ComponentName("", ""), 0,
+                lastActiveTime);
+    }
+}
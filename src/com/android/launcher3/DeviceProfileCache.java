@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3;
+
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Point;
+import android.util.LruCache;
+
+import com.android.launcher3.InvariantDeviceProfile.DisplayOption;
+import com.android.launcher3.util.DisplayController.Info;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the grid options parsed and the {@link DeviceProfile}s built by
+ * {@link InvariantDeviceProfile} for the last few display configurations, so that switching back
+ * to a display, like unfolding or leaving the cover screen, reuses them.
+ *
+ * Entries are keyed by every input they are computed from. The launcher preferences and the
+ * theme read by the device profiles are covered by a generation among the grid inputs, which
+ * changes whenever they do.
+ */
+final class DeviceProfileCache {
+
+    // Enough for the inner and outer displays, with room for a density or font scale change
+    private static final int MAX_ENTRIES = 4;
+
+    private final LruCache<List<Object>, List<DisplayOption>> mDisplayOptions =
+            new LruCache<>(MAX_ENTRIES);
+    private final LruCache<List<Object>, Profiles> mProfiles = new LruCache<>(MAX_ENTRIES);
+
+    /**
+     * Returns the display options parsed for {@code key}, parsing them with {@code parser} if
+     * needed. The returned options must not be modified.
+     */
+    List<DisplayOption> getDisplayOptions(List<Object> key, Supplier<List<DisplayOption>> parser) {
+        List<DisplayOption> options = mDisplayOptions.get(key);
+        if (options == null) {
+            options = parser.get();
+            mDisplayOptions.put(key, options);
+        }
+        return options;
+    }
+
+    /**
+     * Returns the profiles built for {@code key}, or null.
+     */
+    Profiles getProfiles(List<Object> key) {
+        return mProfiles.get(key);
+    }
+
+    void putProfiles(List<Object> key, Profiles profiles) {
+        mProfiles.put(key, profiles);
+    }
+
+    void clear() {
+        mDisplayOptions.evictAll();
+        mProfiles.evictAll();
+    }
+
+    /**
+     * Returns the key of the display options parsed for {@code displayInfo}.
+     */
+    static List<Object> displayOptionsKey(Context context, Info displayInfo,
+            boolean allowDisabledGrid, boolean isFixedLandscapeMode) {
+        Configuration config = context.getResources().getConfiguration();
+        return Arrays.asList(
+                config.getLocales(), config.fontScale, config.densityDpi, config.uiMode,
+                displayInfo.getDeviceType(), displayInfo.getAllDisplays(),
+                displayInfo.getStableDensityScaleFactor(), allowDisabledGrid,
+                isFixedLandscapeMode);
+    }
+
+    /**
+     * Returns the key of the profiles built for {@code displayInfo}, with a grid chosen among the
+     * display options of {@code displayOptionsKey}. {@code gridInputs} are the other values the
+     * grid is computed from, which must implement {@link Object#equals}.
+     */
+    static List<Object> profilesKey(List<Object> displayOptionsKey, Info displayInfo,
+            Object... gridInputs) {
+        return Arrays.asList(
+                displayOptionsKey, displayInfo.normalizedDisplayInfo, displayInfo.currentSize,
+                displayInfo.supportedBounds, displayInfo.getDensityDpi(), displayInfo.fontScale,
+                displayInfo.getNavigationMode(), displayInfo.isTransientTaskbar(),
+                displayInfo.isInDesktopMode(), displayInfo.isInDesktopFirstMode(),
+                displayInfo.showLockedTaskbarOnHome(),
+                displayInfo.showDesktopTaskbarForFreeformDisplay(),
+                Arrays.asList(gridInputs));
+    }
+
+    /**
+     * The profiles built for a display configuration.
+     */
+    static final class Profiles {
+        final List<DeviceProfile> supportedProfiles;
+        final Point defaultWallpaperSize;
+
+        Profiles(List<DeviceProfile> supportedProfiles, Point defaultWallpaperSize) {
+            this.supportedProfiles = supportedProfiles;
+            this.defaultWallpaperSize = new Point(defaultWallpaperSize);
+        }
+    }
+}
@@ -63,6 +63,7 @@ import com.android.launcher3.dagger.ApplicationContext;
 import com.android.launcher3.dagger.LauncherAppComponent;
 import com.android.launcher3.dagger.LauncherAppSingleton;
 import com.android.launcher3.graphics.ThemeManager;
+import com.android.launcher3.graphics.ThemeManager.ThemeChangeListener;
 import com.android.launcher3.icons.DotRenderer;
 import com.android.launcher3.logging.FileLog;
 import com.android.launcher3.model.DeviceGridState;
@@ -91,6 +92,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import javax.inject.Inject;
@@ -287,6 +289,10 @@ public class InvariantDeviceProfile {
     public Point defaultWallpaperSize;
 
     private final List<OnIDPChangeListener> mChangeListeners = new CopyOnWriteArrayList<>();
+    private final DeviceProfileCache mProfileCache = new DeviceProfileCache();
+    // Incremented when the preferences, the grid or the theme the profiles are built from change,
+    // and part of the key of the cached profiles
+    private final AtomicInteger mProfilesGeneration = new AtomicInteger();
 
     @Inject
     public InvariantDeviceProfile(
@@ -314,9 +320,15 @@ public class InvariantDeviceProfile {
                 });
         lifeCycle.addCloseable(() -> dc.setPriorityListener(null));
 
+        // The profiles are drawn with the icon shape
+        ThemeChangeListener themeListener = this::invalidateProfiles;
+        themeManager.addChangeListener(themeListener);
+        lifeCycle.addCloseable(() -> themeManager.removeChangeListener(themeListener));
+
         LauncherPrefChangeListener prefListener = key -> {
             if (FIXED_LANDSCAPE_MODE.getSharedPrefKey().equals(key)
                     && isFixedLandscape != prefs.get(FIXED_LANDSCAPE_MODE)) {
+                invalidateProfiles();
                 if (isFixedLandscape) {
                     setCurrentGrid(context, prefs.get(NON_FIXED_LANDSCAPE_GRID_NAME));
                 } else {
@@ -325,6 +337,7 @@ public class InvariantDeviceProfile {
                 }
             } else if (ENABLE_TWOLINE_ALLAPPS_TOGGLE.getSharedPrefKey().equals(key)
                     && enableTwoLinesInAllApps != prefs.get(ENABLE_TWOLINE_ALLAPPS_TOGGLE)) {
+                invalidateProfiles();
                 onConfigChanged(context);
             }
         };
@@ -333,7 +346,10 @@ public class InvariantDeviceProfile {
                 FIXED_LANDSCAPE_MODE, ENABLE_TWOLINE_ALLAPPS_TOGGLE));
 
         SimpleBroadcastReceiver localeReceiver = new SimpleBroadcastReceiver(context,
-                MAIN_EXECUTOR, i -> onConfigChanged(context));
+                MAIN_EXECUTOR, i -> {
+                    invalidateProfiles();
+                    onConfigChanged(context);
+                });
         localeReceiver.register(Intent.ACTION_LOCALE_CHANGED);
         lifeCycle.addCloseable(() -> localeReceiver.unregisterReceiverSafely());
     }
@@ -352,12 +368,16 @@ public class InvariantDeviceProfile {
 
     private String initGrid(Context context, String gridName) {
         Info displayInfo = mDisplayController.getInfo();
-        List<DisplayOption> allOptions = getPredefinedDeviceProfiles(
-                context,
+        boolean allowDisabledGrid = RestoreDbTask.isPending(mPrefs) && !Flags.oneGridSpecs();
+        boolean isFixedLandscapeMode = mPrefs.get(FIXED_LANDSCAPE_MODE);
+        List<Object> displayOptionsKey = DeviceProfileCache.displayOptionsKey(
+                context, displayInfo, allowDisabledGrid, isFixedLandscapeMode);
+        List<DisplayOption> allOptions = filterDisplayOptions(
+                mProfileCache.getDisplayOptions(displayOptionsKey, () -> parseDisplayOptions(
+                        context, displayInfo, allowDisabledGrid, isFixedLandscapeMode)),
                 gridName,
                 displayInfo,
-                (RestoreDbTask.isPending(mPrefs) && !Flags.oneGridSpecs()),
-                mPrefs.get(FIXED_LANDSCAPE_MODE)
+                allowDisabledGrid
         );
 
         // Filter out options that don't have the same number of columns as the grid
@@ -374,9 +394,13 @@ public class InvariantDeviceProfile {
         if (!displayOption.grid.name.equals(gridName)) {
             mPrefs.put(GRID_NAME, displayOption.grid.name);
         }
-        DeviceProfileOverrides.DBGridInfo dbGridInfo = DeviceProfileOverrides.INSTANCE.get(context)
-            .getGridInfo();
-        initGrid(context, displayInfo, displayOption, dbGridInfo);
+        DeviceProfileOverrides overrides = DeviceProfileOverrides.INSTANCE.get(context);
+        DeviceProfileOverrides.DBGridInfo dbGridInfo = overrides.getGridInfo();
+        List<Object> profilesKey = DeviceProfileCache.profilesKey(displayOptionsKey, displayInfo,
+                displayOption.grid.name, deviceGridState.getColumns(), dbGridInfo,
+                overrides.getOverrides(displayOption.grid), overrides.getTextFactors(),
+                mPrefs.get(ENABLE_TWOLINE_ALLAPPS_TOGGLE), mProfilesGeneration.get());
+        initGrid(context, displayInfo, displayOption, dbGridInfo, profilesKey);
         FileLog.d(TAG, "After initGrid:"
                 + "gridName:" + gridName
                 + ", dbFile:" + dbFile
@@ -401,7 +425,8 @@ public class InvariantDeviceProfile {
         initGrid(context, getCurrentGridName(context));
     }
 
-    private void initGrid(Context context, Info displayInfo, DisplayOption displayOption, DeviceProfileOverrides.DBGridInfo dbGridInfo) {
+    private void initGrid(Context context, Info displayInfo, DisplayOption displayOption, DeviceProfileOverrides.DBGridInfo dbGridInfo,
+            List<Object> profilesKey) {
         this.closestProfile = displayOption.grid;
         
         enableTwoLinesInAllApps = Flags.enableTwolineToggle()
@@ -420,8 +445,9 @@ public class InvariantDeviceProfile {
         gridType = closestProfile.gridType;
         defaultLayoutId = closestProfile.defaultLayoutId;
 
-        numFolderRows = closestProfile.numFolderRows;
-        numFolderColumns = closestProfile.numFolderColumns;
+        // Copied, as the overrides write to them and the grid options are cached
+        numFolderRows = closestProfile.numFolderRows.clone();
+        numFolderColumns = closestProfile.numFolderColumns.clone();
         folderStyle = closestProfile.folderStyle;
 
         cellStyle = closestProfile.cellStyle;
@@ -508,6 +534,13 @@ public class InvariantDeviceProfile {
         // Lawnchair ignores partner overrides and allows the user to customize the grid themselves
         overrideOptions.applyUi(this);
 
+        DeviceProfileCache.Profiles cachedProfiles = mProfileCache.getProfiles(profilesKey);
+        if (cachedProfiles != null) {
+            supportedProfiles = cachedProfiles.supportedProfiles;
+            defaultWallpaperSize = new Point(cachedProfiles.defaultWallpaperSize);
+            return;
+        }
+
         final List<DeviceProfile> localSupportedProfiles = new ArrayList<>();
         defaultWallpaperSize = new Point(displayInfo.currentSize);
         SparseArray<DotRenderer> dotRendererCache = new SparseArray<>();
@@ -549,6 +582,8 @@ public class InvariantDeviceProfile {
                     deviceProfile.numShownHotseatIcons = numMinShownHotseatIconsForTablet;
                     deviceProfile.recalculateHotseatWidthAndBorderSpace();
                 });
+        mProfileCache.putProfiles(profilesKey,
+                new DeviceProfileCache.Profiles(supportedProfiles, defaultWallpaperSize));
     }
 
     DeviceProfile.Builder newDPBuilder(Context context, Info info) {
@@ -564,6 +599,8 @@ public class InvariantDeviceProfile {
     }
 
     public void onPreferencesChanged(Context context) {
+        // The profiles read the launcher preferences
+        invalidateProfiles();
         Context appContext = context.getApplicationContext();
         MAIN_EXECUTOR.execute(() -> onConfigChanged(appContext));
     }
@@ -579,11 +616,21 @@ public class InvariantDeviceProfile {
         // Lawnchair-TODO: Move off setCurrentGrid to Prefs?
         //mPrefs.put(GRID_NAME, newGridName);
         DeviceProfileOverrides.INSTANCE.get(context).setCurrentGrid(newGridName);
+        invalidateProfiles();
         MAIN_EXECUTOR.execute(() -> {
             onConfigChanged(context.getApplicationContext());
         });
     }
 
+    /**
+     * Drops the cached profiles. Profiles being built from the previous inputs are keyed on the
+     * previous generation, so they are never returned either.
+     */
+    private void invalidateProfiles() {
+        mProfilesGeneration.incrementAndGet();
+        mProfileCache.clear();
+    }
+
     private Object[] toModelState() {
         return new Object[]{
                 numColumns, numRows, numSearchContainerColumns, numDatabaseHotseatIcons,
@@ -616,6 +663,20 @@ public class InvariantDeviceProfile {
             Info displayInfo,
             boolean allowDisabledGrid,
             boolean isFixedLandscapeMode
+    ) {
+        return filterDisplayOptions(
+                parseDisplayOptions(context, displayInfo, allowDisabledGrid, isFixedLandscapeMode),
+                gridName, displayInfo, allowDisabledGrid);
+    }
+
+    /**
+     * Parses the display options of the grid options that can be used on the device.
+     */
+    private static List<DisplayOption> parseDisplayOptions(
+            Context context,
+            Info displayInfo,
+            boolean allowDisabledGrid,
+            boolean isFixedLandscapeMode
     ) {
         ArrayList<DisplayOption> profiles = new ArrayList<>();
 
@@ -646,6 +707,18 @@ public class InvariantDeviceProfile {
         } catch (IOException | XmlPullParserException e) {
             throw new RuntimeException(e);
         }
+        return Collections.unmodifiableList(profiles);
+    }
+
+    /**
+     * Returns the display options of {@code gridName}, or the default ones if it isn't set.
+     */
+    private static List<DisplayOption> filterDisplayOptions(
+            List<DisplayOption> profiles,
+            String gridName,
+            Info displayInfo,
+            boolean allowDisabledGrid
+    ) {
         ArrayList<DisplayOption> filteredProfiles = new ArrayList<>();
         if (!TextUtils.isEmpty(gridName)) {
             for (DisplayOption option : profiles) {
@@ -954,7 +1027,8 @@ public class InvariantDeviceProfile {
         float weights = 0;
 
         if (dist(width, height, closestPoint.minWidthDps, closestPoint.minHeightDps) == 0) {
-            return closestPoint;
+            // Copied, as the returned sizes are modified and the parsed options are cached
+            return new DisplayOption(closestOption).add(closestPoint);
         }
 
         DisplayOption out = new DisplayOption(closestOption);
@@ -1750,6 +1750,7 @@ public class Launcher extends StatefulActivity<LauncherState>
         mAppWidgetHolder.stopListening();
         mAppWidgetHolder.destroy();
         mWidgetPickerDataProvider.destroy();
+        mPopupDataProvider.cancelPendingDotUpdates();
 
         TextKeyListener.getInstance().release();
         mModelCallbacks.clearPendingBinds();
@@ -33,6 +33,8 @@ public class LauncherConstants {
         public static final String DISPLAY_WORKSPACE_TRACE_METHOD_NAME =
                 "DisplayWorkspaceFirstFrame";
         public static final String COLD_STARTUP_TRACE_METHOD_NAME = "LauncherColdStartup";
+        public static final String COVER_SCREEN_RELAUNCH_TRACE_METHOD_NAME =
+                "LauncherCoverScreenRelaunch";
     }
 
     /**
@@ -387,6 +387,7 @@ constructor(
     fun onPackageIconsUpdated(updatedPackages: HashSet<String?>, user: UserHandle) {
         // If any package icon has changed (app was updated while launcher was dead),
         // update the corresponding shortcuts.
+        updatedPackages.filterNotNull().forEach { iconCache.invalidateFastEntries(it, user) }
         enqueueModelUpdateTask(
             CacheDataUpdatedTask(CacheDataUpdatedTask.OP_CACHE_UPDATE, user, updatedPackages)
         )
@@ -442,6 +443,7 @@ constructor(
     }
 
     override fun dump(prefix: String, writer: PrintWriter, args: Array<String>?) {
+        iconCache.dump(prefix, writer)
         if (args?.getOrNull(0) == "--all") {
             writer.println(prefix + "All apps list: size=" + mBgAllAppsList.data.size)
             for (info in mBgAllAppsList.data) {
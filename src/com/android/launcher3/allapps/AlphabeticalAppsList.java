@@ -32,31 +32,35 @@ import static com.android.launcher3.logging.StatsLogManager.LauncherEvent.LAUNCH
 import android.content.Context;
 import android.text.Spannable;
 import android.text.SpannableString;
+import android.text.TextUtils;
 import android.text.style.ImageSpan;
 import android.util.Log;
 
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
 
 import com.android.launcher3.Flags;
 import com.android.launcher3.R;
 import com.android.launcher3.allapps.BaseAllAppsAdapter.AdapterItem;
+import com.android.launcher3.icons.BitmapInfo;
 import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.FolderInfo;
 import com.android.launcher3.model.data.ItemInfo;
+import com.android.launcher3.model.data.ItemInfoWithIcon;
 import com.android.launcher3.util.LabelComparator;
 import com.android.launcher3.views.ActivityContext;
 
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
-import java.util.TreeMap;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * The alphabetically sorted list of applications.
@@ -99,8 +103,8 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
     private final T mActivityContext;
 
     // The set of apps from the system
-    private final List<AppInfo> mApps = new ArrayList<>();
-    private final List<AppInfo> mPrivateApps = new ArrayList<>();
+    private final SortedAppsList mApps = new SortedAppsList();
+    private final SortedAppsList mPrivateApps = new SortedAppsList();
     @Nullable
     private final AllAppsStore<T> mAllAppsStore;
 
@@ -108,6 +112,10 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
     private int mAccessibilityResultsCount = 0;
     // The current set of adapter items
     protected final ArrayList<AdapterItem> mAdapterItems = new ArrayList<>();
+    // What each app item of mAdapterItems was bound with, or null for other items
+    private final ArrayList<BoundAppState> mBoundAppStates = new ArrayList<>();
+    private boolean mAdapterItemsAreSearchResults;
+    private boolean mRebindAllItems;
     // The set of sections that we allow fast-scrolling to (includes non-merged sections)
     private final List<FastScrollSectionInfo> mFastScrollerSections = new ArrayList<>();
 
@@ -117,6 +125,7 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
     private final SpannableString mPrivateProfileDividerBadge;
     private BaseAllAppsAdapter<T> mAdapter;
     private AppInfoComparator mAppNameComparator;
+    private final Comparator<AppInfo> mSectionedAppNameComparator;
     private int mNumAppsPerRowAllApps;
     private int mNumAppRowsInAdapter;
     public Predicate<ItemInfo> mItemFilter;
@@ -126,6 +135,10 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         mAllAppsStore = appsStore;
         mActivityContext = ActivityContext.lookupContext(context);
         mAppNameComparator = new AppInfoComparator(context);
+        // Orders the sections by name first, then the apps within each section
+        mSectionedAppNameComparator = Comparator
+                .comparing((AppInfo info) -> info.sectionName, new LabelComparator())
+                .thenComparing(mAppNameComparator);
         mWorkProviderManager = workProfileManager;
         mPrivateProviderManager = privateProfileManager;
         mNumAppsPerRowAllApps = mActivityContext.getDeviceProfile().numShownAllAppsColumns;
@@ -153,6 +166,14 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         onAppsUpdated();
     }
 
+    /**
+     * Makes the next update bind all the items again, for changes that affect how every item is
+     * shown.
+     */
+    public void invalidateBoundItems() {
+        mRebindAllItems = true;
+    }
+
     /**
      * Sets the adapter to notify when this dataset changes.
      */
@@ -243,41 +264,25 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
                 mPrivateProviderManager.getAnimationRunning())) {
             return;
         }
-        // Sort the list of apps
-        mApps.clear();
-        mPrivateApps.clear();
-
-        Stream<AppInfo> appSteam = Stream.of(mAllAppsStore.getApps());
-        Stream<AppInfo> privateAppStream = Stream.of(mAllAppsStore.getApps());
-
+        AppInfo[] apps = mAllAppsStore.getApps();
+        Predicate<ItemInfo> appFilter = null;
+        Predicate<ItemInfo> privateAppFilter = null;
         if (!hasSearchResults() && mItemFilter != null) {
-            appSteam = appSteam.filter(mItemFilter);
+            appFilter = mItemFilter;
             if (mPrivateProviderManager != null) {
-                privateAppStream = privateAppStream
-                        .filter(mPrivateProviderManager.getItemInfoMatcher());
+                privateAppFilter = mPrivateProviderManager.getItemInfoMatcher();
             }
         }
-        appSteam = appSteam.sorted(mAppNameComparator);
-        privateAppStream = privateAppStream.sorted(mAppNameComparator);
 
         // As a special case for some languages (currently only Simplified Chinese), we may need to
         // coalesce sections
         Locale curLocale = mActivityContext.getResources().getConfiguration().locale;
         boolean localeRequiresSectionSorting = curLocale.equals(Locale.SIMPLIFIED_CHINESE);
-        if (localeRequiresSectionSorting) {
-            // Compute the section headers. We use a TreeMap with the section name comparator to
-            // ensure that the sections are ordered when we iterate over it later
-            appSteam = appSteam.collect(Collectors.groupingBy(
-                    info -> info.sectionName,
-                    () -> new TreeMap<>(new LabelComparator()),
-                    Collectors.toCollection(ArrayList::new)))
-                    .values()
-                    .stream()
-                    .flatMap(ArrayList::stream);
-        }
-
-        appSteam.forEachOrdered(mApps::add);
-        privateAppStream.forEachOrdered(mPrivateApps::add);
+        // Only the apps that changed since the last update are moved
+        mApps.update(apps, appFilter, localeRequiresSectionSorting
+                ? mSectionedAppNameComparator : mAppNameComparator);
+        mPrivateApps.update(apps, privateAppFilter, mAppNameComparator);
+
         // Recompose the set of adapter items from the current set of apps
         if (mSearchResults.isEmpty()) {
             updateAdapterItems();
@@ -290,6 +295,7 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
      */
     public void updateAdapterItems() {
         List<AdapterItem> oldItems = new ArrayList<>(mAdapterItems);
+        List<BoundAppState> oldStates = new ArrayList<>(mBoundAppStates);
         // Prepare to update the list of sections, filtered apps, etc.
         mFastScrollerSections.clear();
         Log.d(TAG, "Clearing FastScrollerSections.");
@@ -315,7 +321,7 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
                                     R.string.work_profile_edu_section), 0));
                     Log.d(TAG, "Adding FastScrollSection for work edu card.");
                 }
-                position = addAppsWithSections(mApps, position);
+                position = addAppsWithSections(mApps.getApps(), position);
             }
             if (Flags.enablePrivateSpace()) {
                 position = addPrivateSpaceItems(position);
@@ -359,16 +365,98 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
             mNumAppRowsInAdapter = rowIndex + 1;
         }
 
+        mBoundAppStates.clear();
+        for (AdapterItem item : mAdapterItems) {
+            mBoundAppStates.add(BoundAppState.of(item));
+        }
+        boolean wereSearchResults = mAdapterItemsAreSearchResults;
+        mAdapterItemsAreSearchResults = hasSearchResults();
+        boolean rebindAll = mRebindAllItems;
+        mRebindAllItems = false;
+
         if (mAdapter != null) {
-            DiffUtil.calculateDiff(new MyDiffCallback(oldItems, mAdapterItems), false)
-                    .dispatchUpdatesTo(mAdapter);
+            if (rebindAll || wereSearchResults || mAdapterItemsAreSearchResults) {
+                DiffUtil.calculateDiff(new MyDiffCallback(oldItems, mAdapterItems), false)
+                        .dispatchUpdatesTo(mAdapter);
+            } else {
+                dispatchAppListUpdates(oldItems, oldStates);
+            }
+        }
+    }
+
+    /**
+     * Notifies the adapter of the changes from {@code oldItems} to the current A-Z list. Items
+     * are matched by their app, and the unchanged start and end of the list are only checked for
+     * apps that must be bound again, so an install or an update touches the affected items only.
+     */
+    private void dispatchAppListUpdates(List<AdapterItem> oldItems, List<BoundAppState> oldStates) {
+        int oldEnd = oldItems.size();
+        int newEnd = mAdapterItems.size();
+        int start = 0;
+        while (start < oldEnd && start < newEnd
+                && isSameItem(oldItems.get(start), mAdapterItems.get(start))) {
+            start++;
+        }
+        while (oldEnd > start && newEnd > start
+                && isSameItem(oldItems.get(oldEnd - 1), mAdapterItems.get(newEnd - 1))) {
+            oldEnd--;
+            newEnd--;
+        }
+
+        // Positions are those of the old list until the middle is dispatched
+        notifyChangedItems(oldItems, oldStates, 0, 0, start);
+        notifyChangedItems(oldItems, oldStates, oldEnd, newEnd, oldItems.size() - oldEnd);
+        if (oldEnd > start || newEnd > start) {
+            DiffUtil.calculateDiff(new AppListDiffCallback(oldItems.subList(start, oldEnd),
+                            oldStates.subList(start, oldEnd), mAdapterItems.subList(start, newEnd)),
+                    false).dispatchUpdatesTo(new OffsetListUpdateCallback(mAdapter, start));
+        }
+    }
+
+    private void notifyChangedItems(List<AdapterItem> oldItems, List<BoundAppState> oldStates,
+            int oldStart, int newStart, int count) {
+        int changedStart = -1;
+        for (int i = 0; i <= count; i++) {
+            boolean changed = i < count && !isSameContent(oldItems.get(oldStart + i),
+                    oldStates.get(oldStart + i), mAdapterItems.get(newStart + i));
+            if (changed && changedStart < 0) {
+                changedStart = i;
+            } else if (!changed && changedStart >= 0) {
+                mAdapter.notifyItemRangeChanged(oldStart + changedStart, i - changedStart);
+                changedStart = -1;
+            }
+        }
+    }
+
+    private static boolean isSameItem(AdapterItem oldItem, AdapterItem newItem) {
+        if (!oldItem.isSameAs(newItem)) {
+            return false;
         }
+        ItemInfo oldInfo = oldItem.itemInfo;
+        ItemInfo newInfo = newItem.itemInfo;
+        if (oldInfo == newInfo) {
+            return true;
+        }
+        if (oldInfo instanceof AppInfo && newInfo instanceof AppInfo) {
+            return Objects.equals(((AppInfo) oldInfo).componentName,
+                    ((AppInfo) newInfo).componentName)
+                    && Objects.equals(oldInfo.user, newInfo.user);
+        }
+        if (oldInfo instanceof FolderInfo && newInfo instanceof FolderInfo) {
+            return TextUtils.equals(oldInfo.title, newInfo.title);
+        }
+        return false;
+    }
+
+    private static boolean isSameContent(
+            AdapterItem oldItem, @Nullable BoundAppState oldState, AdapterItem newItem) {
+        return oldState != null ? oldState.matches(newItem) : oldItem.isContentSame(newItem);
     }
 
     int addPrivateSpaceItems(int position) {
         if (mPrivateProviderManager != null
                 && !mPrivateProviderManager.isPrivateSpaceHidden()
-                && !mPrivateApps.isEmpty()) {
+                && !mPrivateApps.getApps().isEmpty()) {
             // Always add PS Header if Space is present and visible.
             position = mPrivateProviderManager.addPrivateSpaceHeader(mAdapterItems);
             Log.d(TAG, "Adding FastScrollSection for Private Space header. ");
@@ -420,7 +508,7 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
 
 
         // Split of private space apps into user-installed and system apps.
-        Map<Boolean, List<AppInfo>> split = mPrivateApps.stream()
+        Map<Boolean, List<AppInfo>> split = mPrivateApps.getApps().stream()
                 .collect(Collectors.partitioningBy(mPrivateProviderManager
                                 .splitIntoUserInstalledAndSystemApps(mActivityContext)));
 
@@ -579,6 +667,112 @@ public class AlphabeticalAppsList<T extends Context & ActivityContext> implement
         }
     }
 
+    /**
+     * The values an app item was bound with. The model updates apps in place, so they are kept
+     * to tell whether the item must be bound again.
+     */
+    private static class BoundAppState {
+
+        private final ItemInfoWithIcon mInfo;
+        private final CharSequence mTitle;
+        private final BitmapInfo mBitmap;
+        private final int mRuntimeStatusFlags;
+        private final int mProgressLevel;
+
+        private BoundAppState(ItemInfoWithIcon info) {
+            mInfo = info;
+            mTitle = info.title;
+            mBitmap = info.bitmap;
+            mRuntimeStatusFlags = info.runtimeStatusFlags;
+            mProgressLevel = info.getProgressLevel();
+        }
+
+        @Nullable
+        static BoundAppState of(AdapterItem item) {
+            // Decorations are created for each update, so decorated items are always bound again
+            if (!(item.itemInfo instanceof ItemInfoWithIcon) || item.getDecorationInfo() != null) {
+                return null;
+            }
+            return new BoundAppState((ItemInfoWithIcon) item.itemInfo);
+        }
+
+        boolean matches(AdapterItem item) {
+            return item.itemInfo == mInfo
+                    && item.getDecorationInfo() == null
+                    && TextUtils.equals(mTitle, mInfo.title)
+                    && mBitmap == mInfo.bitmap
+                    && mRuntimeStatusFlags == mInfo.runtimeStatusFlags
+                    && mProgressLevel == mInfo.getProgressLevel();
+        }
+    }
+
+    private static class AppListDiffCallback extends DiffUtil.Callback {
+
+        private final List<AdapterItem> mOldList;
+        private final List<BoundAppState> mOldStates;
+        private final List<AdapterItem> mNewList;
+
+        AppListDiffCallback(List<AdapterItem> oldList, List<BoundAppState> oldStates,
+                List<AdapterItem> newList) {
+            mOldList = oldList;
+            mOldStates = oldStates;
+            mNewList = newList;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldList.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewList.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return isSameItem(mOldList.get(oldItemPosition), mNewList.get(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldItemPosition, int newItemPosition) {
+            return isSameContent(mOldList.get(oldItemPosition), mOldStates.get(oldItemPosition),
+                    mNewList.get(newItemPosition));
+        }
+    }
+
+    /** Dispatches the updates of a part of the list starting at {@code offset}. */
+    private static class OffsetListUpdateCallback implements ListUpdateCallback {
+
+        private final BaseAllAppsAdapter<?> mAdapter;
+        private final int mOffset;
+
+        OffsetListUpdateCallback(BaseAllAppsAdapter<?> adapter, int offset) {
+            mAdapter = adapter;
+            mOffset = offset;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            mAdapter.notifyItemRangeInserted(mOffset + position, count);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            mAdapter.notifyItemRangeRemoved(mOffset + position, count);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            mAdapter.notifyItemMoved(mOffset + fromPosition, mOffset + toPosition);
+        }
+
+        @Override
+        public void onChanged(int position, int count, @Nullable Object payload) {
+            mAdapter.notifyItemRangeChanged(mOffset + position, count, payload);
+        }
+    }
+
     private static class MyDiffCallback extends DiffUtil.Callback {
 
         private final List<AdapterItem> mOldList;
@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.allapps;
+
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.android.launcher3.model.data.AppInfo;
+import com.android.launcher3.model.data.ItemInfo;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * The apps of {@link AllAppsStore} matching a filter, kept sorted with a comparator.
+ *
+ * Updates only move the apps that were added, removed, renamed or filtered in or out since the
+ * previous update, using binary insertion. Apps are updated in place by the model, so the title
+ * and section each app was sorted with are remembered to find the ones that must move. The list
+ * is sorted again when the comparator changes or when too many apps changed at once.
+ */
+class SortedAppsList {
+
+    // Above one change for this many apps, sorting everything again is cheaper
+    private static final int MAX_INCREMENTAL_CHANGE_RATIO = 8;
+
+    private final ArrayList<AppInfo> mApps = new ArrayList<>();
+    // Every app of the last update, with the values it was filtered and sorted with
+    private IdentityHashMap<AppInfo, Placement> mPlacements = new IdentityHashMap<>();
+    @Nullable
+    private Comparator<AppInfo> mComparator;
+
+    /**
+     * Returns the sorted apps. The list must not be modified.
+     */
+    @NonNull
+    List<AppInfo> getApps() {
+        return mApps;
+    }
+
+    /**
+     * Updates the list to the apps in {@code apps} that match {@code filter}, sorted with
+     * {@code comparator}.
+     *
+     * @return whether the list changed
+     */
+    boolean update(@NonNull AppInfo[] apps, @Nullable Predicate<ItemInfo> filter,
+            @NonNull Comparator<AppInfo> comparator) {
+        if (comparator != mComparator) {
+            mComparator = comparator;
+            rebuild(apps, filter);
+            return true;
+        }
+
+        IdentityHashMap<AppInfo, Placement> previous = mPlacements;
+        IdentityHashMap<AppInfo, Placement> placements = new IdentityHashMap<>(apps.length);
+        List<AppInfo> added = new ArrayList<>();
+        Set<AppInfo> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (AppInfo app : apps) {
+            boolean included = filter == null || filter.test(app);
+            Placement placement = previous.remove(app);
+            if (placement == null || placement.included != included
+                    || (included && !placement.matches(app))) {
+                if (placement != null && placement.included) {
+                    removed.add(app);
+                }
+                if (included) {
+                    added.add(app);
+                }
+                placement = new Placement(app, included);
+            }
+            placements.put(app, placement);
+        }
+        for (Map.Entry<AppInfo, Placement> entry : previous.entrySet()) {
+            if (entry.getValue().included) {
+                removed.add(entry.getKey());
+            }
+        }
+        mPlacements = placements;
+
+        if (added.isEmpty() && removed.isEmpty()) {
+            return false;
+        }
+        if ((added.size() + removed.size()) * MAX_INCREMENTAL_CHANGE_RATIO > mApps.size()) {
+            sortIncluded(apps);
+            return true;
+        }
+        if (!removed.isEmpty()) {
+            mApps.removeIf(removed::contains);
+        }
+        for (AppInfo app : added) {
+            int index = Collections.binarySearch(mApps, app, comparator);
+            mApps.add(index < 0 ? -index - 1 : index, app);
+        }
+        return true;
+    }
+
+    private void rebuild(AppInfo[] apps, @Nullable Predicate<ItemInfo> filter) {
+        mPlacements = new IdentityHashMap<>(apps.length);
+        for (AppInfo app : apps) {
+            mPlacements.put(app, new Placement(app, filter == null || filter.test(app)));
+        }
+        sortIncluded(apps);
+    }
+
+    private void sortIncluded(AppInfo[] apps) {
+        mApps.clear();
+        for (AppInfo app : apps) {
+            if (mPlacements.get(app).included) {
+                mApps.add(app);
+            }
+        }
+        mApps.sort(mComparator);
+    }
+
+    private static class Placement {
+        final boolean included;
+        @Nullable
+        final CharSequence title;
+        @Nullable
+        final String sectionName;
+
+        Placement(AppInfo app, boolean included) {
+            this.included = included;
+            this.title = app.title;
+            this.sectionName = app.sectionName;
+        }
+
+        boolean matches(AppInfo app) {
+            return TextUtils.equals(title, app.title)
+                    && Objects.equals(sectionName, app.sectionName);
+        }
+    }
+}
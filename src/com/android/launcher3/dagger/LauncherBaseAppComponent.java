@@ -52,6 +52,7 @@ import com.android.launcher3.util.WallpaperColorHints;
 import com.android.launcher3.util.window.RefreshRateTracker;
 import com.android.launcher3.util.window.WindowManagerProxy;
 import com.android.launcher3.widget.LauncherWidgetHolder.WidgetHolderFactory;
+import com.android.launcher3.widget.WidgetPreviewDiskCache;
 import com.android.launcher3.widget.custom.CustomWidgetManager;
 import com.android.launcher3.widget.util.WidgetSizeHandler;
 
@@ -124,6 +125,7 @@ public interface LauncherBaseAppComponent {
     ActivityContextComponent.Builder getActivityContextComponentBuilder();
     WidgetPickerComposeWrapper getWidgetPickerComposeWrapper();
     WidgetSizeHandler getWidgetSizeHandler();
+    WidgetPreviewDiskCache getWidgetPreviewDiskCache();
 
 
     // Lawnchair-specific
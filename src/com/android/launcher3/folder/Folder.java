@@ -49,6 +49,7 @@ import android.graphics.drawable.Drawable;
 import android.graphics.drawable.GradientDrawable;
 import android.hardware.input.InputManager;
 import android.os.Looper;
+import android.os.Trace;
 import android.text.InputType;
 import android.text.Selection;
 import android.text.TextUtils;
@@ -803,7 +804,12 @@ public class Folder extends AbstractFloatingView implements ClipPathView, DragSo
      * is played.
      */
     public void animateOpen() {
-        animateOpen(mInfo.getContents(), 0);
+        Trace.beginSection("Folder#animateOpen");
+        try {
+            animateOpen(mInfo.getContents(), 0);
+        } finally {
+            Trace.endSection();
+        }
     }
 
     /**
@@ -74,10 +74,14 @@ import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.widget.WidgetSections;
 import com.android.launcher3.widget.WidgetSections.WidgetSection;
 
+import java.io.PrintWriter;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -90,6 +94,12 @@ import app.lawnchair.icons.LawnchairIconProvider;
 
 /**
  * Cache of application icons.  Icons can be made from any thread.
+ *
+ * Full resolution app entries found in the memory cache are also copied to a concurrent map, so
+ * that repeated lookups from the UI thread, the model thread and recents don't have to wait on
+ * the cache monitor. Lookups that miss it, and everything touching the icon DB, still run under
+ * the monitor. Call {@link #invalidateFastEntries} whenever the entries of a package are changed
+ * outside of this class.
  */
 @LauncherAppSingleton
 public class IconCache extends BaseIconCache {
@@ -101,6 +111,9 @@ public class IconCache extends BaseIconCache {
 
     private static final String TAG = "Launcher.IconCache";
 
+    // Waiting longer than this for the cache monitor counts as contention
+    private static final long CONTENDED_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
     private final Predicate<ItemInfoWithIcon> mIsUsingFallbackOrNonDefaultIconCheck = w ->
             w.bitmap != null && (w.bitmap.isNullOrLowRes() || !isDefaultIcon(w.bitmap, w.user));
 
@@ -114,7 +127,14 @@ public class IconCache extends BaseIconCache {
     private final SparseArray<BitmapInfo> mWidgetCategoryBitmapInfos;
 
     private int mPendingIconRequestCount = 0;
-    
+
+    // Immutable copies of full resolution memory cache entries, read without locking
+    private final Map<ComponentKey, CacheEntry> mFastEntries = new ConcurrentHashMap<>();
+    private final AtomicLong mFastHits = new AtomicLong();
+    private final AtomicLong mLockedLookups = new AtomicLong();
+    private final AtomicLong mContendedLookups = new AtomicLong();
+    private final AtomicLong mContendedWaitNanos = new AtomicLong();
+
     @Inject
     public IconCache(
             @ApplicationContext Context context,
@@ -202,6 +222,43 @@ public class IconCache extends BaseIconCache {
         for (LauncherActivityInfo app : apps) {
             addIconToDBAndMemCache(app, LawnchairActivityCachingLogic.INSTANCE.get(context), userSerial);
         }
+        invalidateFastEntries(packageName, user);
+    }
+
+    @Override
+    public synchronized void remove(@NonNull ComponentName componentName,
+            @NonNull UserHandle user) {
+        super.remove(componentName, user);
+        mFastEntries.remove(new ComponentKey(componentName, user));
+    }
+
+    /**
+     * Drops the lock-free copies of the memory cache entries of the given package. This holds the
+     * cache monitor, so that a concurrent lookup can't add a stale copy back.
+     */
+    public synchronized void invalidateFastEntries(@NonNull String packageName,
+            @NonNull UserHandle user) {
+        mFastEntries.keySet().removeIf(key ->
+                key.user.equals(user) && key.componentName.getPackageName().equals(packageName));
+    }
+
+    @Override
+    public synchronized void clearMemoryCache() {
+        super.clearMemoryCache();
+        mFastEntries.clear();
+    }
+
+    @Override
+    public synchronized void updateIconParams(int iconDpi, int iconPixelSize) {
+        super.updateIconParams(iconDpi, iconPixelSize);
+        mFastEntries.clear();
+        // The memory cache is reset later on the worker thread, and lookups made until then can
+        // copy entries that are about to go away
+        workerHandler.post(this::clearFastEntries);
+    }
+
+    private synchronized void clearFastEntries() {
+        mFastEntries.clear();
     }
 
     /**
@@ -212,6 +269,7 @@ public class IconCache extends BaseIconCache {
         getUpdateHandler();
 
         iconDb.close();
+        mFastEntries.clear();
     }
 
     /**
@@ -266,10 +324,9 @@ public class IconCache extends BaseIconCache {
     /**
      * Updates {@param application} only if a valid entry is found.
      */
-    public synchronized void updateTitleAndIcon(AppInfo application) {
-        CacheEntry entry = cacheLocked(application.componentName,
-            application.user, () -> null, LawnchairActivityCachingLogic.INSTANCE.get(context),
-                application.getMatchingLookupFlag());
+    public void updateTitleAndIcon(AppInfo application) {
+        CacheEntry entry = getActivityEntry(application.componentName, application.user,
+                () -> null, application.getMatchingLookupFlag());
         if (entry.bitmap != null || !isDefaultIcon(entry.bitmap, application.user)) {
             applyCacheEntry(entry, application);
         }
@@ -279,7 +336,7 @@ public class IconCache extends BaseIconCache {
      * Fill in {@code info} with the icon and label for {@code activityInfo}
      */
     @SuppressWarnings("NewApi")
-    public synchronized void getTitleAndIcon(ItemInfoWithIcon info,
+    public void getTitleAndIcon(ItemInfoWithIcon info,
             LauncherActivityInfo activityInfo, @NonNull CacheLookupFlag lookupFlag) {
         boolean isAppArchived = Flags.enableSupportForArchiving() && activityInfo != null
                 && activityInfo.getActivityInfo().isArchived;
@@ -365,7 +422,7 @@ public class IconCache extends BaseIconCache {
      * Fill in {@param info} with the icon and label. If the
      * corresponding activity is not found, it reverts to the package icon.
      */
-    public synchronized void getTitleAndIcon(
+    public void getTitleAndIcon(
             @NonNull ItemInfoWithIcon info,
             @NonNull CacheLookupFlag lookupFlag) {
         // null info means not installed, but if we have a component from the intent then
@@ -381,10 +438,15 @@ public class IconCache extends BaseIconCache {
                 return;
             }
             ShortcutInfo si = sis.getFirst();
-            CacheEntry entry = cacheLocked(sk.componentName, sk.user,
-                    () -> new CacheableShortcutInfo(si, context),
-                    CacheableShortcutCachingLogic.INSTANCE,
-                    lookupFlag.withSkipAddToMemCache());
+            CacheEntry entry;
+            long lockRequestNanos = System.nanoTime();
+            synchronized (this) {
+                onLockAcquired(lockRequestNanos);
+                entry = cacheLocked(sk.componentName, sk.user,
+                        () -> new CacheableShortcutInfo(si, context),
+                        CacheableShortcutCachingLogic.INSTANCE,
+                        lookupFlag.withSkipAddToMemCache());
+            }
             applyCacheEntry(entry, info);
             info.bitmap = info.bitmap.withBadgeInfo(getShortcutInfoBadge(si));
         } else {
@@ -407,15 +469,73 @@ public class IconCache extends BaseIconCache {
     /**
      * Fill in {@param mWorkspaceItemInfo} with the icon and label for {@param info}
      */
-    public synchronized void getTitleAndIcon(
+    public void getTitleAndIcon(
             @NonNull ItemInfoWithIcon infoInOut,
             @NonNull Supplier<LauncherActivityInfo> activityInfoProvider,
             @NonNull CacheLookupFlag lookupFlag) {
-        CacheEntry entry = cacheLocked(infoInOut.getTargetComponent(), infoInOut.user,
-            activityInfoProvider, LawnchairActivityCachingLogic.INSTANCE.get(context), lookupFlag);
+        CacheEntry entry = getActivityEntry(infoInOut.getTargetComponent(), infoInOut.user,
+                activityInfoProvider, lookupFlag);
         applyCacheEntry(entry, infoInOut);
     }
 
+    /**
+     * Returns the memory cache entry for an activity, without locking if a good enough copy
+     * of it is available.
+     */
+    private CacheEntry getActivityEntry(@Nullable ComponentName cn, @NonNull UserHandle user,
+            @NonNull Supplier<LauncherActivityInfo> activityInfoProvider,
+            @NonNull CacheLookupFlag lookupFlag) {
+        ComponentKey key = cn == null ? null : new ComponentKey(cn, user);
+        if (key != null) {
+            CacheEntry fastEntry = mFastEntries.get(key);
+            if (fastEntry != null && isFastEntryFor(fastEntry, lookupFlag)) {
+                mFastHits.incrementAndGet();
+                return fastEntry;
+            }
+        }
+        long lockRequestNanos = System.nanoTime();
+        synchronized (this) {
+            onLockAcquired(lockRequestNanos);
+            CacheEntry entry = cacheLocked(cn, user, activityInfoProvider,
+                    LawnchairActivityCachingLogic.INSTANCE.get(context), lookupFlag);
+            addFastEntryLocked(key, entry);
+            return entry;
+        }
+    }
+
+    /**
+     * Returns whether a lock-free copy can be returned for a lookup with the given flag: it must
+     * be themed exactly as requested, and only its resolution may be higher than requested.
+     */
+    private static boolean isFastEntryFor(@NonNull CacheEntry fastEntry,
+            @NonNull CacheLookupFlag lookupFlag) {
+        CacheLookupFlag entryFlag = fastEntry.bitmap.getMatchingLookupFlag();
+        return entryFlag.themeIcon() == lookupFlag.themeIcon()
+                && (!entryFlag.useLowRes() || lookupFlag.useLowRes());
+    }
+
+    private void addFastEntryLocked(@Nullable ComponentKey key, @NonNull CacheEntry entry) {
+        if (key == null || entry.bitmap == null || entry.bitmap.isNullOrLowRes()
+                || isDefaultIcon(entry.bitmap, key.user)) {
+            return;
+        }
+        // Copy the entry, since the memory cache may update its entries in place
+        CacheEntry copy = new CacheEntry();
+        copy.title = entry.title;
+        copy.contentDescription = entry.contentDescription;
+        copy.bitmap = entry.bitmap;
+        mFastEntries.put(key, copy);
+    }
+
+    private void onLockAcquired(long lockRequestNanos) {
+        long waitNanos = System.nanoTime() - lockRequestNanos;
+        mLockedLookups.incrementAndGet();
+        if (waitNanos > CONTENDED_WAIT_NANOS) {
+            mContendedLookups.incrementAndGet();
+            mContendedWaitNanos.addAndGet(waitNanos);
+        }
+    }
+
     /**
      * Creates an sql cursor for a query of a set of ItemInfoWithIcon icons and titles.
      *
@@ -447,7 +567,16 @@ public class IconCache extends BaseIconCache {
     /**
      * Load and fill icons requested in iconRequestInfos using a single bulk sql query.
      */
-    public synchronized <T extends ItemInfoWithIcon> void getTitlesAndIconsInBulk(
+    public <T extends ItemInfoWithIcon> void getTitlesAndIconsInBulk(
+            List<IconRequestInfo<T>> iconRequestInfos) {
+        long lockRequestNanos = System.nanoTime();
+        synchronized (this) {
+            onLockAcquired(lockRequestNanos);
+            getTitlesAndIconsInBulkLocked(iconRequestInfos);
+        }
+    }
+
+    private <T extends ItemInfoWithIcon> void getTitlesAndIconsInBulkLocked(
             List<IconRequestInfo<T>> iconRequestInfos) {
         Map<Pair<UserHandle, CacheLookupFlag>, List<IconRequestInfo<T>>> iconLoadSubsectionsMap =
                 iconRequestInfos.stream()
@@ -516,6 +645,7 @@ public class IconCache extends BaseIconCache {
                             LawnchairActivityCachingLogic.INSTANCE.get(context),
                                 sectionKey.second,
                                 c);
+                        addFastEntryLocked(new ComponentKey(cn, sectionKey.first), entry);
 
                         for (IconRequestInfo<T> iconRequest : duplicateIconRequests) {
                             applyCacheEntry(entry, iconRequest.itemInfo);
@@ -587,11 +717,15 @@ public class IconCache extends BaseIconCache {
     /**
      * Fill in {@param infoInOut} with the corresponding icon and label.
      */
-    public synchronized void getTitleAndIconForApp(
+    public void getTitleAndIconForApp(
             @NonNull final PackageItemInfo infoInOut,
             @NonNull CacheLookupFlag lookupFlag) {
-        CacheEntry entry = getEntryForPackageLocked(
-                infoInOut.packageName, infoInOut.user, lookupFlag);
+        CacheEntry entry;
+        long lockRequestNanos = System.nanoTime();
+        synchronized (this) {
+            onLockAcquired(lockRequestNanos);
+            entry = getEntryForPackageLocked(infoInOut.packageName, infoInOut.user, lookupFlag);
+        }
         applyCacheEntry(entry, infoInOut);
         if (infoInOut.widgetCategory == NO_CATEGORY) {
             return;
@@ -601,7 +735,10 @@ public class IconCache extends BaseIconCache {
                 .get(infoInOut.widgetCategory);
         infoInOut.title = context.getString(widgetSection.mSectionTitle);
         infoInOut.contentDescription = getUserBadgedLabel(infoInOut.title, infoInOut.user);
-        final BitmapInfo cachedBitmap = mWidgetCategoryBitmapInfos.get(infoInOut.widgetCategory);
+        final BitmapInfo cachedBitmap;
+        synchronized (mWidgetCategoryBitmapInfos) {
+            cachedBitmap = mWidgetCategoryBitmapInfos.get(infoInOut.widgetCategory);
+        }
         if (cachedBitmap != null) {
             infoInOut.bitmap = getBadgedIcon(cachedBitmap, infoInOut.user);
             return;
@@ -611,7 +748,9 @@ public class IconCache extends BaseIconCache {
             final BitmapInfo tempBitmap = li.createBadgedIconBitmap(
                     context.getDrawable(widgetSection.mSectionDrawable),
                     new BaseIconFactory.IconOptions());
-            mWidgetCategoryBitmapInfos.put(infoInOut.widgetCategory, tempBitmap);
+            synchronized (mWidgetCategoryBitmapInfos) {
+                mWidgetCategoryBitmapInfos.put(infoInOut.widgetCategory, tempBitmap);
+            }
             infoInOut.bitmap = getBadgedIcon(tempBitmap, infoInOut.user);
         } catch (Exception e) {
             Log.e(TAG, "Error initializing bitmap for icons with widget category", e);
@@ -648,7 +787,10 @@ public class IconCache extends BaseIconCache {
         if (targetPackage == null) {
             return;
         }
-        CacheEntry packageEntry = getInMemoryPackageEntryLocked(targetPackage, info.user);
+        CacheEntry packageEntry;
+        synchronized (this) {
+            packageEntry = getInMemoryPackageEntryLocked(targetPackage, info.user);
+        }
         if (packageEntry == null || packageEntry.bitmap.isLowRes()) {
             return;
         }
@@ -661,6 +803,7 @@ public class IconCache extends BaseIconCache {
     public void updateSessionCache(PackageUserKey key, PackageInstaller.SessionInfo info) {
         cachePackageInstallInfo(key.mPackageName, key.mUser, info.getAppIcon(),
                 info.getAppLabel());
+        invalidateFastEntries(key.mPackageName, key.mUser);
     }
 
     @VisibleForTesting
@@ -677,6 +820,16 @@ public class IconCache extends BaseIconCache {
         void reapplyItemInfo(ItemInfoWithIcon info);
     }
 
+    public void dump(String prefix, PrintWriter writer) {
+        writer.println(prefix + "IconCache:");
+        writer.println(prefix + "  fastEntries=" + mFastEntries.size()
+                + " fastHits=" + mFastHits.get()
+                + " lockedLookups=" + mLockedLookups.get()
+                + " contendedLookups=" + mContendedLookups.get()
+                + " contendedWaitMs="
+                + TimeUnit.NANOSECONDS.toMillis(mContendedWaitNanos.get()));
+    }
+
     /** Log persistently to FileLog.d for debugging. */
     @Override
     protected void logPersistently(@NonNull String message, @Nullable Exception e) {
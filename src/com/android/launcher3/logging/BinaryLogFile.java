@@ -0,0 +1,214 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import android.util.Log;
+
+import com.android.launcher3.logging.LogRingBuffer.Record;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.IllegalFormatException;
+
+/**
+ * A log file of binary records, written through a memory mapping of a fixed size.
+ *
+ * The header keeps the end of the written records, so a file that wasn't closed can still be
+ * read up to its last record. Records are only turned into text when the file is dumped.
+ */
+final class BinaryLogFile implements Closeable {
+
+    private static final int MAGIC = 0x4c4f4731;  // "LOG1"
+    private static final int HEADER_SIZE = 8;
+    private static final int END_OFFSET = 4;
+
+    private static final char[] PRIORITY_LETTERS = {'?', '?', 'V', 'D', 'I', 'W', 'E', 'A'};
+
+    private final File mFile;
+    private final RandomAccessFile mRaf;
+    private final MappedByteBuffer mBuffer;
+
+    private BinaryLogFile(File file, RandomAccessFile raf, MappedByteBuffer buffer) {
+        mFile = file;
+        mRaf = raf;
+        mBuffer = buffer;
+    }
+
+    /**
+     * Opens {@code file} for writing, keeping its records if {@code append} is true and it is a
+     * valid log file.
+     */
+    static BinaryLogFile open(File file, int size, boolean append) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(size);
+            MappedByteBuffer buffer =
+                    raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            int end = buffer.getInt(END_OFFSET);
+            if (!append || buffer.getInt(0) != MAGIC || end < HEADER_SIZE || end > size) {
+                buffer.putInt(0, MAGIC);
+                end = HEADER_SIZE;
+                buffer.putInt(END_OFFSET, end);
+            }
+            buffer.position(end);
+            return new BinaryLogFile(file, raf, buffer);
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Appends {@code record}.
+     *
+     * @return false if the file doesn't have room for it
+     */
+    boolean append(Record record) {
+        byte[] tag = record.tag.getBytes(UTF_8);
+        byte[] message = record.message == null ? null : record.message.getBytes(UTF_8);
+        byte[] error = record.error == null
+                ? null : Log.getStackTraceString(record.error).getBytes(UTF_8);
+        int size = Long.BYTES + Integer.BYTES * 2 + Long.BYTES * record.argCount
+                + Integer.BYTES + tag.length
+                + Integer.BYTES + (message == null ? 0 : message.length)
+                + Integer.BYTES + (error == null ? 0 : error.length);
+        if (mBuffer.remaining() < Integer.BYTES + size) {
+            return false;
+        }
+        mBuffer.putInt(size);
+        mBuffer.putLong(record.time);
+        mBuffer.putInt(record.priority);
+        mBuffer.putInt(record.argCount);
+        for (int i = 0; i < record.argCount; i++) {
+            mBuffer.putLong(record.args[i]);
+        }
+        putBytes(tag);
+        putBytes(message);
+        putBytes(error);
+        mBuffer.putInt(END_OFFSET, mBuffer.position());
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mBuffer.force();
+        mRaf.close();
+        // Writes through the mapping don't reliably update the modification time, which is used
+        // to purge old files
+        mFile.setLastModified(System.currentTimeMillis());
+    }
+
+    private void putBytes(byte[] bytes) {
+        if (bytes == null) {
+            mBuffer.putInt(-1);
+        } else {
+            mBuffer.putInt(bytes.length);
+            mBuffer.put(bytes);
+        }
+    }
+
+    /**
+     * Writes the records of {@code file} to {@code out} as text.
+     */
+    static void dump(File file, PrintWriter out, DateFormat dateFormat) throws IOException {
+        ByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            if (length < HEADER_SIZE) {
+                return;
+            }
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+        if (buffer.getInt(0) != MAGIC) {
+            return;
+        }
+        int end = Math.min(buffer.getInt(END_OFFSET), buffer.capacity());
+        buffer.position(HEADER_SIZE);
+        long[] args = new long[LogRingBuffer.MAX_ARGS];
+        try {
+            while (buffer.position() + Integer.BYTES <= end) {
+                int size = buffer.getInt();
+                int next = buffer.position() + size;
+                if (size <= 0 || next > end) {
+                    break;
+                }
+                long time = buffer.getLong();
+                int priority = buffer.getInt();
+                int argCount = Math.min(buffer.getInt(), LogRingBuffer.MAX_ARGS);
+                for (int i = 0; i < argCount; i++) {
+                    args[i] = buffer.getLong();
+                }
+                String tag = getString(buffer);
+                String message = getString(buffer);
+                String error = getString(buffer);
+
+                out.println(String.format("%s %c %s %s", dateFormat.format(new Date(time)),
+                        priority >= 0 && priority < PRIORITY_LETTERS.length
+                                ? PRIORITY_LETTERS[priority] : '?',
+                        tag, format(message, args, argCount)));
+                if (error != null) {
+                    out.println(error);
+                }
+                buffer.position(next);
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            out.println("--- corrupted log record ---");
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    private static String format(String message, long[] args, int argCount) {
+        if (argCount == 0) {
+            return message;
+        }
+        Object[] values = new Object[argCount];
+        for (int i = 0; i < argCount; i++) {
+            values[i] = args[i];
+        }
+        try {
+            return String.format(message, values);
+        } catch (IllegalFormatException e) {
+            StringBuilder sb = new StringBuilder(message);
+            for (Object value : values) {
+                sb.append(' ').append(value);
+            }
+            return sb.toString();
+        }
+    }
+}
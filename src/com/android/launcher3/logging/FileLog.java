@@ -10,23 +10,27 @@ import android.util.Pair;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.launcher3.logging.LogRingBuffer.Record;
 import com.android.launcher3.util.IOUtils;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.text.DateFormat;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Wrapper around {@link Log} to allow writing to a file.
  * This class can safely be called from main thread.
  *
+ * Logging only appends a record to an in-memory ring buffer, without locking or formatting. The
+ * records are written in batches to memory-mapped binary files on a background thread, and turned
+ * into text when the logs are dumped or exported. Warnings and errors are written right away, so
+ * that they survive the crash they often precede.
+ *
  * Note: This should only be used for logging errors which have a persistent effect on user's data,
  * but whose effect may not be visible immediately.
  */
@@ -34,23 +38,39 @@ public final class FileLog {
 
     protected static final boolean ENABLED = true;
     private static final String FILE_NAME_PREFIX = "log-";
+    // The earlier records of a day whose file filled up
+    private static final String ROTATED_FILE_SUFFIX = ".old";
+    private static final String EXPORT_DIR_NAME = "log-export";
     private static final DateFormat DATE_FORMAT =
             DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT);
 
-    private static final long MAX_LOG_FILE_SIZE = 8 << 20;  // 4 mb
+    // A day keeps up to two files of this size, the current one and the rotated one
+    private static final int MAX_LOG_FILE_SIZE = 2 << 20;  // 2 mb
+
+    private static final int BUFFER_CAPACITY = 1024;
+    // Unwritten records above which they are written right away instead of after FLUSH_DELAY
+    private static final int FLUSH_BATCH_SIZE = BUFFER_CAPACITY / 2;
+    private static final long FLUSH_DELAY = 1000;  // 1 second
 
-    private static Handler sHandler = null;
+    private static final Object LOCK = new Object();
+    private static final LogRingBuffer sBuffer = new LogRingBuffer(BUFFER_CAPACITY);
+    private static final AtomicBoolean sFlushScheduled = new AtomicBoolean();
+    private static final AtomicBoolean sBatchFlushScheduled = new AtomicBoolean();
+
+    private static volatile Handler sHandler = null;
     private static File sLogsDirectory = null;
 
     public static final int LOG_DAYS = 4;
 
     public static void setDir(File logsDir) {
         if (ENABLED) {
-            synchronized (DATE_FORMAT) {
+            synchronized (LOCK) {
                 // If the target directory changes, stop any active thread.
                 if (sHandler != null && !logsDir.equals(sLogsDirectory)) {
                     ((HandlerThread) sHandler.getLooper().getThread()).quit();
                     sHandler = null;
+                    sFlushScheduled.set(false);
+                    sBatchFlushScheduled.set(false);
                 }
             }
         }
@@ -59,42 +79,42 @@ public final class FileLog {
 
     public static void d(String tag, String msg, Exception e) {
         Log.d(tag, msg, e);
-        print(tag, msg, e);
+        append(Log.DEBUG, tag, msg, e);
     }
 
     public static void d(String tag, String msg) {
         Log.d(tag, msg);
-        print(tag, msg);
+        append(Log.DEBUG, tag, msg, null);
     }
 
     public static void i(String tag, String msg, Exception e) {
         Log.i(tag, msg, e);
-        print(tag, msg, e);
+        append(Log.INFO, tag, msg, e);
     }
 
     public static void i(String tag, String msg) {
         Log.i(tag, msg);
-        print(tag, msg);
+        append(Log.INFO, tag, msg, null);
     }
 
     public static void w(String tag, String msg, Exception e) {
         Log.w(tag, msg, e);
-        print(tag, msg, e);
+        append(Log.WARN, tag, msg, e);
     }
 
     public static void w(String tag, String msg) {
         Log.w(tag, msg);
-        print(tag, msg);
+        append(Log.WARN, tag, msg, null);
     }
 
     public static void e(String tag, String msg, Exception e) {
         Log.e(tag, msg, e);
-        print(tag, msg, e);
+        append(Log.ERROR, tag, msg, e);
     }
 
     public static void e(String tag, String msg) {
         Log.e(tag, msg);
-        print(tag, msg);
+        append(Log.ERROR, tag, msg, null);
     }
 
     public static void print(String tag, String msg) {
@@ -102,25 +122,39 @@ public final class FileLog {
     }
 
     public static void print(String tag, String msg, Exception e) {
-        if (!ENABLED) {
-            return;
+        append(Log.INFO, tag, msg, e);
+    }
+
+    private static void append(int priority, String tag, String msg, Exception e) {
+        if (ENABLED) {
+            onAppended(sBuffer.append(System.currentTimeMillis(), priority, tag, msg, e), priority);
         }
-        String out = String.format("%s %s %s", DATE_FORMAT.format(new Date()), tag, msg);
-        if (e != null) {
-            out += "\n" + Log.getStackTraceString(e);
+    }
+
+    private static void onAppended(long pendingRecords, int priority) {
+        if (pendingRecords >= FLUSH_BATCH_SIZE
+                || (pendingRecords > 0 && priority >= Log.WARN)) {
+            if (sBatchFlushScheduled.compareAndSet(false, true)) {
+                getHandler().sendEmptyMessage(LogWriterCallback.MSG_WRITE);
+            }
+        } else if (pendingRecords > 0 && sFlushScheduled.compareAndSet(false, true)) {
+            getHandler().sendEmptyMessageDelayed(LogWriterCallback.MSG_WRITE, FLUSH_DELAY);
         }
-        Message.obtain(getHandler(), LogWriterCallback.MSG_WRITE, out).sendToTarget();
     }
 
     @VisibleForTesting
     static Handler getHandler() {
-        synchronized (DATE_FORMAT) {
+        Handler handler = sHandler;
+        if (handler != null) {
+            return handler;
+        }
+        synchronized (LOCK) {
             if (sHandler == null) {
                 sHandler = new Handler(createAndStartNewLooper("file-logger"),
                         new LogWriterCallback());
             }
+            return sHandler;
         }
-        return sHandler;
     }
 
     /**
@@ -152,12 +186,87 @@ public final class FileLog {
         private static final int MSG_CLOSE = 2;
         private static final int MSG_FLUSH = 3;
 
+        private final Record mRecord = new Record();
+        private final Calendar mCalendar = Calendar.getInstance();
+
         private String mCurrentFileName = null;
-        private PrintWriter mCurrentWriter = null;
+        private BinaryLogFile mCurrentFile = null;
+
+        private void closeFile() {
+            IOUtils.closeSilently(mCurrentFile);
+            mCurrentFile = null;
+        }
+
+        /**
+         * Writes all the records of the buffer to the file.
+         */
+        private void writeRecords() {
+            sFlushScheduled.set(false);
+            sBatchFlushScheduled.set(false);
+            try {
+                long dropped = sBuffer.takeDropped();
+                while (sBuffer.read(mRecord)) {
+                    writeRecord(mRecord);
+                }
+                if (dropped > 0) {
+                    mRecord.time = System.currentTimeMillis();
+                    mRecord.priority = Log.WARN;
+                    mRecord.tag = "FileLog";
+                    mRecord.message = "Dropped %d log records";
+                    mRecord.error = null;
+                    mRecord.argCount = 1;
+                    mRecord.args[0] = dropped;
+                    writeRecord(mRecord);
+                }
+                mRecord.error = null;
+
+                // Auto close file after some time.
+                sHandler.removeMessages(MSG_CLOSE);
+                sHandler.sendEmptyMessageDelayed(MSG_CLOSE, CLOSE_DELAY);
+            } catch (Exception e) {
+                Log.e("FileLog", "Error writing logs to file", e);
+                // Close file, will try reopening during next log
+                closeFile();
+            }
+        }
+
+        private void writeRecord(Record record) throws IOException {
+            mCalendar.setTimeInMillis(record.time);
+            // suffix with 0 or 1 based on the day of the year.
+            String fileName = FILE_NAME_PREFIX + (mCalendar.get(Calendar.DAY_OF_YEAR) % LOG_DAYS);
+
+            if (!fileName.equals(mCurrentFileName)) {
+                closeFile();
+            }
+
+            if (mCurrentFile == null) {
+                mCurrentFileName = fileName;
 
-        private void closeWriter() {
-            IOUtils.closeSilently(mCurrentWriter);
-            mCurrentWriter = null;
+                boolean append = false;
+                File logFile = new File(sLogsDirectory, fileName);
+                if (logFile.exists()) {
+                    Calendar modifiedTime = Calendar.getInstance();
+                    modifiedTime.setTimeInMillis(logFile.lastModified());
+
+                    // If the file was modified more that 36 hours ago, purge the file.
+                    // We use instead of 24 to account for day-365 followed by day-1
+                    modifiedTime.add(Calendar.HOUR, 36);
+                    append = Calendar.getInstance().before(modifiedTime);
+                }
+                if (!append) {
+                    getRotatedFile(logFile).delete();
+                }
+                mCurrentFile = BinaryLogFile.open(logFile, MAX_LOG_FILE_SIZE, append);
+            }
+
+            if (!mCurrentFile.append(record)) {
+                // The file is full, keep it as the earlier part of the day and start a new one
+                closeFile();
+                File logFile = new File(sLogsDirectory, mCurrentFileName);
+                logFile.renameTo(getRotatedFile(logFile));
+                mCurrentFile = BinaryLogFile.open(logFile, MAX_LOG_FILE_SIZE, false);
+                mCurrentFile.append(record);
+            }
         }
 
         @Override
@@ -167,52 +276,16 @@ public final class FileLog {
             }
             switch (msg.what) {
                 case MSG_WRITE: {
-                    Calendar cal = Calendar.getInstance();
-                    // suffix with 0 or 1 based on the day of the year.
-                    String fileName = FILE_NAME_PREFIX + (cal.get(Calendar.DAY_OF_YEAR) % LOG_DAYS);
-
-                    if (!fileName.equals(mCurrentFileName)) {
-                        closeWriter();
-                    }
-
-                    try {
-                        if (mCurrentWriter == null) {
-                            mCurrentFileName = fileName;
-
-                            boolean append = false;
-                            File logFile = new File(sLogsDirectory, fileName);
-                            if (logFile.exists()) {
-                                Calendar modifiedTime = Calendar.getInstance();
-                                modifiedTime.setTimeInMillis(logFile.lastModified());
-
-                                // If the file was modified more that 36 hours ago, purge the file.
-                                // We use instead of 24 to account for day-365 followed by day-1
-                                modifiedTime.add(Calendar.HOUR, 36);
-                                append = cal.before(modifiedTime)
-                                        && logFile.length() < MAX_LOG_FILE_SIZE;
-                            }
-                            mCurrentWriter = new PrintWriter(new FileWriter(logFile, append));
-                        }
-
-                        mCurrentWriter.println((String) msg.obj);
-                        mCurrentWriter.flush();
-
-                        // Auto close file stream after some time.
-                        sHandler.removeMessages(MSG_CLOSE);
-                        sHandler.sendEmptyMessageDelayed(MSG_CLOSE, CLOSE_DELAY);
-                    } catch (Exception e) {
-                        Log.e("FileLog", "Error writing logs to file", e);
-                        // Close stream, will try reopening during next log
-                        closeWriter();
-                    }
+                    writeRecords();
                     return true;
                 }
                 case MSG_CLOSE: {
-                    closeWriter();
+                    closeFile();
                     return true;
                 }
                 case MSG_FLUSH: {
-                    closeWriter();
+                    writeRecords();
+                    closeFile();
                     Pair<PrintWriter, CountDownLatch> p =
                             (Pair<PrintWriter, CountDownLatch>) msg.obj;
 
@@ -232,34 +305,54 @@ public final class FileLog {
     private static void dumpFile(PrintWriter out, String fileName) {
         File logFile = new File(sLogsDirectory, fileName);
         if (logFile.exists()) {
-
-            BufferedReader in = null;
+            out.println();
+            out.println("--- logfile: " + fileName + " ---");
             try {
-                in = new BufferedReader(new FileReader(logFile));
-                out.println();
-                out.println("--- logfile: " + fileName + " ---");
-                String line;
-                while ((line = in.readLine()) != null) {
-                    out.println(line);
-                }
+                dumpDay(logFile, out, DATE_FORMAT);
             } catch (Exception e) {
                 // ignore
-            } finally {
-                IOUtils.closeSilently(in);
             }
         }
     }
 
     /**
-     * Gets files used for FileLog
+     * Writes the records of the day of {@code logFile}, including the rotated ones, as text.
+     */
+    private static void dumpDay(File logFile, PrintWriter out, DateFormat dateFormat)
+            throws IOException {
+        File rotatedFile = getRotatedFile(logFile);
+        if (rotatedFile.exists()) {
+            BinaryLogFile.dump(rotatedFile, out, dateFormat);
+        }
+        BinaryLogFile.dump(logFile, out, dateFormat);
+    }
+
+    private static File getRotatedFile(File logFile) {
+        return new File(logFile.getPath() + ROTATED_FILE_SUFFIX);
+    }
+
+    /**
+     * Gets files used for FileLog, written out as text
      */
     public static File[] getLogFiles() {
         try {
             flushAll(null);
         } catch (InterruptedException e) { }
+        File exportDir = new File(sLogsDirectory, EXPORT_DIR_NAME);
+        exportDir.mkdirs();
         File[] files = new File[LOG_DAYS];
         for (int i = 0; i < LOG_DAYS; i++) {
-            files[i] = new File(sLogsDirectory, FILE_NAME_PREFIX + i);
+            files[i] = new File(exportDir, FILE_NAME_PREFIX + i);
+            PrintWriter out = null;
+            try {
+                out = new PrintWriter(files[i]);
+                dumpDay(new File(sLogsDirectory, FILE_NAME_PREFIX + i), out,
+                        (DateFormat) DATE_FORMAT.clone());
+            } catch (IOException e) {
+                // The file is empty or missing
+            } finally {
+                IOUtils.closeSilently(out);
+            }
         }
         return files;
     }
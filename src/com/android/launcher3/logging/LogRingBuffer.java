@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.logging;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A preallocated ring of log records, which any thread can append to without locking and a
+ * single thread reads from.
+ *
+ * Records keep the message and error as they were logged, with an interned tag. When the reader
+ * falls a full ring behind, new records are dropped and counted instead of overwriting unread
+ * ones.
+ */
+final class LogRingBuffer {
+
+    static final int MAX_ARGS = 2;
+
+    private final int mCapacity;
+    private final int mMask;
+
+    // The next sequence number to write, and to read
+    private final AtomicLong mWriteSeq = new AtomicLong();
+    private volatile long mReadSeq;
+    private final AtomicLong mDropped = new AtomicLong();
+    // The sequence number of the record last written to each slot
+    private final AtomicLongArray mPublished;
+
+    private final long[] mTimes;
+    private final int[] mPriorities;
+    private final int[] mTagIds;
+    private final String[] mMessages;
+    private final Throwable[] mErrors;
+
+    private final ConcurrentHashMap<String, Integer> mInternedIds = new ConcurrentHashMap<>();
+    // Guarded by itself
+    private final ArrayList<String> mInterned = new ArrayList<>();
+
+    /**
+     * @param capacity the number of records, a power of two
+     */
+    LogRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        mCapacity = capacity;
+        mMask = capacity - 1;
+        mPublished = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            mPublished.set(i, -1);
+        }
+        mTimes = new long[capacity];
+        mPriorities = new int[capacity];
+        mTagIds = new int[capacity];
+        mMessages = new String[capacity];
+        mErrors = new Throwable[capacity];
+    }
+
+    /**
+     * Appends a record with a message.
+     *
+     * @return the number of unread records, or -1 if the ring was full and the record dropped
+     */
+    long append(long time, int priority, String tag, String msg, @Nullable Throwable error) {
+        long seq = claim();
+        if (seq < 0) {
+            return -1;
+        }
+        int slot = (int) seq & mMask;
+        mTimes[slot] = time;
+        mPriorities[slot] = priority;
+        mTagIds[slot] = intern(tag);
+        mMessages[slot] = msg;
+        mErrors[slot] = error;
+        return publish(slot, seq);
+    }
+
+    /**
+     * Reads the oldest unread record into {@code out}. Must only be called from one thread.
+     *
+     * @return false if there is no record to read yet
+     */
+    boolean read(Record out) {
+        long seq = mReadSeq;
+        int slot = (int) seq & mMask;
+        if (mPublished.get(slot) != seq) {
+            return false;
+        }
+        out.time = mTimes[slot];
+        out.priority = mPriorities[slot];
+        out.tag = getInterned(mTagIds[slot]);
+        out.message = mMessages[slot];
+        out.error = mErrors[slot];
+        out.argCount = 0;
+        // Don't keep the message and error alive until the slot is written again
+        mMessages[slot] = null;
+        mErrors[slot] = null;
+        // Frees the slot for the writers
+        mReadSeq = seq + 1;
+        return true;
+    }
+
+    /**
+     * Returns the number of records dropped since the last call.
+     */
+    long takeDropped() {
+        return mDropped.getAndSet(0);
+    }
+
+    private long claim() {
+        while (true) {
+            long seq = mWriteSeq.get();
+            if (seq - mReadSeq >= mCapacity) {
+                mDropped.incrementAndGet();
+                return -1;
+            }
+            if (mWriteSeq.compareAndSet(seq, seq + 1)) {
+                return seq;
+            }
+        }
+    }
+
+    private long publish(int slot, long seq) {
+        mPublished.set(slot, seq);
+        return seq + 1 - mReadSeq;
+    }
+
+    private int intern(@Nullable String value) {
+        if (value == null) {
+            // Like Log, which prints null tags and messages as "null"
+            value = "null";
+        }
+        Integer id = mInternedIds.get(value);
+        if (id != null) {
+            return id;
+        }
+        synchronized (mInterned) {
+            id = mInternedIds.get(value);
+            if (id == null) {
+                id = mInterned.size();
+                mInterned.add(value);
+                mInternedIds.put(value, id);
+            }
+            return id;
+        }
+    }
+
+    private String getInterned(int id) {
+        synchronized (mInterned) {
+            return mInterned.get(id);
+        }
+    }
+
+    /**
+     * A record read from the buffer, reused for every read.
+     */
+    static final class Record {
+        long time;
+        int priority;
+        String tag;
+        // The message, or the format of the arguments if there are any
+        String message;
+        @Nullable
+        Throwable error;
+        int argCount;
+        final long[] args = new long[MAX_ARGS];
+    }
+}
@@ -23,8 +23,10 @@ import android.util.Log
 import android.util.SparseLongArray
 import androidx.annotation.VisibleForTesting
 import com.android.launcher3.LauncherConstants.TraceEvents.COLD_STARTUP_TRACE_METHOD_NAME
+import com.android.launcher3.LauncherConstants.TraceEvents.COVER_SCREEN_RELAUNCH_TRACE_METHOD_NAME
 import com.android.launcher3.LauncherConstants.TraceEvents.SINGLE_TRACE_COOKIE
 import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent
+import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent.LAUNCHER_LATENCY_COVER_SCREEN_RELAUNCH
 import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent.LAUNCHER_LATENCY_STARTUP_TOTAL_DURATION
 import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent.LAUNCHER_LATENCY_STARTUP_WORKSPACE_LOADER_ASYNC
 import com.android.launcher3.logging.StatsLogManager.StatsLatencyLogger.Companion.LAUNCHER_LATENCY_PACKAGE_ID
@@ -119,6 +121,47 @@ sealed interface StartupLatencyLogger {
         }
     }
 
+    /**
+     * Logs the time it takes to bring an already created launcher back to the front of the cover
+     * screen, from the event that triggered it ([startTime]) to the first frame drawn afterwards,
+     * which is marked by calling [finishLogs].
+     */
+    @VisibleForTesting
+    class CoverScreenRelaunchLogger(
+        private val ctx: ActivityContext,
+        private val startTime: Long,
+        private val timeProvider: () -> Long,
+    ) : StartupLatencyLogger {
+
+        init {
+            Trace.beginAsyncSection(COVER_SCREEN_RELAUNCH_TRACE_METHOD_NAME, SINGLE_TRACE_COOKIE)
+        }
+
+        override fun finishLogs(workspaceCount: Int, isBindSync: Boolean): StartupLatencyLogger {
+            val duration = timeProvider.invoke() - startTime
+            Trace.endAsyncSection(COVER_SCREEN_RELAUNCH_TRACE_METHOD_NAME, SINGLE_TRACE_COOKIE)
+            Log.i("Launcher", "CoverScreenRelaunch. Duration: ${duration}ms")
+            ctx.statsLogManager
+                .latencyLogger()
+                .withType(LatencyType.HOT)
+                .withInstanceId(InstanceIdSequence().newInstanceId())
+                .withLatency(duration)
+                .withPackageId(LAUNCHER_LATENCY_PACKAGE_ID)
+                .withCardinality(workspaceCount)
+                .log(LAUNCHER_LATENCY_COVER_SCREEN_RELAUNCH)
+            return NoOpLogger
+        }
+
+        /**
+         * Ends the trace section without logging, for a relaunch that is superseded by another
+         * one before its first frame.
+         */
+        fun cancel(): StartupLatencyLogger {
+            Trace.endAsyncSection(COVER_SCREEN_RELAUNCH_TRACE_METHOD_NAME, SINGLE_TRACE_COOKIE)
+            return NoOpLogger
+        }
+    }
+
     companion object {
 
         private var isNewProcess: Boolean = true
@@ -133,5 +176,13 @@ sealed interface StartupLatencyLogger {
                 ColdRebootStartupLogger(ctx) { SystemClock.elapsedRealtime() }
             else NoOpLogger
         }
+
+        /**
+         * Returns a logger for bringing the launcher back to the cover screen in response to an
+         * event that happened at [eventTime], in [SystemClock.uptimeMillis] time.
+         */
+        @JvmStatic
+        fun getCoverScreenRelaunchLogger(ctx: ActivityContext, eventTime: Long): StartupLatencyLogger =
+            CoverScreenRelaunchLogger(ctx, eventTime) { SystemClock.uptimeMillis() }
     }
 }
@@ -657,6 +657,13 @@ open class StatsLogManager protected constructor(@JvmField protected val mContex
                     "triggering Contextual Search")
         )
         LAUNCHER_LATENCY_CONTEXTUAL_SEARCH_LPNH_ABANDON(2171),
+        // Lawnchair only, the id is not registered with statsd
+        @UiEvent(
+            doc =
+                ("Time between the event that brings the launcher back to the cover screen and " +
+                    "the first frame drawn afterwards")
+        )
+        LAUNCHER_LATENCY_COVER_SCREEN_RELAUNCH(100001),
     }
 
     /** Launcher specific ranking related events. */
@@ -87,6 +87,7 @@ public class AllAppsList {
     @NonNull private final Provider<AppsListRepository> mRepo;
 
     private boolean mDataChanged = false;
+    private int mVersion = 0;
     private Consumer<AppInfo> mRemoveListener = NO_OP_CONSUMER;
 
     private AlphabeticIndexCompat mIndex;
@@ -119,6 +120,9 @@ public class AllAppsList {
     public boolean getAndResetChangeFlag() {
         boolean result = mDataChanged;
         mDataChanged = false;
+        if (result) {
+            mVersion++;
+        }
 
         if (Flags.modelRepository() && result) {
             mRepo.get().dispatchChange(getImmutableData());
@@ -126,6 +130,14 @@ public class AllAppsList {
         return result;
     }
 
+    /**
+     * Returns a counter that changes every time a change to the data is published, so that
+     * derived structures (like the search index) can tell whether they are stale.
+     */
+    public int getVersion() {
+        return mVersion;
+    }
+
     /**
      * Helper to checking {@link AppsListData#FLAG_HAS_SHORTCUT_PERMISSION}
      */
@@ -273,6 +285,7 @@ public class AllAppsList {
     public void clear() {
         data.clear();
         mDataChanged = false;
+        mVersion++;
         // Reset the index as locales might have changed
         mIndex = new AlphabeticIndexCompat(LocaleList.getDefault());
     }
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.model;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs the system queries needed by the later stages of {@link LoaderTask} ahead of time on a
+ * bounded pool, so that they overlap with each other and with binding the earlier stages.
+ *
+ * The queries must not touch the model: their results are only consumed, in the usual order,
+ * on the loader thread.
+ */
+class LoaderPrefetch implements AutoCloseable {
+
+    private static final String TAG = "LoaderPrefetch";
+
+    // How often a waiting loader checks whether it was stopped
+    private static final long POLL_INTERVAL_MS = 100;
+
+    private final Executor mExecutor;
+    private final List<FutureTask<?>> mTasks = new ArrayList<>();
+
+    LoaderPrefetch(Executor executor) {
+        mExecutor = executor;
+    }
+
+    /**
+     * Starts running {@code query} on the pool.
+     */
+    <T> Result<T> submit(Callable<T> query) {
+        FutureTask<T> task = new FutureTask<>(query);
+        mTasks.add(task);
+        mExecutor.execute(task);
+        return new Result<>(task, query);
+    }
+
+    /**
+     * Cancels the queries that haven't started yet.
+     */
+    @Override
+    public void close() {
+        for (FutureTask<?> task : mTasks) {
+            task.cancel(false);
+        }
+        mTasks.clear();
+    }
+
+    /**
+     * The pending result of a prefetched query.
+     */
+    static class Result<T> {
+
+        private final FutureTask<T> mTask;
+        private final Callable<T> mQuery;
+
+        private Result(FutureTask<T> task, Callable<T> query) {
+            mTask = task;
+            mQuery = query;
+        }
+
+        /**
+         * Waits for the query to finish, calling {@code verifyNotStopped} regularly so that a
+         * stopped loader doesn't keep waiting. If the query failed or was cancelled, it's run
+         * again on the calling thread, so that errors surface where they used to.
+         */
+        T get(Runnable verifyNotStopped) {
+            while (true) {
+                verifyNotStopped.run();
+                try {
+                    return mTask.get(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // Check whether the loader was stopped and keep waiting
+                } catch (ExecutionException | CancellationException e) {
+                    Log.w(TAG, "Prefetch failed, querying again", e);
+                    return runInline();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return runInline();
+                }
+            }
+        }
+
+        private T runInline() {
+            try {
+                return mQuery.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
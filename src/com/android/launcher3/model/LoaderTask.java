@@ -31,6 +31,7 @@ import static com.android.launcher3.model.data.AppsListData.FLAG_QUIET_MODE_ENAB
 import static com.android.launcher3.model.data.AppsListData.FLAG_WORK_PROFILE_QUIET_MODE_ENABLED;
 import static com.android.launcher3.model.data.ItemInfoWithIcon.FLAG_INSTALL_SESSION_ACTIVE;
 import static com.android.launcher3.util.Executors.MODEL_EXECUTOR;
+import static com.android.launcher3.util.Executors.THREAD_POOL_EXECUTOR;
 import static com.android.launcher3.util.LooperExecutor.CALLER_LOADER_TASK;
 import static com.android.launcher3.util.PackageManagerHelper.hasShortcutsPermission;
 
@@ -45,6 +46,7 @@ import android.content.pm.PackageInstaller.SessionInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.ShortcutInfo;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.os.Trace;
 import android.os.UserHandle;
 import android.os.UserManager;
@@ -164,6 +166,8 @@ public class LoaderTask implements Runnable {
 
     private boolean mStopped;
 
+    private long mLastSplitMillis = SystemClock.elapsedRealtime();
+
     private final Set<PackageUserKey> mPendingPackages = new HashSet<>();
     private String mDbName;
     private final Provider<FolderNameProvider> mFolderNameProviderFactory;
@@ -261,6 +265,7 @@ public class LoaderTask implements Runnable {
     private void loadAllSurfacesOrdered(
             LoaderMemoryLogger memoryLogger, LauncherRestoreEventLogger restoreEventLogger) {
 
+        mLastSplitMillis = SystemClock.elapsedRealtime();
         List<CacheableShortcutInfo> allShortcuts = new ArrayList<>();
         Trace.beginSection("LoadWorkspace");
         try {
@@ -293,6 +298,32 @@ public class LoaderTask implements Runnable {
             return;
         }
 
+        // The system queries of the next stages don't depend on each other or on the model,
+        // so run them in parallel while the workspace settles. Binding order is unchanged.
+        try (LoaderPrefetch prefetch = new LoaderPrefetch(THREAD_POOL_EXECUTOR)) {
+            loadNonWorkspaceSurfacesOrdered(prefetch);
+        }
+    }
+
+    private void loadNonWorkspaceSurfacesOrdered(LoaderPrefetch prefetch) {
+        Map<UserHandle, LoaderPrefetch.Result<List<LauncherActivityInfo>>> activityLists =
+                new HashMap<>();
+        for (UserHandle user : mUserCache.getUserProfiles()) {
+            activityLists.put(user, prefetch.submit(() -> queryActivityList(user)));
+        }
+        Map<UserHandle, LoaderPrefetch.Result<List<ShortcutInfo>>> deepShortcuts =
+                new HashMap<>();
+        if (hasShortcutsPermission(mContext)) {
+            for (UserHandle user : mUserCache.getUserProfiles()) {
+                if (mUserManager.isUserUnlocked(user)) {
+                    deepShortcuts.put(user, prefetch.submit(() -> queryDeepShortcuts(user)));
+                }
+            }
+        }
+        LoaderPrefetch.Result<WidgetsModel.WidgetProviders> widgetProviders =
+                prefetch.submit(() -> WidgetsModel.WidgetProviders.query(mContext, null));
+        logASplit("prefetch started");
+
         mModelDelegate.workspaceLoadComplete();
         // Notify the installer packages of packages with active installs on the first screen.
         sendFirstScreenActiveInstallsBroadcast();
@@ -306,7 +337,7 @@ public class LoaderTask implements Runnable {
         Trace.beginSection("LoadAllApps");
         List<LauncherActivityInfo> allActivityList;
         try {
-            allActivityList = loadAllApps();
+            allActivityList = loadAllApps(activityLists);
         } finally {
             Trace.endSection();
         }
@@ -335,7 +366,7 @@ public class LoaderTask implements Runnable {
         verifyNotStopped();
 
         // third step
-        List<ShortcutInfo> allDeepShortcuts = loadDeepShortcuts();
+        List<ShortcutInfo> allDeepShortcuts = loadDeepShortcuts(deepShortcuts);
         logASplit("loadDeepShortcuts finished");
 
         verifyNotStopped();
@@ -356,7 +387,8 @@ public class LoaderTask implements Runnable {
 
         // fourth step
         WidgetsModel widgetsModel = mBgDataModel.widgetsModel;
-        List<CachedObject> allWidgetsList = widgetsModel.update(/*packageUser=*/null);
+        List<CachedObject> allWidgetsList = widgetsModel.update(/*packageUser=*/null,
+                () -> widgetProviders.get(this::verifyNotStopped));
         logASplit("load widgets finished");
 
         verifyNotStopped();
@@ -557,8 +589,11 @@ public class LoaderTask implements Runnable {
             for (IconRequestInfo<WorkspaceItemInfo> iconRequestInfo : iconRequestInfos) {
                 WorkspaceItemInfo wai = iconRequestInfo.itemInfo;
                 if (mIconCache.isDefaultIcon(wai.bitmap, wai.user)) {
-                    logASplit("tryLoadWorkspaceIconsInBulk: default icon found for "
-                            + wai.getTargetComponent() + ", will attempt to load from iconBlob");
+                    if (DEBUG) {
+                        Log.d(TAG, "tryLoadWorkspaceIconsInBulk: default icon found for "
+                                + wai.getTargetComponent()
+                                + ", will attempt to load from iconBlob");
+                    }
                     iconRequestInfo.loadIconFromDbBlob(mContext);
                 }
             }
@@ -603,7 +638,16 @@ public class LoaderTask implements Runnable {
         }
     }
 
-    private List<LauncherActivityInfo> loadAllApps() {
+    private List<LauncherActivityInfo> queryActivityList(UserHandle user) {
+        return mLauncherApps.getActivityList(null, user);
+    }
+
+    private List<ShortcutInfo> queryDeepShortcuts(UserHandle user) {
+        return new ShortcutRequest(mContext, user).query(ShortcutRequest.ALL);
+    }
+
+    private List<LauncherActivityInfo> loadAllApps(
+            Map<UserHandle, LoaderPrefetch.Result<List<LauncherActivityInfo>>> activityLists) {
         final List<UserHandle> profiles = mUserCache.getUserProfiles();
         List<LauncherActivityInfo> allActivityList = new ArrayList<>();
         // Clear the list of apps
@@ -614,7 +658,9 @@ public class LoaderTask implements Runnable {
         boolean isPrivateProfileQuiet = false;
         for (UserHandle user : profiles) {
             // Query for the set of apps
-            final List<LauncherActivityInfo> apps = mLauncherApps.getActivityList(null, user);
+            LoaderPrefetch.Result<List<LauncherActivityInfo>> prefetched = activityLists.get(user);
+            final List<LauncherActivityInfo> apps = prefetched != null
+                    ? prefetched.get(this::verifyNotStopped) : queryActivityList(user);
             // Fail if we don't have any apps
             // TODO: Fix this. Only fail for the current user.
             if (apps == null || apps.isEmpty()) {
@@ -691,10 +737,12 @@ public class LoaderTask implements Runnable {
                 for (IconRequestInfo<AppInfo> iconRequestInfo : allAppsItemRequestInfos) {
                     AppInfo appInfo = iconRequestInfo.itemInfo;
                     if (mIconCache.isDefaultIcon(appInfo.bitmap, appInfo.user)) {
-                        logASplit("LoadAllAppsIconsInBulk: default icon found for "
-                            + appInfo.getTargetComponent()
-                            + ", will attempt to load from iconBlob: "
-                            + Arrays.toString(iconRequestInfo.iconBlob));
+                        if (DEBUG) {
+                            Log.d(TAG, "LoadAllAppsIconsInBulk: default icon found for "
+                                + appInfo.getTargetComponent()
+                                + ", will attempt to load from iconBlob: "
+                                + Arrays.toString(iconRequestInfo.iconBlob));
+                        }
                         iconRequestInfo.loadIconFromDbBlob(mContext);
                     }
                 }
@@ -738,9 +786,11 @@ public class LoaderTask implements Runnable {
                             .findFirst();
 
             if (workspaceIconRequest.isPresent() && activityInfo.getApplicationInfo().isArchived) {
-                logASplit("getAppInfoIconRequestInfo:"
+                if (DEBUG) {
+                    Log.d(TAG, "getAppInfoIconRequestInfo:"
                             + " matching archived info found, loading icon blob into icon request."
                             + " Component=" + appInfo.getTargetComponent());
+                }
                 IconRequestInfo<AppInfo> iconRequestInfo = new IconRequestInfo<>(
                         appInfo,
                         activityInfo,
@@ -767,15 +817,18 @@ public class LoaderTask implements Runnable {
                 DEFAULT_LOOKUP_FLAG.withUseLowRes(false));
     }
 
-    private List<ShortcutInfo> loadDeepShortcuts() {
+    private List<ShortcutInfo> loadDeepShortcuts(
+            Map<UserHandle, LoaderPrefetch.Result<List<ShortcutInfo>>> prefetchedShortcuts) {
         List<ShortcutInfo> allShortcuts = new ArrayList<>();
         mBgDataModel.deepShortcutMap.clear();
 
         if (mBgAllAppsList.hasShortcutHostPermission()) {
             for (UserHandle user : mUserCache.getUserProfiles()) {
                 if (mUserManager.isUserUnlocked(user)) {
-                    List<ShortcutInfo> shortcuts = new ShortcutRequest(mContext, user)
-                            .query(ShortcutRequest.ALL);
+                    LoaderPrefetch.Result<List<ShortcutInfo>> prefetched =
+                            prefetchedShortcuts.get(user);
+                    List<ShortcutInfo> shortcuts = prefetched != null
+                            ? prefetched.get(this::verifyNotStopped) : queryDeepShortcuts(user);
                     allShortcuts.addAll(shortcuts);
                     mBgDataModel.updateDeepShortcutCounts(null, user, shortcuts);
                 }
@@ -808,10 +861,15 @@ public class LoaderTask implements Runnable {
                 && (provider.provider.getPackageName() != null);
     }
 
-    private static void logASplit(String label) {
+    /**
+     * Logs the end of a loading stage, along with the wall time since the previous split.
+     */
+    private void logASplit(String label) {
+        long now = SystemClock.elapsedRealtime();
         if (DEBUG) {
-            Log.d(TAG, label);
+            Log.d(TAG, label + " (" + (now - mLastSplitMillis) + "ms)");
         }
+        mLastSplitMillis = now;
     }
 
     @AssistedFactory
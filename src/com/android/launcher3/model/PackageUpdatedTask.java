@@ -58,6 +58,7 @@ import com.android.launcher3.util.ItemInfoMatcher;
 import com.android.launcher3.util.PackageManagerHelper;
 import com.android.launcher3.util.PackageUserKey;
 import com.android.launcher3.util.SafeCloseable;
+import com.android.launcher3.widget.WidgetPreviewDiskCache;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -69,6 +70,7 @@ import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 import app.lawnchair.deck.LawndeckManager;
+import app.lawnchair.flowerpot.AppCategoryIndex;
 import app.lawnchair.preferences.PreferenceManager;
 import app.lawnchair.preferences2.PreferenceManager2;
 import com.patrykmichalik.opto.core.PreferenceExtensionsKt;
@@ -113,6 +115,7 @@ public class PackageUpdatedTask implements ModelUpdateTask {
             @NonNull AllAppsList appsList) {
         final Context context = taskController.getContext();
         final IconCache iconCache = taskController.getIconCache();
+        final WidgetPreviewDiskCache previewCache = WidgetPreviewDiskCache.INSTANCE.get(context);
 
         final String[] packages = mPackages;
         final int packageCount = packages.length;
@@ -130,6 +133,9 @@ public class PackageUpdatedTask implements ModelUpdateTask {
                     + " packages=" + Arrays.toString(packages)
                     + ", user=" + mUser);
         }
+        if (mOp == OP_ADD || mOp == OP_UPDATE || mOp == OP_REMOVE) {
+            AppCategoryIndex.getInstance(context).onPackagesChanged(packages, mUser, mOp == OP_REMOVE);
+        }
         switch (mOp) {
             case OP_ADD: {
                 for (int i = 0; i < packageCount; i++) {
@@ -157,6 +163,7 @@ public class PackageUpdatedTask implements ModelUpdateTask {
                 })) {
                     for (int i = 0; i < packageCount; i++) {
                         iconCache.updateIconsForPkg(packages[i], mUser);
+                        previewCache.removePackage(packages[i], mUser);
                         activitiesLists.put(packages[i],
                                 appsList.updatePackage(context, packages[i], mUser));
                     }
@@ -167,6 +174,8 @@ public class PackageUpdatedTask implements ModelUpdateTask {
             case OP_REMOVE: {
                 for (int i = 0; i < packageCount; i++) {
                     iconCache.removeIconsForPkg(packages[i], mUser);
+                    iconCache.invalidateFastEntries(packages[i], mUser);
+                    previewCache.removePackage(packages[i], mUser);
                     PreferenceManager pm = PreferenceManager.getInstance(context);
                     if (packages[i].equals(pm.getIconPackPackage().get())) {
                         pm.getIconPackPackage().set("");
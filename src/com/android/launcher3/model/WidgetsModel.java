@@ -54,6 +54,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -159,6 +160,16 @@ public class WidgetsModel {
      *                    only widgets and shortcuts associated with the package/user are.
      */
     public List<CachedObject> update(@Nullable PackageUserKey packageUser) {
+        return update(packageUser, null);
+    }
+
+    /**
+     * Same as {@link #update(PackageUserKey)}, getting the providers from {@code providers} if
+     * they were already queried for the same {@code packageUser}. They are got within the same
+     * error handling as a direct query.
+     */
+    public List<CachedObject> update(@Nullable PackageUserKey packageUser,
+            @Nullable Supplier<WidgetProviders> providers) {
         if (!WIDGETS_ENABLED) {
             return new ArrayList<>();
         }
@@ -167,9 +178,11 @@ public class WidgetsModel {
         final ArrayList<WidgetItem> widgetsAndShortcuts = new ArrayList<>();
         List<CachedObject> updatedItems = new ArrayList<>();
         try {
+            WidgetProviders widgetProviders = providers != null
+                    ? providers.get() : WidgetProviders.query(mContext, packageUser);
+
             // Widgets
-            WidgetManagerHelper widgetManager = new WidgetManagerHelper(mContext);
-            for (AppWidgetProviderInfo widgetInfo : widgetManager.getAllProviders(packageUser)) {
+            for (AppWidgetProviderInfo widgetInfo : widgetProviders.widgets) {
                 LauncherAppWidgetProviderInfo launcherWidgetInfo =
                         LauncherAppWidgetProviderInfo.fromProviderInfo(mContext, widgetInfo);
 
@@ -179,8 +192,7 @@ public class WidgetsModel {
             }
 
             // Shortcuts
-            for (ShortcutConfigActivityInfo info :
-                    queryList(mContext, packageUser)) {
+            for (ShortcutConfigActivityInfo info : widgetProviders.shortcutConfigActivities) {
                 widgetsAndShortcuts.add(new WidgetItem(info, mIconCache));
                 updatedItems.add(info);
             }
@@ -199,6 +211,29 @@ public class WidgetsModel {
         return updatedItems;
     }
 
+    /**
+     * The widget providers and shortcut config activities known to the system. Querying them
+     * doesn't touch the model, so it can happen on any thread.
+     */
+    public static class WidgetProviders {
+
+        public final List<AppWidgetProviderInfo> widgets;
+        public final List<ShortcutConfigActivityInfo> shortcutConfigActivities;
+
+        private WidgetProviders(List<AppWidgetProviderInfo> widgets,
+                List<ShortcutConfigActivityInfo> shortcutConfigActivities) {
+            this.widgets = widgets;
+            this.shortcutConfigActivities = shortcutConfigActivities;
+        }
+
+        public static WidgetProviders query(Context context,
+                @Nullable PackageUserKey packageUser) {
+            return new WidgetProviders(
+                    new WidgetManagerHelper(context).getAllProviders(packageUser),
+                    queryList(context, packageUser));
+        }
+    }
+
     private synchronized void setWidgetsAndShortcuts(
             ArrayList<WidgetItem> rawWidgetsShortcuts, @Nullable PackageUserKey packageUser) {
         if (DEBUG) {
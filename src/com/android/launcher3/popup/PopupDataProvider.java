@@ -18,10 +18,14 @@ package com.android.launcher3.popup;
 
 import android.content.ComponentName;
 import android.service.notification.StatusBarNotification;
+import android.util.ArraySet;
 import android.util.Log;
+import android.view.Choreographer;
+import android.view.Choreographer.FrameCallback;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import com.android.launcher3.BubbleTextView;
 import com.android.launcher3.allapps.ActivityAllAppsContainerView;
@@ -43,6 +47,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Predicate;
 
 /**
@@ -61,11 +66,19 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     /** Maps launcher activity components to a count of how many shortcuts they have. */
     private HashMap<ComponentKey, Integer> mDeepShortcutMap = new HashMap<>();
 
+    /**
+     * Packages whose dots changed since the last frame. Notifications often come in bursts, so the
+     * icons are only updated once per frame, for all the packages that changed.
+     */
+    private final Set<PackageUserKey> mPendingDotUpdates = new ArraySet<>();
+    private final FrameCallback mDotUpdateCallback = frameTimeNanos -> applyPendingDotUpdates();
+
     public PopupDataProvider(ActivityContext context) {
         mContext = context;
     }
 
-    private void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
+    @VisibleForTesting
+    void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
         final PackageUserKey packageUserKey = new PackageUserKey(null, null);
         Predicate<ItemInfo> matcher = info -> !packageUserKey.updateFromItemInfo(info)
                 || updatedDots.test(packageUserKey);
@@ -94,6 +107,42 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
         }
     }
 
+    private void scheduleDotUpdate(PackageUserKey packageUserKey) {
+        if (mPendingDotUpdates.isEmpty()) {
+            postFrameCallback(mDotUpdateCallback);
+        }
+        mPendingDotUpdates.add(packageUserKey);
+    }
+
+    /**
+     * Drops the dot updates pending for the next frame. Must be called once the views of the
+     * context are destroyed, as the pending update would walk them.
+     */
+    public void cancelPendingDotUpdates() {
+        removeFrameCallback(mDotUpdateCallback);
+        mPendingDotUpdates.clear();
+    }
+
+    @VisibleForTesting
+    void postFrameCallback(FrameCallback callback) {
+        Choreographer.getInstance().postFrameCallback(callback);
+    }
+
+    @VisibleForTesting
+    void removeFrameCallback(FrameCallback callback) {
+        Choreographer.getInstance().removeFrameCallback(callback);
+    }
+
+    private void applyPendingDotUpdates() {
+        if (mPendingDotUpdates.isEmpty()) {
+            return;
+        }
+        Set<PackageUserKey> updatedDots = new ArraySet<>(mPendingDotUpdates);
+        mPendingDotUpdates.clear();
+        if (LOGD) Log.d(TAG, "applyPendingDotUpdates: " + updatedDots);
+        updateNotificationDots(updatedDots::contains);
+    }
+
     @Override
     public void onNotificationPosted(PackageUserKey postedPackageUserKey,
             NotificationKeyData notificationKey) {
@@ -103,7 +152,7 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
             mPackageUserToDotInfos.put(postedPackageUserKey, dotInfo);
         }
         if (dotInfo.addOrUpdateNotificationKey(notificationKey)) {
-            updateNotificationDots(postedPackageUserKey::equals);
+            scheduleDotUpdate(postedPackageUserKey);
         }
     }
 
@@ -115,7 +164,7 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
             if (oldDotInfo.getNotificationKeys().size() == 0) {
                 mPackageUserToDotInfos.remove(removedPackageUserKey);
             }
-            updateNotificationDots(removedPackageUserKey::equals);
+            scheduleDotUpdate(removedPackageUserKey);
         }
     }
 
@@ -150,9 +199,7 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
             }
         }
 
-        if (!updatedDots.isEmpty()) {
-            updateNotificationDots(updatedDots::containsKey);
-        }
+        updatedDots.keySet().forEach(this::scheduleDotUpdate);
     }
 
     public void setDeepShortcutMap(HashMap<ComponentKey, Integer> deepShortcutMapCopy) {
@@ -203,5 +250,6 @@ public class PopupDataProvider implements NotificationListener.NotificationsChan
     public void dump(String prefix, PrintWriter writer) {
         writer.println(prefix + "PopupDataProvider:");
         writer.println(prefix + "\tmPackageUserToDotInfos:" + mPackageUserToDotInfos);
+        writer.println(prefix + "\tmPendingDotUpdates:" + mPendingDotUpdates);
     }
 }
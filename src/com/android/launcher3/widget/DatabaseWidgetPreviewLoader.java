@@ -62,7 +62,10 @@ import java.util.function.Consumer;
 /**
  * Utility class to generate widget previews
  *
- * Note that it no longer uses database, all previews are freshly generated
+ * Note that it no longer uses database. Bitmap previews are kept in a
+ * {@link WidgetPreviewDiskCache}. Generated and preview layout previews are returned as
+ * {@link RemoteViews} or provider info, which the widget cell inflates into a live host view, so
+ * there is no bitmap of them to cache.
  */
 public class DatabaseWidgetPreviewLoader {
 
@@ -72,9 +75,12 @@ public class DatabaseWidgetPreviewLoader {
 
     private final DeviceProfile mDeviceProfile;
 
+    private final WidgetPreviewDiskCache mDiskCache;
+
     public DatabaseWidgetPreviewLoader(Context context, DeviceProfile deviceProfile) {
         mContext = context;
         mDeviceProfile = deviceProfile;
+        mDiskCache = WidgetPreviewDiskCache.INSTANCE.get(context);
     }
 
     /**
@@ -132,7 +138,13 @@ public class DatabaseWidgetPreviewLoader {
 
         if (result.providerInfo == null) {
             // fallback to bitmap preview
-            result.previewBitmap = generatePreview(item, previewWidth, previewHeight);
+            result.previewBitmap = mDiskCache.get(
+                    item, mDeviceProfile, previewWidth, previewHeight);
+            if (result.previewBitmap == null) {
+                result.previewBitmap = generatePreview(item, previewWidth, previewHeight);
+                mDiskCache.put(
+                        item, mDeviceProfile, previewWidth, previewHeight, result.previewBitmap);
+            }
         }
         return result;
     }
@@ -0,0 +1,341 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.launcher3.widget;
+
+import static com.android.launcher3.util.Executors.ORDERED_BG_EXECUTOR;
+
+import android.content.ComponentCallbacks;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.UserHandle;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.launcher3.DeviceProfile;
+import com.android.launcher3.Utilities;
+import com.android.launcher3.dagger.ApplicationContext;
+import com.android.launcher3.dagger.LauncherAppSingleton;
+import com.android.launcher3.dagger.LauncherBaseAppComponent;
+import com.android.launcher3.graphics.ThemeManager;
+import com.android.launcher3.model.WidgetItem;
+import com.android.launcher3.pm.UserCache;
+import com.android.launcher3.util.DaggerSingletonObject;
+import com.android.launcher3.util.DaggerSingletonTracker;
+import com.android.launcher3.util.WallpaperColorHints;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.inject.Inject;
+
+/**
+ * A disk cache of the bitmap previews generated by {@link DatabaseWidgetPreviewLoader}, so that
+ * reopening the widget picker doesn't render them again.
+ *
+ * Entries are keyed by provider component, user, the time the package was last updated, the
+ * preview size, the locale, the wallpaper colors and the current theme, so a stale preview is never
+ * returned. Overlays can change the resources of any package without changing these, so the whole
+ * cache is cleared when they do. The cache is bounded by the total size of its files and evicts
+ * the least recently used entries first. Entries of a package are also dropped when the package is
+ * updated or removed.
+ */
+@LauncherAppSingleton
+public class WidgetPreviewDiskCache implements ComponentCallbacks {
+
+    public static final DaggerSingletonObject<WidgetPreviewDiskCache> INSTANCE =
+            new DaggerSingletonObject<>(LauncherBaseAppComponent::getWidgetPreviewDiskCache);
+
+    private static final String TAG = "WidgetPreviewDiskCache";
+
+    // Increment when the format or the rendering of the previews changes
+    private static final int VERSION = 1;
+    private static final String DIR_NAME = "widget_previews";
+    private static final String FILE_SUFFIX = ".png";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final char NAME_SEPARATOR = '@';
+
+    private static final long MAX_BYTES = 24 * 1024 * 1024;
+
+    // ActivityInfo.CONFIG_ASSETS_PATHS, the configuration change of an overlay being applied
+    private static final int CONFIG_ASSETS_PATHS = 0x80000000;
+
+    // The dynamic colors that previews are rendered with on S+
+    private static final int[] PALETTE_COLORS = {
+            android.R.color.system_accent1_500,
+            android.R.color.system_accent2_500,
+            android.R.color.system_accent3_500,
+            android.R.color.system_neutral1_500,
+            android.R.color.system_neutral2_500,
+    };
+
+    private final Context mContext;
+    private final File mRootDir;
+    private final File mDir;
+    private final Configuration mLastConfig;
+
+    // File name to file size, in access order. Guarded by this.
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(64, 0.75f, true);
+    private long mTotalBytes;
+    private boolean mLoaded;
+
+    @Inject
+    WidgetPreviewDiskCache(@ApplicationContext Context context, DaggerSingletonTracker tracker) {
+        mContext = context;
+        mRootDir = new File(context.getCacheDir(), DIR_NAME);
+        mDir = new File(mRootDir, "v" + VERSION);
+        mLastConfig = new Configuration(context.getResources().getConfiguration());
+        context.registerComponentCallbacks(this);
+        tracker.addCloseable(() -> context.unregisterComponentCallbacks(this));
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        int diff = mLastConfig.diff(newConfig);
+        mLastConfig.setTo(newConfig);
+        if ((diff & CONFIG_ASSETS_PATHS) != 0) {
+            ORDERED_BG_EXECUTOR.execute(this::clear);
+        }
+    }
+
+    @Override
+    public void onLowMemory() { }
+
+    /**
+     * Returns the cached preview of {@code item} at the given size, or null. Must be called on a
+     * background thread.
+     */
+    @WorkerThread
+    @Nullable
+    public Bitmap get(@NonNull WidgetItem item, @NonNull DeviceProfile dp,
+            int previewWidth, int previewHeight) {
+        String name = getFileName(item, dp, previewWidth, previewHeight);
+        if (name == null) return null;
+        synchronized (this) {
+            ensureLoadedLocked();
+            if (mEntries.get(name) == null) return null;
+        }
+
+        File file = new File(mDir, name);
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inPreferredConfig = Bitmap.Config.HARDWARE;
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath(), opts);
+        if (bitmap != null) {
+            // Keeps the access order across restarts
+            file.setLastModified(System.currentTimeMillis());
+        } else {
+            Log.w(TAG, "Dropping unreadable preview " + name);
+            synchronized (this) {
+                removeLocked(name);
+            }
+        }
+        return bitmap;
+    }
+
+    /**
+     * Stores the preview of {@code item} at the given size. The bitmap is written on
+     * {@link com.android.launcher3.util.Executors#ORDERED_BG_EXECUTOR}.
+     */
+    public void put(@NonNull WidgetItem item, @NonNull DeviceProfile dp,
+            int previewWidth, int previewHeight, @NonNull Bitmap preview) {
+        String name = getFileName(item, dp, previewWidth, previewHeight);
+        if (name == null) return;
+        ORDERED_BG_EXECUTOR.execute(() -> write(name, preview));
+    }
+
+    /**
+     * Removes the previews of all the widgets and shortcuts of {@code packageName}.
+     */
+    public void removePackage(@NonNull String packageName, @NonNull UserHandle user) {
+        String prefix = packageName + NAME_SEPARATOR
+                + UserCache.INSTANCE.get(mContext).getSerialNumberForUser(user) + NAME_SEPARATOR;
+        ORDERED_BG_EXECUTOR.execute(() -> {
+            synchronized (this) {
+                ensureLoadedLocked();
+                for (String name : new ArrayList<>(mEntries.keySet())) {
+                    if (name.startsWith(prefix)) {
+                        removeLocked(name);
+                    }
+                }
+            }
+        });
+    }
+
+    @WorkerThread
+    private void clear() {
+        synchronized (this) {
+            ensureLoadedLocked();
+            for (String name : new ArrayList<>(mEntries.keySet())) {
+                removeLocked(name);
+            }
+        }
+    }
+
+    @WorkerThread
+    private void write(String name, Bitmap preview) {
+        synchronized (this) {
+            ensureLoadedLocked();
+            if (mEntries.containsKey(name)) return;
+        }
+        if (!mDir.isDirectory() && !mDir.mkdirs()) {
+            Log.w(TAG, "Can't create " + mDir);
+            return;
+        }
+
+        Bitmap software = preview.getConfig() == Bitmap.Config.HARDWARE
+                ? preview.copy(Bitmap.Config.ARGB_8888, false) : preview;
+        if (software == null) return;
+        File file = new File(mDir, name);
+        File tmp = new File(mDir, name + TMP_SUFFIX);
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            if (!software.compress(Bitmap.CompressFormat.PNG, 100, out)) {
+                throw new IOException("Failed to compress preview");
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write preview " + name, e);
+            tmp.delete();
+            return;
+        } finally {
+            if (software != preview) {
+                software.recycle();
+            }
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+
+        synchronized (this) {
+            mEntries.put(name, file.length());
+            mTotalBytes += file.length();
+            trimLocked();
+        }
+    }
+
+    private void ensureLoadedLocked() {
+        if (mLoaded) return;
+        mLoaded = true;
+
+        // Drop the previews of older versions
+        File[] roots = mRootDir.listFiles();
+        if (roots != null) {
+            for (File dir : roots) {
+                if (!dir.equals(mDir)) {
+                    deleteRecursively(dir);
+                }
+            }
+        }
+
+        File[] files = mDir.listFiles();
+        if (files == null) return;
+        // Use the modification time as an approximation of the last access
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (file.getName().endsWith(TMP_SUFFIX)) {
+                file.delete();
+                continue;
+            }
+            mEntries.put(file.getName(), file.length());
+            mTotalBytes += file.length();
+        }
+        trimLocked();
+    }
+
+    private void trimLocked() {
+        Iterator<Map.Entry<String, Long>> it = mEntries.entrySet().iterator();
+        while (mTotalBytes > MAX_BYTES && it.hasNext()) {
+            Map.Entry<String, Long> eldest = it.next();
+            it.remove();
+            mTotalBytes -= eldest.getValue();
+            new File(mDir, eldest.getKey()).delete();
+        }
+    }
+
+    private void removeLocked(String name) {
+        Long size = mEntries.remove(name);
+        if (size != null) {
+            mTotalBytes -= size;
+        }
+        new File(mDir, name).delete();
+    }
+
+    /**
+     * Returns the name of the file holding the preview, or null if the preview can't be cached
+     * because the package is not available.
+     */
+    @Nullable
+    private String getFileName(WidgetItem item, DeviceProfile dp, int width, int height) {
+        String packageName = item.componentName.getPackageName();
+        // The widget model already holds the application info of the provider
+        ApplicationInfo appInfo = item.widgetInfo != null
+                ? item.widgetInfo.getApplicationInfo()
+                : item.activityInfo.getApplicationInfo();
+        if (appInfo == null || appInfo.sourceDir == null) return null;
+        // The same apk backs the package in every profile, so its modification time changes
+        // whenever the package is updated.
+        long lastUpdateTime = new File(appInfo.sourceDir).lastModified();
+        long userSerial = UserCache.INSTANCE.get(mContext).getSerialNumberForUser(item.user);
+
+        Configuration config = mContext.getResources().getConfiguration();
+        String key = item.componentName.flattenToString()
+                + ',' + (item.widgetInfo != null ? "w" : "s")
+                + ',' + lastUpdateTime
+                + ',' + width + 'x' + height
+                + ',' + item.spanX + 'x' + item.spanY
+                + ',' + dp.iconSizePx
+                + ',' + config.densityDpi
+                + ',' + (config.uiMode & Configuration.UI_MODE_NIGHT_MASK)
+                + ',' + config.getLocales().toLanguageTags()
+                + ',' + WallpaperColorHints.get(mContext).getHints()
+                + ',' + getPaletteKey()
+                + ',' + ThemeManager.INSTANCE.get(mContext).getIconState().toUniqueId();
+        return packageName + NAME_SEPARATOR + userSerial + NAME_SEPARATOR
+                + UUID.nameUUIDFromBytes(key.getBytes(StandardCharsets.UTF_8)) + FILE_SUFFIX;
+    }
+
+    private String getPaletteKey() {
+        if (!Utilities.ATLEAST_S) return "";
+        StringBuilder key = new StringBuilder();
+        for (int color : PALETTE_COLORS) {
+            key.append(Integer.toHexString(mContext.getColor(color))).append('/');
+        }
+        return key.toString();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -34,6 +34,7 @@ import android.os.Build.VERSION_CODES;
 import android.os.Bundle;
 import android.os.Parcelable;
 import android.os.Process;
+import android.os.Trace;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.util.AttributeSet;
@@ -770,14 +771,19 @@ public class WidgetsFullSheet extends BaseWidgetSheet
 
     /** Shows the {@link WidgetsFullSheet} on the launcher. */
     public static WidgetsFullSheet show(BaseActivity activity, boolean animate) {
-        WidgetsFullSheet sheet = (WidgetsFullSheet) activity.getLayoutInflater().inflate(
-                getWidgetSheetId(activity),
-                activity.getDragLayer(),
-                false);
-        sheet.attachToContainer();
-        sheet.mIsOpen = true;
-        sheet.open(animate);
-        return sheet;
+        Trace.beginSection("WidgetsFullSheet#show");
+        try {
+            WidgetsFullSheet sheet = (WidgetsFullSheet) activity.getLayoutInflater().inflate(
+                    getWidgetSheetId(activity),
+                    activity.getDragLayer(),
+                    false);
+            sheet.attachToContainer();
+            sheet.mIsOpen = true;
+            sheet.open(animate);
+            return sheet;
+        } finally {
+            Trace.endSection();
+        }
     }
 
     /**
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2025 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.allapps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.ComponentName;
+import android.content.Intent;
+import android.os.Process;
+
+import androidx.test.runner.AndroidJUnit4;
+
+import com.android.launcher3.model.data.AppInfo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class SortedAppsListTest {
+
+    private static final Comparator<AppInfo> TITLE_COMPARATOR =
+            Comparator.comparing(info -> info.title.toString());
+
+    // Enough apps for a rename, which removes and adds an app, to be below the ratio of changes
+    // above which the whole list is sorted again
+    private static final String[] TITLES = {
+            "Maps", "Camera", "Drive", "Photos", "Gmail", "Keep", "Chrome", "Files", "Clock",
+            "Play Store", "Contacts", "Docs", "Fit", "Home", "Messages", "News", "Phone",
+            "Sheets", "Translate", "YouTube"};
+
+    private SortedAppsList mSortedApps;
+    private List<AppInfo> mApps;
+    private Comparator<AppInfo> mComparator;
+    private int mCompareCount;
+
+    @Before
+    public void setUp() {
+        mSortedApps = new SortedAppsList();
+        mApps = new ArrayList<>();
+        for (String title : TITLES) {
+            mApps.add(createAppInfo(title));
+        }
+        // Counts the comparisons, which tell moving one app apart from sorting the whole list
+        mComparator = (a, b) -> {
+            mCompareCount++;
+            return TITLE_COMPARATOR.compare(a, b);
+        };
+        mSortedApps.update(mApps.toArray(new AppInfo[0]), null, mComparator);
+        mCompareCount = 0;
+    }
+
+    @Test
+    public void firstUpdate_sortsApps() {
+        assertSorted();
+        assertEquals(TITLES.length, mSortedApps.getApps().size());
+    }
+
+    @Test
+    public void unchangedApps_listNotChanged() {
+        assertFalse(mSortedApps.update(mApps.toArray(new AppInfo[0]), null, mComparator));
+        assertSorted();
+    }
+
+    @Test
+    public void appAdded_insertedInOrder() {
+        mApps.add(createAppInfo("Calendar"));
+
+        assertTrue(mSortedApps.update(mApps.toArray(new AppInfo[0]), null, mComparator));
+
+        assertSorted();
+        assertEquals("Calendar", mSortedApps.getApps().get(0).title.toString());
+    }
+
+    @Test
+    public void appRemoved_removedFromList() {
+        AppInfo removed = mApps.remove(3);
+
+        assertTrue(mSortedApps.update(mApps.toArray(new AppInfo[0]), null, mComparator));
+
+        assertSorted();
+        assertFalse(mSortedApps.getApps().contains(removed));
+    }
+
+    @Test
+    public void appRenamedInPlace_movedToNewPosition() {
+        AppInfo renamed = mApps.get(0);
+        renamed.title = "Zoom";
+
+        assertTrue(mSortedApps.update(mApps.toArray(new AppInfo[0]), null, mComparator));
+
+        // A binary insertion, rather than a sort, which compares every app at least once
+        assertTrue(mCompareCount < TITLES.length - 1);
+        assertSorted();
+        assertEquals(renamed, mSortedApps.getApps().get(mSortedApps.getApps().size() - 1));
+    }
+
+    @Test
+    public void filterChanged_appsFilteredOut() {
+        assertTrue(mSortedApps.update(mApps.toArray(new AppInfo[0]),
+                info -> !"Keep".contentEquals(info.title), mComparator));
+
+        assertSorted();
+        assertEquals(TITLES.length - 1, mSortedApps.getApps().size());
+    }
+
+    private void assertSorted() {
+        List<AppInfo> expected = new ArrayList<>(mSortedApps.getApps());
+        expected.sort(TITLE_COMPARATOR);
+        assertEquals(expected, mSortedApps.getApps());
+    }
+
+    private static AppInfo createAppInfo(String title) {
+        ComponentName componentName = new ComponentName("com.android.launcher3.tests",
+                "com.android.launcher3.tests.Activity" + title.replace(" ", ""));
+        return new AppInfo(componentName, title, Process.myUserHandle(), new Intent());
+    }
+}
@@ -16,6 +16,7 @@ import org.junit.runner.RunWith;
 import java.io.File;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.Arrays;
 import java.util.Calendar;
 
 /**
@@ -42,6 +43,7 @@ public class FileLogTest {
         // Clear existing logs
         for (int i = 0; i < FileLog.LOG_DAYS; i++) {
             new File(mTempDir, "log-" + i).delete();
+            new File(mTempDir, "log-" + i + ".old").delete();
         }
         mTempDir.delete();
     }
@@ -93,4 +95,41 @@ public class FileLogTest {
         // Old logs have been truncated
         assertFalse(writer.toString().contains("hoolalala"));
     }
+
+    @Test
+    public void testNullMessage() throws Exception {
+        if (!FileLog.ENABLED) {
+            return;
+        }
+        FileLog.print(null, null);
+        FileLog.print("Testing", "hoolalala");
+        StringWriter writer = new StringWriter();
+        assertTrue(FileLog.flushAll(new PrintWriter(writer)));
+        // The record after the null one is still written
+        assertTrue(writer.toString().contains("hoolalala"));
+    }
+
+    @Test
+    public void testFullFileRotated() throws Exception {
+        if (!FileLog.ENABLED) {
+            return;
+        }
+        FileLog.print("Testing", "hoolalala");
+        // Write more than a file holds, in batches the buffer has room for
+        char[] chars = new char[8 << 10];
+        Arrays.fill(chars, 'x');
+        String filler = new String(chars);
+        for (int batch = 0; batch < 4; batch++) {
+            for (int i = 0; i < 100; i++) {
+                FileLog.print("Testing", filler);
+            }
+            assertTrue(FileLog.flushAll(null));
+        }
+        FileLog.print("Testing", "abracadabra");
+        StringWriter writer = new StringWriter();
+        assertTrue(FileLog.flushAll(new PrintWriter(writer)));
+        assertTrue(writer.toString().contains("abracadabra"));
+        // The records before the rotation are kept
+        assertTrue(writer.toString().contains("hoolalala"));
+    }
 }
@@ -0,0 +1,79 @@
+package com.android.launcher3.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.logging.LogRingBuffer.Record;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Tests for {@link LogRingBuffer}
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class LogRingBufferTest {
+
+    @Test
+    public void testRecordsReadInOrder() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        assertEquals(1, buffer.append(10, Log.DEBUG, "Tag", "first", null));
+        assertEquals(2, buffer.append(20, Log.WARN, "Tag", "second", null));
+
+        Record record = new Record();
+        assertTrue(buffer.read(record));
+        assertEquals(10, record.time);
+        assertEquals(Log.DEBUG, record.priority);
+        assertEquals("Tag", record.tag);
+        assertEquals("first", record.message);
+        assertEquals(0, record.argCount);
+
+        assertTrue(buffer.read(record));
+        assertEquals(20, record.time);
+        assertEquals(Log.WARN, record.priority);
+        assertEquals("second", record.message);
+        assertNull(record.error);
+
+        assertFalse(buffer.read(record));
+    }
+
+    @Test
+    public void testFullBufferDropsNewRecords() {
+        LogRingBuffer buffer = new LogRingBuffer(2);
+        buffer.append(1, Log.INFO, "Tag", "first", null);
+        buffer.append(2, Log.INFO, "Tag", "second", null);
+        assertEquals(-1, buffer.append(3, Log.INFO, "Tag", "third", null));
+        assertEquals(1, buffer.takeDropped());
+        assertEquals(0, buffer.takeDropped());
+
+        Record record = new Record();
+        assertTrue(buffer.read(record));
+        assertEquals("first", record.message);
+        // Reading frees a slot for new records
+        assertEquals(2, buffer.append(4, Log.INFO, "Tag", "fourth", null));
+        assertTrue(buffer.read(record));
+        assertEquals("second", record.message);
+        assertTrue(buffer.read(record));
+        assertEquals("fourth", record.message);
+        assertFalse(buffer.read(record));
+    }
+
+    @Test
+    public void testNullTagAndMessage() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        buffer.append(1, Log.INFO, null, null, null);
+
+        Record record = new Record();
+        assertTrue(buffer.read(record));
+        assertEquals("null", record.tag);
+        assertNull(record.message);
+    }
+}
@@ -19,7 +19,9 @@ package com.android.launcher3.logging
 import androidx.core.util.isEmpty
 import androidx.test.filters.SmallTest
 import com.android.launcher3.logging.StartupLatencyLogger.ColdRebootStartupLogger
+import com.android.launcher3.logging.StartupLatencyLogger.CoverScreenRelaunchLogger
 import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent
+import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent.LAUNCHER_LATENCY_COVER_SCREEN_RELAUNCH
 import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent.LAUNCHER_LATENCY_STARTUP_ACTIVITY_ON_CREATE
 import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent.LAUNCHER_LATENCY_STARTUP_TOTAL_DURATION
 import com.android.launcher3.logging.StatsLogManager.LauncherLatencyEvent.LAUNCHER_LATENCY_STARTUP_VIEW_INFLATION
@@ -170,11 +172,48 @@ class StartupLatencyLoggerTest {
         LAUNCHER_LATENCY_STARTUP_TOTAL_DURATION.verifyLoggedEvent(150)
     }
 
-    private fun LauncherLatencyEvent.verifyLoggedEvent(latency: Long, cardinality: Int = -1) {
+    @Test
+    fun coverScreenRelaunch_finishLogs_logs_time_since_event() {
+        doReturn(130L).whenever(timeProvider).invoke()
+
+        val followup = CoverScreenRelaunchLogger(ctx, 100, timeProvider).finishLogs(3, true)
+
+        assertThat(followup).isEqualTo(StartupLatencyLogger.NoOpLogger)
+        assertThat(trackedLoggers).hasSize(1)
+        LAUNCHER_LATENCY_COVER_SCREEN_RELAUNCH.verifyLoggedEvent(30, 3, LatencyType.HOT)
+    }
+
+    @Test
+    fun coverScreenRelaunch_logs_nothing_before_finishLogs() {
+        doReturn(130L).whenever(timeProvider).invoke()
+
+        CoverScreenRelaunchLogger(ctx, 100, timeProvider).apply {
+            logStart(LAUNCHER_LATENCY_STARTUP_ACTIVITY_ON_CREATE)
+            logEnd(LAUNCHER_LATENCY_STARTUP_ACTIVITY_ON_CREATE)
+        }
+
+        assertThat(trackedLoggers).isEmpty()
+    }
+
+    @Test
+    fun coverScreenRelaunch_cancel_logs_nothing() {
+        doReturn(130L).whenever(timeProvider).invoke()
+
+        val followup = CoverScreenRelaunchLogger(ctx, 100, timeProvider).cancel()
+
+        assertThat(followup).isEqualTo(StartupLatencyLogger.NoOpLogger)
+        assertThat(trackedLoggers).isEmpty()
+    }
+
+    private fun LauncherLatencyEvent.verifyLoggedEvent(
+        latency: Long,
+        cardinality: Int = -1,
+        type: LatencyType = LatencyType.COLD_DEVICE_REBOOTING,
+    ) {
         val logger = trackedLoggers[this]!!
         verify(logger).withLatency(latency)
         verify(logger).withPackageId(LAUNCHER_LATENCY_PACKAGE_ID)
-        verify(logger).withType(LatencyType.COLD_DEVICE_REBOOTING)
+        verify(logger).withType(type)
         verify(logger).withCardinality(cardinality)
     }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2026 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.launcher3.popup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import android.os.Process;
+import android.view.Choreographer.FrameCallback;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+
+import com.android.launcher3.notification.NotificationKeyData;
+import com.android.launcher3.util.PackageUserKey;
+import com.android.launcher3.views.ActivityContext;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Tests for the coalescing of notification dot updates in {@link PopupDataProvider}.
+ */
+@SmallTest
+@RunWith(AndroidJUnit4.class)
+public class PopupDataProviderTest {
+
+    private static final PackageUserKey PACKAGE_A =
+            new PackageUserKey("com.example.a", Process.myUserHandle());
+    private static final PackageUserKey PACKAGE_B =
+            new PackageUserKey("com.example.b", Process.myUserHandle());
+    private static final PackageUserKey PACKAGE_C =
+            new PackageUserKey("com.example.c", Process.myUserHandle());
+
+    private TestPopupDataProvider mProvider;
+
+    @Before
+    public void setUp() {
+        mProvider = new TestPopupDataProvider();
+    }
+
+    @Test
+    public void notificationBurst_updatesDotsOnceWithChangedPackages() {
+        for (int i = 0; i < 10; i++) {
+            mProvider.onNotificationPosted(PACKAGE_A, new NotificationKeyData("a" + i));
+        }
+        mProvider.onNotificationPosted(PACKAGE_B, new NotificationKeyData("b"));
+        mProvider.onNotificationRemoved(PACKAGE_A, new NotificationKeyData("a0"));
+
+        assertEquals(1, mProvider.mFrameCallbacks.size());
+        assertTrue(mProvider.mUpdates.isEmpty());
+
+        mProvider.runFrame();
+
+        assertEquals(1, mProvider.mUpdates.size());
+        Predicate<PackageUserKey> updatedDots = mProvider.mUpdates.get(0);
+        assertTrue(updatedDots.test(PACKAGE_A));
+        assertTrue(updatedDots.test(PACKAGE_B));
+        assertFalse(updatedDots.test(PACKAGE_C));
+    }
+
+    @Test
+    public void notificationAfterFrame_schedulesNextFrame() {
+        mProvider.onNotificationPosted(PACKAGE_A, new NotificationKeyData("a"));
+        mProvider.runFrame();
+        mProvider.onNotificationPosted(PACKAGE_B, new NotificationKeyData("b"));
+        mProvider.runFrame();
+
+        assertEquals(2, mProvider.mUpdates.size());
+        assertFalse(mProvider.mUpdates.get(1).test(PACKAGE_A));
+        assertTrue(mProvider.mUpdates.get(1).test(PACKAGE_B));
+    }
+
+    @Test
+    public void cancelPendingDotUpdates_removesFrameCallback() {
+        mProvider.onNotificationPosted(PACKAGE_A, new NotificationKeyData("a"));
+
+        mProvider.cancelPendingDotUpdates();
+
+        assertTrue(mProvider.mFrameCallbacks.isEmpty());
+        assertTrue(mProvider.mUpdates.isEmpty());
+    }
+
+    /** Runs frame callbacks on demand and records dot updates instead of walking the views. */
+    private static class TestPopupDataProvider extends PopupDataProvider {
+
+        final List<FrameCallback> mFrameCallbacks = new ArrayList<>();
+        final List<Predicate<PackageUserKey>> mUpdates = new ArrayList<>();
+
+        TestPopupDataProvider() {
+            super(mock(ActivityContext.class));
+        }
+
+        void runFrame() {
+            List<FrameCallback> callbacks = new ArrayList<>(mFrameCallbacks);
+            mFrameCallbacks.clear();
+            callbacks.forEach(callback -> callback.doFrame(0));
+        }
+
+        @Override
+        void updateNotificationDots(Predicate<PackageUserKey> updatedDots) {
+            mUpdates.add(updatedDots);
+        }
+
+        @Override
+        void postFrameCallback(FrameCallback callback) {
+            mFrameCallbacks.add(callback);
+        }
+
+        @Override
+        void removeFrameCallback(FrameCallback callback) {
+            mFrameCallbacks.remove(callback);
+        }
+    }
+}